@@ -9,6 +9,7 @@ import de.invesdwin.context.persistence.jpa.PersistenceProperties;
 import de.invesdwin.context.persistence.jpa.PersistenceUnitContext;
 import de.invesdwin.context.persistence.jpa.api.bulkinsert.internal.IBulkInsertEntities;
 import de.invesdwin.context.persistence.jpa.api.bulkinsert.internal.JPABatchInsert;
+import de.invesdwin.context.persistence.jpa.api.bulkinsert.internal.JdbcBatchInsert;
 import de.invesdwin.context.persistence.jpa.api.bulkinsert.internal.MySqlLoadDataInfile;
 import de.invesdwin.context.persistence.jpa.api.dao.entity.IEntity;
 import de.invesdwin.util.assertions.Assertions;
@@ -30,8 +31,12 @@ public class BulkInsertEntities<E> implements IBulkInsertEntities<E> {
         case MYSQL:
             return new MySqlLoadDataInfile<E>(genericType, puContext);
         default:
-            //e.g. when running in tests
-            return new JPABatchInsert<E>(genericType, puContext);
+            if (puContext.getConnectionDialect().isRdbms()) {
+                return new JdbcBatchInsert<E>(genericType, puContext);
+            } else {
+                //e.g. nosql stores that are only reachable via the entity manager
+                return new JPABatchInsert<E>(genericType, puContext);
+            }
         }
     }
 
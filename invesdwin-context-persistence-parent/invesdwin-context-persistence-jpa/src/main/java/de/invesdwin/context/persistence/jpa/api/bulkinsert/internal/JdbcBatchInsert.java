@@ -0,0 +1,313 @@
+package de.invesdwin.context.persistence.jpa.api.bulkinsert.internal;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.persistence.EntityManager;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.invesdwin.context.persistence.jpa.PersistenceUnitContext;
+import de.invesdwin.context.persistence.jpa.api.dao.entity.IEntity;
+import de.invesdwin.context.persistence.jpa.api.util.Attributes;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.reflection.Reflections;
+import de.invesdwin.util.time.date.FDate;
+
+/**
+ * Inserts the staged entities directly via JDBC without going through the persistence context. The column metadata is
+ * derived from the entity mapping once and the rows are streamed through a single prepared statement in batches of the
+ * configured connection batch size. This works with any RDBMS dialect since it only relies on standard JDBC batching.
+ */
+@ThreadSafe
+public class JdbcBatchInsert<E> implements IBulkInsertEntities<E> {
+
+    private final Class<E> genericType;
+    private final DataSource ds;
+    private final EntityManager em;
+    private final int connectionBatchSize;
+    private final List<Column> columns;
+    private final String insertQuery;
+    private boolean disabledChecks;
+    private boolean skipPrepareEntities;
+    private final Object persistLock = new Object();
+    @GuardedBy("stageLock")
+    private List<Object[]> staged = new ArrayList<Object[]>();
+    private final Object stageLock = new Object();
+
+    public JdbcBatchInsert(final Class<E> genericType, final PersistenceUnitContext puContext) {
+        this.genericType = genericType;
+        this.ds = puContext.getDataSource();
+        this.em = puContext.getEntityManager();
+        this.connectionBatchSize = Math.max(1, puContext.getConnectionBatchSize());
+        this.columns = determineColumns();
+        this.insertQuery = createQuery();
+    }
+
+    /**
+     * Checks are not disabled here since there is no portable way to do that across dialects.
+     */
+    @Override
+    public JdbcBatchInsert<E> withDisabledChecks(final boolean disabledChecks) {
+        this.disabledChecks = disabledChecks;
+        return this;
+    }
+
+    @Override
+    public boolean isDisabledChecks() {
+        return disabledChecks;
+    }
+
+    @Override
+    public boolean isSkipPrepareEntities() {
+        return skipPrepareEntities;
+    }
+
+    @Override
+    public IBulkInsertEntities<E> withSkipPrepareEntities(final boolean skipPrepareEntities) {
+        this.skipPrepareEntities = skipPrepareEntities;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Column> determineColumns() {
+        final List<Column> columns = new ArrayList<Column>();
+        final EntityType<E> et = (EntityType<E>) em.getMetamodel().entity(genericType);
+        final Set<Attribute<? super E, ?>> attrs = et.getAttributes();
+        for (final Attribute<? super E, ?> attr : attrs) {
+            final String javaName = attr.getJavaMember().getName();
+            final Field field = Reflections.findField(genericType, javaName);
+            if (skipColumn(field)) {
+                continue;
+            }
+            Reflections.makeAccessible(field);
+            columns.add(new Column(Attributes.extractNativeSqlColumnName(attr), field));
+        }
+        return columns;
+    }
+
+    private String createQuery() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ");
+        sb.append(genericType.getSimpleName());
+        sb.append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(columns.get(i).sqlName);
+        }
+        sb.append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("?");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    private boolean skipColumn(final Field field) {
+        //generated ids are assigned by the database
+        if (IEntity.class.isAssignableFrom(genericType) && IEntity.ID_COLUMN_NAME.equals(field.getName())) {
+            final GeneratedValue annotation = Reflections.getAnnotation(field, GeneratedValue.class);
+            if (annotation != null && (annotation.strategy() == GenerationType.IDENTITY
+                    || annotation.strategy() == GenerationType.AUTO)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void stage(final List<E> entities) {
+        if (!skipPrepareEntities) {
+            prepareEntities(entities);
+        }
+        final List<Object[]> rows = new ArrayList<Object[]>(entities.size());
+        for (final E entity : entities) {
+            rows.add(toRow(entity));
+        }
+        synchronized (stageLock) {
+            staged.addAll(rows);
+        }
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    private void prepareEntities(final List<E> entities) {
+        Assertions.checkFalse(TransactionSynchronizationManager.isActualTransactionActive());
+        //fake a transaction to prevent TransactionRequiredException in SharedEntityManager Proxy
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            for (final E entity : entities) {
+                em.persist(entity);
+                em.remove(entity);
+            }
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private Object[] toRow(final E entity) {
+        final Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            final Column column = columns.get(i);
+            row[i] = column.toJdbcValue(Reflections.getField(column.field, entity));
+        }
+        return row;
+    }
+
+    @Override
+    public int persist() {
+        final List<Object[]> rows;
+        synchronized (stageLock) {
+            rows = staged;
+            staged = new ArrayList<Object[]>();
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        synchronized (persistLock) {
+            try {
+                return internalPersist(rows);
+            } catch (final Throwable e) {
+                //restore rows to be able to resume later if stage is not called in same method as persist
+                synchronized (stageLock) {
+                    rows.addAll(staged);
+                    staged = rows;
+                }
+                throw new RuntimeException("On " + genericType.getSimpleName(), e);
+            }
+        }
+    }
+
+    /**
+     * The connection is managed here directly so that the batches are committed together without an outer transaction
+     * holding on to them.
+     */
+    private int internalPersist(final List<Object[]> rows) throws SQLException {
+        try (Connection conn = ds.getConnection()) {
+            final boolean prevAutoCommit = conn.getAutoCommit();
+            if (prevAutoCommit) {
+                //one commit for all batches instead of one per statement
+                conn.setAutoCommit(false);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+                int countUpdated = 0;
+                int batchCount = 0;
+                for (final Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        stmt.setObject(i + 1, row[i]);
+                    }
+                    stmt.addBatch();
+                    batchCount++;
+                    if (batchCount >= connectionBatchSize) {
+                        countUpdated += executeBatch(stmt);
+                        batchCount = 0;
+                    }
+                }
+                if (batchCount > 0) {
+                    countUpdated += executeBatch(stmt);
+                }
+                conn.commit();
+                return countUpdated;
+            } catch (final Throwable t) {
+                conn.rollback();
+                throw t;
+            } finally {
+                if (prevAutoCommit) {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    private int executeBatch(final PreparedStatement stmt) throws SQLException {
+        final int[] updateCounts = stmt.executeBatch();
+        int countUpdated = 0;
+        for (final int updateCount : updateCounts) {
+            if (updateCount == PreparedStatement.SUCCESS_NO_INFO) {
+                //some drivers do not report the row counts of batches
+                countUpdated++;
+            } else if (updateCount > 0) {
+                countUpdated += updateCount;
+            }
+        }
+        return countUpdated;
+    }
+
+    @Override
+    public void close() {
+        synchronized (stageLock) {
+            staged = new ArrayList<Object[]>();
+        }
+    }
+
+    @Immutable
+    private static final class Column {
+        private final String sqlName;
+        private final Field field;
+        private final EnumType enumType;
+
+        private Column(final String sqlName, final Field field) {
+            this.sqlName = sqlName;
+            this.field = field;
+            if (field.getType().isEnum()) {
+                final Enumerated enumerated = Reflections.getAnnotation(field, Enumerated.class);
+                if (enumerated != null) {
+                    this.enumType = enumerated.value();
+                } else {
+                    this.enumType = EnumType.ORDINAL;
+                }
+            } else {
+                this.enumType = null;
+            }
+        }
+
+        private Object toJdbcValue(final Object value) {
+            if (value == null) {
+                return null;
+            } else if (value instanceof IEntity) {
+                final IEntity valueEntity = (IEntity) value;
+                return valueEntity.getId();
+            } else if (value instanceof FDate) {
+                return new Timestamp(((FDate) value).millisValue());
+            } else if (value instanceof Date) {
+                return new Timestamp(((Date) value).getTime());
+            } else if (value instanceof Calendar) {
+                return new Timestamp(((Calendar) value).getTimeInMillis());
+            } else if (value instanceof Enum) {
+                final Enum<?> enumValue = (Enum<?>) value;
+                if (enumType == EnumType.STRING) {
+                    return enumValue.name();
+                } else {
+                    return enumValue.ordinal();
+                }
+            } else {
+                return value;
+            }
+        }
+    }
+
+}
@@ -8,6 +8,8 @@ import javax.inject.Inject;
 
 import org.junit.Test;
 
+import de.invesdwin.context.persistence.jpa.PersistenceProperties;
+import de.invesdwin.context.persistence.jpa.api.bulkinsert.internal.JdbcBatchInsert;
 import de.invesdwin.context.persistence.jpa.complex.TestDao;
 import de.invesdwin.context.persistence.jpa.complex.TestEntity;
 import de.invesdwin.context.persistence.jpa.test.PersistenceTest;
@@ -40,4 +42,23 @@ public class BulkInsertEntitiesTest extends ATest {
         Assertions.assertThat(testDao.count()).isEqualTo(ents);
         loadDataInfile.close();
     }
+
+    @Test
+    public void testJdbcBatchInsert() {
+        testDao.deleteAll();
+        final JdbcBatchInsert<TestEntity> batchInsert = new JdbcBatchInsert<TestEntity>(TestEntity.class,
+                PersistenceProperties.getPersistenceUnitContext(TestEntity.class));
+        Assertions.assertThat(batchInsert.persist()).isEqualTo(0);
+        final int ents = 1000;
+        final List<TestEntity> list = new ArrayList<TestEntity>();
+        for (int i = 0; i < ents; i++) {
+            final TestEntity entity = new TestEntity();
+            entity.setName(i + "");
+            list.add(entity);
+        }
+        batchInsert.stage(list);
+        Assertions.assertThat(batchInsert.persist()).isEqualTo(ents);
+        Assertions.assertThat(testDao.count()).isEqualTo(ents);
+        batchInsert.close();
+    }
 }
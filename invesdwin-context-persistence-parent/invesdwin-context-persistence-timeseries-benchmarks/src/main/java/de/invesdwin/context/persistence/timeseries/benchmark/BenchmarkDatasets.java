@@ -0,0 +1,81 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.util.collections.iterable.ICloseableIterable;
+import de.invesdwin.util.collections.iterable.WrapperCloseableIterable;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.math.TimedDouble;
+import de.invesdwin.util.time.date.FDate;
+
+/**
+ * Synthetic datasets are generated from a fixed seed so that each benchmark run works on the exact same data.
+ */
+@Immutable
+public final class BenchmarkDatasets {
+
+    public static final long SEED = 42;
+    public static final String HASH_KEY = "HASH_KEY";
+    public static final FDate FIRST_TIME = FDate.MIN_DATE;
+    public static final int LOOKUPS = 1024;
+
+    private BenchmarkDatasets() {}
+
+    public static FDate getTime(final int index) {
+        return FIRST_TIME.addMilliseconds(index);
+    }
+
+    public static FDate getLastTime(final int values) {
+        return getTime(values - 1);
+    }
+
+    /**
+     * A random walk with one value per millisecond.
+     */
+    public static List<TimedDouble> newTimedDoubles(final int values) {
+        final Random random = new Random(SEED);
+        final List<TimedDouble> list = new ArrayList<TimedDouble>(values);
+        double value = 100D;
+        for (int i = 0; i < values; i++) {
+            value += random.nextGaussian();
+            list.add(new TimedDouble(getTime(i), value));
+        }
+        return list;
+    }
+
+    public static ICloseableIterable<TimedDouble> newTimedDoublesIterable(final int values) {
+        return WrapperCloseableIterable.maybeWrap(newTimedDoubles(values));
+    }
+
+    /**
+     * Random lookup keys inside the range of the dataset, the benchmarks cycle through them with a mask.
+     */
+    public static FDate[] newRandomLookupTimes(final int values) {
+        final Random random = new Random(SEED);
+        final FDate[] times = new FDate[LOOKUPS];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = getTime(random.nextInt(values));
+        }
+        return times;
+    }
+
+    public static byte[] newRandomBytes(final int size) {
+        final Random random = new Random(SEED);
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static File newBaseDirectory(final String name) {
+        final File directory = new File(ContextProperties.TEMP_DIRECTORY, "benchmark/" + name);
+        Files.deleteQuietly(directory);
+        return directory;
+    }
+
+}
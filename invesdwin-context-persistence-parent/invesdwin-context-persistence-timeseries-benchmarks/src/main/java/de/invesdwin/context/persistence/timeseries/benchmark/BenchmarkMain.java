@@ -0,0 +1,31 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks (or those matching the regex given as the first argument) with allocation profiling enabled.
+ * Alternatively use the shaded jar: java -jar target/benchmarks.jar -prof gc
+ */
+@Immutable
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(final String[] args) throws RunnerException {
+        final String include;
+        if (args.length > 0) {
+            include = args[0];
+        } else {
+            include = BenchmarkMain.class.getPackage().getName() + ".*";
+        }
+        final Options options = new OptionsBuilder().include(include).addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,254 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousChannels;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.MappedSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.MappedSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.RingBufferMappedSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.RingBufferMappedSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.pipe.PipeSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.pipe.PipeSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.queue.QueueSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.queue.QueueSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.SocketSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.SocketSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.nio.NioSocketSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.nio.NioSocketSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.udp.DatagramSocketSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.udp.DatagramSocketSynchronousWriter;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.error.UnknownArgumentException;
+import de.invesdwin.util.lang.Files;
+
+/**
+ * Measures the round trip latency of a request/response pair through each channel type. A separate thread echoes
+ * every request back as the response. Readers that implement ISynchronousBufferReader are read without copying the
+ * message so that the gc profiler shows the allocations of the transport itself.
+ */
+@NotThreadSafe
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChannelBenchmark {
+
+    private static final int MESSAGE_TYPE = 1;
+    private static final int REQUEST_PORT = 7879;
+    private static final int RESPONSE_PORT = 7878;
+
+    public enum ChannelType {
+        MAPPED,
+        RING_BUFFER_MAPPED,
+        PIPE,
+        SOCKET,
+        NIO_SOCKET,
+        DATAGRAM_SOCKET,
+        QUEUE;
+    }
+
+    @Param
+    private ChannelType channelType;
+
+    @Param({ "8", "1024" })
+    private int messageSize;
+
+    private ISynchronousWriter requestWriter;
+    private ISynchronousReader responseReader;
+    private WrappedExecutorService executor;
+    private byte[] message;
+    private int sequence;
+    private File requestFile;
+    private File responseFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        message = BenchmarkDatasets.newRandomBytes(messageSize);
+        final String name = getClass().getSimpleName() + "_" + channelType;
+        final ISynchronousReader requestReader;
+        final ISynchronousWriter responseWriter;
+        switch (channelType) {
+        case MAPPED:
+            requestFile = newFile(name + "_request", false);
+            responseFile = newFile(name + "_response", false);
+            requestReader = new MappedSynchronousReader(requestFile, messageSize);
+            responseWriter = new MappedSynchronousWriter(responseFile, messageSize);
+            requestWriter = new MappedSynchronousWriter(requestFile, messageSize);
+            responseReader = new MappedSynchronousReader(responseFile, messageSize);
+            break;
+        case RING_BUFFER_MAPPED:
+            requestFile = newFile(name + "_request", false);
+            responseFile = newFile(name + "_response", false);
+            requestReader = new RingBufferMappedSynchronousReader(requestFile, messageSize);
+            responseWriter = new RingBufferMappedSynchronousWriter(responseFile, messageSize);
+            requestWriter = new RingBufferMappedSynchronousWriter(requestFile, messageSize);
+            responseReader = new RingBufferMappedSynchronousReader(responseFile, messageSize);
+            break;
+        case PIPE:
+            requestFile = newFile(name + "_request.pipe", true);
+            responseFile = newFile(name + "_response.pipe", true);
+            requestReader = new PipeSynchronousReader(requestFile, messageSize);
+            responseWriter = new PipeSynchronousWriter(responseFile, messageSize);
+            requestWriter = new PipeSynchronousWriter(requestFile, messageSize);
+            responseReader = new PipeSynchronousReader(responseFile, messageSize);
+            break;
+        case SOCKET:
+            requestReader = new SocketSynchronousReader(newRequestAddress(), true, messageSize);
+            responseWriter = new SocketSynchronousWriter(newResponseAddress(), true, messageSize);
+            requestWriter = new SocketSynchronousWriter(newRequestAddress(), false, messageSize);
+            responseReader = new SocketSynchronousReader(newResponseAddress(), false, messageSize);
+            break;
+        case NIO_SOCKET:
+            requestReader = new NioSocketSynchronousReader(newRequestAddress(), true, messageSize);
+            responseWriter = new NioSocketSynchronousWriter(newResponseAddress(), true, messageSize);
+            requestWriter = new NioSocketSynchronousWriter(newRequestAddress(), false, messageSize);
+            responseReader = new NioSocketSynchronousReader(newResponseAddress(), false, messageSize);
+            break;
+        case DATAGRAM_SOCKET:
+            requestReader = new DatagramSocketSynchronousReader(newRequestAddress(), messageSize);
+            responseWriter = new DatagramSocketSynchronousWriter(newResponseAddress(), messageSize);
+            requestWriter = new DatagramSocketSynchronousWriter(newRequestAddress(), messageSize);
+            responseReader = new DatagramSocketSynchronousReader(newResponseAddress(), messageSize);
+            break;
+        case QUEUE:
+            final Queue<SynchronousResponse> requestQueue = new LinkedBlockingQueue<SynchronousResponse>();
+            final Queue<SynchronousResponse> responseQueue = new LinkedBlockingQueue<SynchronousResponse>();
+            requestReader = new QueueSynchronousReader(requestQueue);
+            responseWriter = new QueueSynchronousWriter(responseQueue);
+            requestWriter = new QueueSynchronousWriter(requestQueue);
+            responseReader = new QueueSynchronousReader(responseQueue);
+            break;
+        default:
+            throw UnknownArgumentException.newInstance(ChannelType.class, channelType);
+        }
+        executor = Executors.newFixedThreadPool(name, 1);
+        //server side has to be opened concurrently since sockets and pipes block until the other endpoint connects
+        executor.execute(new EchoTask(requestReader, responseWriter));
+        requestWriter.open();
+        responseReader.open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        requestWriter.close();
+        executor.shutdown();
+        executor.awaitTermination();
+        responseReader.close();
+        if (requestFile != null) {
+            Files.deleteQuietly(requestFile);
+        }
+        if (responseFile != null) {
+            Files.deleteQuietly(responseFile);
+        }
+    }
+
+    @Benchmark
+    public int roundtrip() throws IOException {
+        requestWriter.write(MESSAGE_TYPE, sequence++, message);
+        return read(responseReader);
+    }
+
+    private static int read(final ISynchronousReader reader) throws IOException {
+        while (!reader.hasNext()) {
+            //busy spin to measure the latency of the transport instead of the wait strategy
+            continue;
+        }
+        if (reader instanceof ISynchronousBufferReader) {
+            final SynchronousBufferResponse response = ((ISynchronousBufferReader) reader).readMessageBuffer();
+            return response.getSequence();
+        } else {
+            final SynchronousResponse response = reader.readMessage();
+            return response.getSequence();
+        }
+    }
+
+    private static SocketAddress newRequestAddress() {
+        return new InetSocketAddress("localhost", REQUEST_PORT);
+    }
+
+    private static SocketAddress newResponseAddress() {
+        return new InetSocketAddress("localhost", RESPONSE_PORT);
+    }
+
+    private static File newFile(final String name, final boolean pipe) throws IOException {
+        final File file = new File(SynchronousChannels.getTmpfsFolderOrFallback(), name);
+        Files.deleteQuietly(file);
+        if (pipe) {
+            if (!SynchronousChannels.createNamedPipe(file)) {
+                throw new IllegalStateException("Unable to create named pipe: " + file);
+            }
+        } else {
+            Files.touch(file);
+        }
+        return file;
+    }
+
+    private static final class EchoTask implements Runnable {
+
+        private final ISynchronousReader requestReader;
+        private final ISynchronousWriter responseWriter;
+
+        private EchoTask(final ISynchronousReader requestReader, final ISynchronousWriter responseWriter) {
+            this.requestReader = requestReader;
+            this.responseWriter = responseWriter;
+        }
+
+        @Override
+        public void run() {
+            try {
+                requestReader.open();
+                responseWriter.open();
+                while (true) {
+                    while (!requestReader.hasNext()) {
+                        continue;
+                    }
+                    final SynchronousResponse request = requestReader.readMessage();
+                    responseWriter.write(request.getType(), request.getSequence(), request.getMessage());
+                }
+            } catch (final EOFException e) {
+                //benchmark closed the request writer
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                try {
+                    responseWriter.close();
+                    requestReader.close();
+                } catch (final IOException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable;
+import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
+import de.invesdwin.util.collections.iterable.ICloseableIterator;
+import de.invesdwin.util.math.TimedDouble;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.batch.RangeBatch;
+import ezdb.serde.Serde;
+
+/**
+ * Point reads, point writes and full range scans on a prefilled ADelegateRangeTable.
+ */
+@NotThreadSafe
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RangeTableBenchmark {
+
+    private static final int FLUSH_INTERVAL = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL;
+
+    @Param({ "100000" })
+    private int values;
+
+    private ADelegateRangeTable<String, FDate, TimedDouble> table;
+    private List<TimedDouble> dataset;
+    private FDate[] lookupTimes;
+    private int lookupIndex;
+    private int putIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final String name = getClass().getSimpleName() + "_" + values;
+        table = newRangeTable(name, BenchmarkDatasets.newBaseDirectory(name));
+        dataset = BenchmarkDatasets.newTimedDoubles(values);
+        RangeBatch<String, FDate, TimedDouble> batch = table.newRangeBatch();
+        int i = 0;
+        for (final TimedDouble value : dataset) {
+            batch.put(BenchmarkDatasets.HASH_KEY, value.getTime(), value);
+            i++;
+            if (i % FLUSH_INTERVAL == 0) {
+                batch.flush();
+                batch.close();
+                batch = table.newRangeBatch();
+            }
+        }
+        batch.flush();
+        batch.close();
+        lookupTimes = BenchmarkDatasets.newRandomLookupTimes(values);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        table.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public TimedDouble get() {
+        final FDate time = lookupTimes[lookupIndex++ & (BenchmarkDatasets.LOOKUPS - 1)];
+        return table.get(BenchmarkDatasets.HASH_KEY, time);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public TimedDouble getLatestValue() {
+        final FDate time = lookupTimes[lookupIndex++ & (BenchmarkDatasets.LOOKUPS - 1)];
+        return table.getLatestValue(BenchmarkDatasets.HASH_KEY, time);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void put() {
+        //overwrites existing entries so that the table size stays constant
+        final TimedDouble value = dataset.get(putIndex++ % values);
+        table.put(BenchmarkDatasets.HASH_KEY, value.getTime(), value);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rangeValues(final Blackhole bh) {
+        int count = 0;
+        try (ICloseableIterator<TimedDouble> it = table.rangeValues(BenchmarkDatasets.HASH_KEY)) {
+            while (it.hasNext()) {
+                bh.consume(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rangeReverseValues(final Blackhole bh) {
+        int count = 0;
+        try (ICloseableIterator<TimedDouble> it = table.rangeReverseValues(BenchmarkDatasets.HASH_KEY)) {
+            while (it.hasNext()) {
+                bh.consume(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static ADelegateRangeTable<String, FDate, TimedDouble> newRangeTable(final String name,
+            final File baseDirectory) {
+        return new ADelegateRangeTable<String, FDate, TimedDouble>(name) {
+            @Override
+            protected File getBaseDirectory() {
+                return baseDirectory;
+            }
+
+            @Override
+            protected Serde<TimedDouble> newValueSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            protected Serde<FDate> newRangeKeySerde() {
+                return FDateSerde.GET;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,269 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.invesdwin.context.persistence.timeseries.serde.Base64DelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.BooleanSerde;
+import de.invesdwin.context.persistence.timeseries.serde.CompressingDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.DecimalSerde;
+import de.invesdwin.context.persistence.timeseries.serde.DoubleSerde;
+import de.invesdwin.context.persistence.timeseries.serde.ExtendedTypeDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.FixedLengthBufferingIteratorDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.FixedLengthListDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.IntegerSerde;
+import de.invesdwin.context.persistence.timeseries.serde.LocalFastSerializingSerde;
+import de.invesdwin.context.persistence.timeseries.serde.RemoteFastSerializingSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDecimalSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
+import de.invesdwin.context.persistence.timeseries.serde.VoidSerde;
+import de.invesdwin.util.collections.iterable.buffer.BufferingIterator;
+import de.invesdwin.util.math.TimedDouble;
+import de.invesdwin.util.math.decimal.Decimal;
+import de.invesdwin.util.math.decimal.TimedDecimal;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.serde.Serde;
+
+/**
+ * Encodes and decodes a representative value with each serde. Run with the gc profiler to see the allocation rate per
+ * operation.
+ */
+@NotThreadSafe
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerdeBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    public enum SerdeType {
+        BOOLEAN {
+            @Override
+            public Serde<?> newSerde() {
+                return BooleanSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return Boolean.TRUE;
+            }
+        },
+        INTEGER {
+            @Override
+            public Serde<?> newSerde() {
+                return IntegerSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return Integer.valueOf(123456);
+            }
+        },
+        DOUBLE {
+            @Override
+            public Serde<?> newSerde() {
+                return DoubleSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return Double.valueOf(123.456D);
+            }
+        },
+        DECIMAL {
+            @Override
+            public Serde<?> newSerde() {
+                return DecimalSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return new Decimal(123.456D);
+            }
+        },
+        FDATE {
+            @Override
+            public Serde<?> newSerde() {
+                return FDateSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return BenchmarkDatasets.getTime(123456);
+            }
+        },
+        VOID {
+            @Override
+            public Serde<?> newSerde() {
+                return VoidSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return null;
+            }
+        },
+        TIMED_DOUBLE {
+            @Override
+            public Serde<?> newSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return new TimedDouble(BenchmarkDatasets.getTime(123456), 123.456D);
+            }
+        },
+        TIMED_DECIMAL {
+            @Override
+            public Serde<?> newSerde() {
+                return TimedDecimalSerde.GET;
+            }
+
+            @Override
+            public Object newValue() {
+                return new TimedDecimal(BenchmarkDatasets.getTime(123456), 123.456D);
+            }
+        },
+        EXTENDED_TYPE_DELEGATE {
+            @Override
+            public Serde<?> newSerde() {
+                return new ExtendedTypeDelegateSerde<FDate>(FDate.class);
+            }
+
+            @Override
+            public Object newValue() {
+                return BenchmarkDatasets.getTime(123456);
+            }
+        },
+        LOCAL_FAST_SERIALIZING {
+            @Override
+            public Serde<?> newSerde() {
+                return LocalFastSerializingSerde.get();
+            }
+
+            @Override
+            public Object newValue() {
+                return new TimedDecimal(BenchmarkDatasets.getTime(123456), 123.456D);
+            }
+        },
+        REMOTE_FAST_SERIALIZING {
+            @Override
+            public Serde<?> newSerde() {
+                return new RemoteFastSerializingSerde<TimedDecimal>(false, TimedDecimal.class);
+            }
+
+            @Override
+            public Object newValue() {
+                return new TimedDecimal(BenchmarkDatasets.getTime(123456), 123.456D);
+            }
+        },
+        COMPRESSING_DELEGATE {
+            @Override
+            public Serde<?> newSerde() {
+                return new CompressingDelegateSerde<List<? extends TimedDouble>>(
+                        new FixedLengthListDelegateSerde<TimedDouble>(TimedDoubleSerde.GET,
+                                TimedDoubleSerde.FIXED_LENGTH));
+            }
+
+            @Override
+            public Object newValue() {
+                return BenchmarkDatasets.newTimedDoubles(LIST_SIZE);
+            }
+        },
+        BASE64_DELEGATE {
+            @Override
+            public Serde<?> newSerde() {
+                return new Base64DelegateSerde<TimedDouble>(TimedDoubleSerde.GET);
+            }
+
+            @Override
+            public Object newValue() {
+                return new TimedDouble(BenchmarkDatasets.getTime(123456), 123.456D);
+            }
+        },
+        FIXED_LENGTH_LIST_DELEGATE {
+            @Override
+            public Serde<?> newSerde() {
+                return new FixedLengthListDelegateSerde<TimedDouble>(TimedDoubleSerde.GET,
+                        TimedDoubleSerde.FIXED_LENGTH);
+            }
+
+            @Override
+            public Object newValue() {
+                return BenchmarkDatasets.newTimedDoubles(LIST_SIZE);
+            }
+        },
+        FIXED_LENGTH_BUFFERING_ITERATOR_DELEGATE {
+            @Override
+            public Serde<?> newSerde() {
+                return TimedDoubleSerde.GET_LIST;
+            }
+
+            @Override
+            public Object newValue() {
+                return BenchmarkDatasets.newTimedDoubles(LIST_SIZE);
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object prepareValue(final Object value) {
+                //the iterator gets consumed during serialization
+                return new BufferingIterator<TimedDouble>((List<TimedDouble>) value);
+            }
+        };
+
+        public abstract Serde<?> newSerde();
+
+        public abstract Object newValue();
+
+        public Object prepareValue(final Object value) {
+            return value;
+        }
+    }
+
+    @Param
+    private SerdeType serdeType;
+
+    private Serde<Object> serde;
+    private Object value;
+    private byte[] bytes;
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setup() {
+        serde = (Serde<Object>) serdeType.newSerde();
+        value = serdeType.newValue();
+        bytes = serde.toBytes(serdeType.prepareValue(value));
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return serde.toBytes(serdeType.prepareValue(value));
+    }
+
+    @Benchmark
+    public Object fromBytes() {
+        return serde.fromBytes(bytes);
+    }
+
+}
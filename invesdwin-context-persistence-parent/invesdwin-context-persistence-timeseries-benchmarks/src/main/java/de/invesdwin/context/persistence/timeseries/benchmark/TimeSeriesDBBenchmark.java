@@ -0,0 +1,165 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.IncompleteUpdateFoundException;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
+import de.invesdwin.util.collections.iterable.ICloseableIterable;
+import de.invesdwin.util.collections.iterable.ICloseableIterator;
+import de.invesdwin.util.math.TimedDouble;
+import de.invesdwin.util.math.decimal.scaled.Percent;
+import de.invesdwin.util.time.Instant;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.serde.Serde;
+
+/**
+ * Range scans and random latest value lookups against a prefilled ATimeSeriesDB.
+ */
+@NotThreadSafe
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TimeSeriesDBBenchmark {
+
+    @Param({ "100000", "1000000" })
+    private int values;
+
+    private ATimeSeriesDB<String, TimedDouble> table;
+    private FDate[] lookupTimes;
+    private int lookupIndex;
+
+    @Setup(Level.Trial)
+    public void setup() throws IncompleteUpdateFoundException {
+        final String name = getClass().getSimpleName() + "_" + values;
+        table = newTimeSeriesDB(name, BenchmarkDatasets.newBaseDirectory(name));
+        final ATimeSeriesUpdater<String, TimedDouble> updater = newUpdater(table, values);
+        if (!updater.update()) {
+            throw new IllegalStateException("update did not write anything");
+        }
+        lookupTimes = BenchmarkDatasets.newRandomLookupTimes(values);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        table.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rangeValues(final Blackhole bh) {
+        return consume(bh, table.rangeValues(BenchmarkDatasets.HASH_KEY, null, null));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int rangeReverseValues(final Blackhole bh) {
+        return consume(bh, table.rangeReverseValues(BenchmarkDatasets.HASH_KEY, null, null));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public TimedDouble getLatestValue() {
+        final FDate time = lookupTimes[lookupIndex++ & (BenchmarkDatasets.LOOKUPS - 1)];
+        return table.getLatestValue(BenchmarkDatasets.HASH_KEY, time);
+    }
+
+    private static int consume(final Blackhole bh, final ICloseableIterable<? extends TimedDouble> iterable) {
+        int count = 0;
+        try (ICloseableIterator<? extends TimedDouble> it = iterable.iterator()) {
+            while (it.hasNext()) {
+                bh.consume(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static ATimeSeriesDB<String, TimedDouble> newTimeSeriesDB(final String name, final File baseDirectory) {
+        return new ATimeSeriesDB<String, TimedDouble>(name) {
+
+            @Override
+            protected File getBaseDirectory() {
+                return baseDirectory;
+            }
+
+            @Override
+            protected Serde<TimedDouble> newValueSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            protected Integer newValueFixedLength() {
+                return TimedDoubleSerde.FIXED_LENGTH;
+            }
+
+            @Override
+            protected String innerHashKeyToString(final String key) {
+                return key;
+            }
+
+            @Override
+            protected FDate extractEndTime(final TimedDouble value) {
+                return value.getTime();
+            }
+        };
+    }
+
+    static ATimeSeriesUpdater<String, TimedDouble> newUpdater(final ATimeSeriesDB<String, TimedDouble> table,
+            final int values) {
+        return new ATimeSeriesUpdater<String, TimedDouble>(BenchmarkDatasets.HASH_KEY, table) {
+
+            @Override
+            protected ICloseableIterable<? extends TimedDouble> getSource(final FDate updateFrom) {
+                return BenchmarkDatasets.newTimedDoublesIterable(values);
+            }
+
+            @Override
+            protected void onUpdateFinished(final Instant updateStart) {
+            }
+
+            @Override
+            protected void onUpdateStart() {
+            }
+
+            @Override
+            protected FDate extractEndTime(final TimedDouble element) {
+                return element.getTime();
+            }
+
+            @Override
+            protected void onFlush(final int flushIndex, final Instant flushStart,
+                    final ATimeSeriesUpdater<String, TimedDouble>.UpdateProgress updateProgress) {
+            }
+
+            @Override
+            public Percent getProgress() {
+                return null;
+            }
+        };
+    }
+
+}
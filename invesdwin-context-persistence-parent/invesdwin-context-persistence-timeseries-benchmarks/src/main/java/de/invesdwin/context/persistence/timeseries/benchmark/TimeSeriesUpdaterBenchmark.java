@@ -0,0 +1,59 @@
+package de.invesdwin.context.persistence.timeseries.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.IncompleteUpdateFoundException;
+import de.invesdwin.util.math.TimedDouble;
+
+/**
+ * Each invocation ingests the whole dataset into an empty ATimeSeriesDB, thus single shot time is measured.
+ */
+@NotThreadSafe
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimeSeriesUpdaterBenchmark {
+
+    @Param({ "100000", "1000000" })
+    private int values;
+
+    private ATimeSeriesDB<String, TimedDouble> table;
+    private int invocation;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        final String name = getClass().getSimpleName() + "_" + values + "_" + invocation++;
+        table = TimeSeriesDBBenchmark.newTimeSeriesDB(name, BenchmarkDatasets.newBaseDirectory(name));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        table.close();
+    }
+
+    @Benchmark
+    public boolean update() throws IncompleteUpdateFoundException {
+        return TimeSeriesDBBenchmark.newUpdater(table, values).update();
+    }
+
+}
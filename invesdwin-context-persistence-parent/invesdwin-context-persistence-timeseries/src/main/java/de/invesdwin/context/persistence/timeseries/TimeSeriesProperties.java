@@ -0,0 +1,62 @@
+package de.invesdwin.context.persistence.timeseries;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.invesdwin.context.system.properties.SystemProperties;
+
+@Immutable
+public final class TimeSeriesProperties {
+
+    /**
+     * Total budget of the decompressed chunk cache that is shared by all time series in this process.
+     */
+    public static final long CHUNK_CACHE_MAXIMUM_BYTES;
+    public static final boolean CHUNK_CACHE_OFF_HEAP;
+    /**
+     * How many segments ahead of the current one get initialized in the background during range queries.
+     */
+    public static final int SEGMENT_PREFETCH_COUNT;
+    /**
+     * How long loaded lookup values are collected before they get written to the lookup tables in one batch.
+     */
+    public static final long LOOKUP_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS;
+    /**
+     * Lookup values that took at least this long to load get persisted on the first load, cheaper ones only on the
+     * second.
+     */
+    public static final long LOOKUP_WRITE_BEHIND_EXPENSIVE_LOAD_NANOS;
+    /**
+     * Pending lookup values per table after which the loading thread writes them itself.
+     */
+    public static final int LOOKUP_WRITE_BEHIND_MAX_PENDING;
+    /**
+     * Total budget for the lookup caches and snapshots of the per key storage caches of all time series in this
+     * process. Together with the chunk cache this bounds the heap that is used by the time series layer.
+     */
+    public static final long STORAGE_CACHE_MAXIMUM_BYTES;
+    /**
+     * Storage caches that were accessed more recently than this are not evicted even when the budget is exceeded.
+     */
+    public static final long STORAGE_CACHE_MINIMUM_IDLE_NANOS;
+    private static final SystemProperties SYSTEM_PROPERTIES;
+
+    static {
+        SYSTEM_PROPERTIES = new SystemProperties(TimeSeriesProperties.class);
+        CHUNK_CACHE_MAXIMUM_BYTES = SYSTEM_PROPERTIES.getLong("CHUNK_CACHE_MAXIMUM_BYTES");
+        CHUNK_CACHE_OFF_HEAP = SYSTEM_PROPERTIES.getBoolean("CHUNK_CACHE_OFF_HEAP");
+        SEGMENT_PREFETCH_COUNT = SYSTEM_PROPERTIES.getInteger("SEGMENT_PREFETCH_COUNT");
+        LOOKUP_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = SYSTEM_PROPERTIES
+                .getLong("LOOKUP_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS");
+        LOOKUP_WRITE_BEHIND_EXPENSIVE_LOAD_NANOS = TimeUnit.MILLISECONDS
+                .toNanos(SYSTEM_PROPERTIES.getLong("LOOKUP_WRITE_BEHIND_EXPENSIVE_LOAD_MILLIS"));
+        LOOKUP_WRITE_BEHIND_MAX_PENDING = SYSTEM_PROPERTIES.getInteger("LOOKUP_WRITE_BEHIND_MAX_PENDING");
+        STORAGE_CACHE_MAXIMUM_BYTES = SYSTEM_PROPERTIES.getLong("STORAGE_CACHE_MAXIMUM_BYTES");
+        STORAGE_CACHE_MINIMUM_IDLE_NANOS = TimeUnit.MILLISECONDS
+                .toNanos(SYSTEM_PROPERTIES.getLong("STORAGE_CACHE_MINIMUM_IDLE_MILLIS"));
+    }
+
+    private TimeSeriesProperties() {}
+
+}
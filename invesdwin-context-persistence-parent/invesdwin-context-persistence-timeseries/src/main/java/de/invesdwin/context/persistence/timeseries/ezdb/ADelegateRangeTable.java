@@ -3,10 +3,15 @@ package de.invesdwin.context.persistence.timeseries.ezdb;
 import java.io.File;
 import java.io.IOException;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.iq80.leveldb.CompressionType;
@@ -19,7 +24,9 @@ import de.invesdwin.context.log.error.Err;
 import de.invesdwin.context.persistence.timeseries.ezdb.db.IRangeTableDb;
 import de.invesdwin.context.persistence.timeseries.ezdb.db.WriteThroughRangeTableDb;
 import de.invesdwin.context.persistence.timeseries.serde.ExtendedTypeDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.ILexicographicalSerde;
 import de.invesdwin.util.bean.tuple.Pair;
+import de.invesdwin.util.collections.factory.ILockCollectionFactory;
 import de.invesdwin.util.collections.iterable.ACloseableIterator;
 import de.invesdwin.util.collections.iterable.ICloseableIterator;
 import de.invesdwin.util.concurrent.future.Callables;
@@ -53,10 +60,14 @@ import ezdb.treemap.object.EzObjectTreeMapDb;
 public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V> {
 
     private final Serde<H> hashKeySerde;
-    private final Serde<R> rangeKeySerde;
+    private final Serde<R> preferredRangeKeySerde;
+    /**
+     * tables that were created with a legacy encoding keep using it until they get deleted
+     */
+    private volatile Serde<R> rangeKeySerde;
     private final Serde<V> valueSerde;
     private final Comparator<byte[]> hashKeyComparatorDisk;
-    private final Comparator<byte[]> rangeKeyComparatorDisk;
+    private volatile Comparator<byte[]> rangeKeyComparatorDisk;
     private final Comparator<Object> hashKeyComparatorMemory;
     private final Comparator<Object> rangeKeyComparatorMemory;
 
@@ -66,7 +77,10 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
     private final String name;
     private final File directory;
     private final File timestampFile;
+    private final File lexicographicalRangeKeysFile;
     private final TableFinalizer<H, R, V> tableFinalizer;
+    private final Map<Pair<H, R>, InFlightLoad<V>> inFlightLoads = ILockCollectionFactory.getInstance(true)
+            .newConcurrentMap();
     /**
      * used against too often accessing the timestampFile
      */
@@ -76,12 +90,13 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         this.name = name;
         this.directory = getDirectory();
         this.timestampFile = new File(new File(directory, getName()), "createdTimestamp");
+        this.lexicographicalRangeKeysFile = new File(new File(directory, getName()), "lexicographicalRangeKeys");
 
         this.hashKeySerde = newHashKeySerde();
-        this.rangeKeySerde = newRangeKeySerde();
+        this.preferredRangeKeySerde = newRangeKeySerde();
         this.valueSerde = newValueSerde();
         this.hashKeyComparatorDisk = newHashKeyComparatorDisk();
-        this.rangeKeyComparatorDisk = newRangeKeyComparatorDisk();
+        selectRangeKeyEncoding();
         this.hashKeyComparatorMemory = newHashKeyComparatorMemory();
         this.rangeKeyComparatorMemory = newRangeKeyComparatorMemory();
         this.tableLock = Locks
@@ -111,7 +126,16 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
     }
 
     protected Comparator<byte[]> newRangeKeyComparatorDisk() {
-        return new SerdeComparator<R>(rangeKeySerde);
+        if (isLexicographicalRangeKeys()) {
+            //bytes are in the same order as the objects, thus no need to deserialize during compare
+            return new LexicographicalComparator();
+        } else {
+            return new SerdeComparator<R>(rangeKeySerde);
+        }
+    }
+
+    public boolean isLexicographicalRangeKeys() {
+        return rangeKeySerde instanceof ILexicographicalSerde;
     }
 
     protected Comparator<Object> newHashKeyComparatorMemory() {
@@ -128,8 +152,20 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         return new ExtendedTypeDelegateSerde<V>(type);
     }
 
-    @SuppressWarnings("unchecked")
     protected Serde<R> newRangeKeySerde() {
+        return newDefaultRangeKeySerde();
+    }
+
+    /**
+     * Used instead of a lexicographical range key serde for tables that were created before that serde was introduced.
+     * Needs to be overridden when the range keys were not written with the default serde back then.
+     */
+    protected Serde<R> newLegacyRangeKeySerde() {
+        return newDefaultRangeKeySerde();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Serde<R> newDefaultRangeKeySerde() {
         final Class<R> type = (Class<R>) Reflections.resolveTypeArguments(getClass(), ADelegateRangeTable.class)[1];
         return new ExtendedTypeDelegateSerde<R>(type);
     }
@@ -306,10 +342,16 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         tableLock.writeLock().lock();
         try {
             if (tableFinalizer.table == null) {
+                //a deleted table can switch to the preferred encoding
+                selectRangeKeyEncoding();
+                maybeDeleteTableWithDifferentRangeKeyEncoding();
                 if (getTableCreationTime() == null) {
                     if (getPersistenceMode().isDisk()) {
                         try {
                             Files.touch(timestampFile);
+                            if (isLexicographicalRangeKeys()) {
+                                Files.touch(lexicographicalRangeKeysFile);
+                            }
                         } catch (final IOException e) {
                             throw Err.process(e);
                         }
@@ -341,6 +383,37 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         }
     }
 
+    /**
+     * The comparator is not persisted by the database, thus the range key encoding is recorded with a marker file. Disk
+     * tables that were created without the marker keep their legacy encoding (and their data), only newly created
+     * tables use the lexicographical encoding.
+     */
+    private void selectRangeKeyEncoding() {
+        final boolean existingTable = getPersistenceMode().isDisk() && timestampFile.exists();
+        if (existingTable && preferredRangeKeySerde instanceof ILexicographicalSerde
+                && !lexicographicalRangeKeysFile.exists()) {
+            rangeKeySerde = newLegacyRangeKeySerde();
+        } else {
+            rangeKeySerde = preferredRangeKeySerde;
+        }
+        rangeKeyComparatorDisk = newRangeKeyComparatorDisk();
+    }
+
+    /**
+     * Data that was sorted lexicographically would be silently misordered with a serde that does not support that
+     * anymore. Reset the table in that case.
+     */
+    private void maybeDeleteTableWithDifferentRangeKeyEncoding() {
+        if (!getPersistenceMode().isDisk() || getTableCreationTime() == null) {
+            return;
+        }
+        if (!isLexicographicalRangeKeys() && lexicographicalRangeKeysFile.exists()) {
+            Err.process(new RuntimeException("Table data for [" + getDirectory() + "/" + getName()
+                    + "] uses a lexicographical range key encoding that is not supported anymore. Resetting data."));
+            innerDeleteTable();
+        }
+    }
+
     public void deleteTable() {
         tableLock.writeLock().lock();
         try {
@@ -359,6 +432,7 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         db.deleteTable(name);
         if (getPersistenceMode().isDisk()) {
             Files.deleteQuietly(timestampFile);
+            Files.deleteQuietly(lexicographicalRangeKeysFile);
             final File tableDirectory = new File(directory, getName());
             final String[] list = tableDirectory.list();
             if (list == null || list.length == 0) {
@@ -469,54 +543,102 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
     }
 
     public V getOrLoad(final H hashKey, final Function<H, V> loadable) {
+        return getOrLoad(hashKey, () -> loadable.apply(hashKey));
+    }
+
+    public V getOrLoad(final H hashKey, final R rangeKey, final Function<Pair<H, R>, V> loadable) {
+        final Pair<H, R> key = Pair.of(hashKey, rangeKey);
+        return getOrLoad(hashKey, rangeKey, () -> loadable.apply(key));
+    }
+
+    public V getOrLoad(final H hashKey, final Callable<V> loadable) {
         final V cachedValue = get(hashKey);
         if (cachedValue == null) {
-            //don't hold read lock while loading value
-            final V loadedValue = loadable.apply(hashKey);
-            //write lock is only for the actual table variable, not the table values, thus read lock is fine here
-            put(hashKey, loadedValue);
-            return loadedValue;
+            return loadSingleFlight(hashKey, null, loadable);
         } else {
             return cachedValue;
         }
     }
 
-    public V getOrLoad(final H hashKey, final R rangeKey, final Function<Pair<H, R>, V> loadable) {
+    public V getOrLoad(final H hashKey, final R rangeKey, final Callable<V> loadable) {
         final V cachedValue = get(hashKey, rangeKey);
         if (cachedValue == null) {
-            //don't hold read lock while loading value
-            final V loadedValue = loadable.apply(Pair.of(hashKey, rangeKey));
-            //write lock is only for the actual table variable, not the table values, thus read lock is fine here
-            put(hashKey, rangeKey, loadedValue);
-            return loadedValue;
+            return loadSingleFlight(hashKey, rangeKey, loadable);
         } else {
             return cachedValue;
         }
     }
 
-    public V getOrLoad(final H hashKey, final Callable<V> loadable) {
-        final V cachedValue = get(hashKey);
-        if (cachedValue == null) {
+    private V loadSingleFlight(final H hashKey, final R rangeKey, final Callable<V> loadable) {
+        return loadSingleFlight(hashKey, rangeKey, () -> getNullableRangeKey(hashKey, rangeKey), () -> {
             //don't hold read lock while loading value
-            final V loadedValue = Callables.call(loadable);
+            final V value = Callables.call(loadable);
             //write lock is only for the actual table variable, not the table values, thus read lock is fine here
-            put(hashKey, loadedValue);
-            return loadedValue;
-        } else {
-            return cachedValue;
+            if (rangeKey == null) {
+                put(hashKey, value);
+            } else {
+                put(hashKey, rangeKey, value);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Concurrent callers that miss the same key wait for the first caller to finish loading instead of running the
+     * loader themselves. The loader is responsible for storing the value, which allows wrappers to defer the write.
+     * The lookup is repeated after registering the load, since another caller might have finished in the mean time.
+     *
+     * A loader must not load the same key again, since it would wait for itself. This is detected and fails with an
+     * IllegalStateException instead of deadlocking.
+     */
+    public V loadSingleFlight(final H hashKey, final R rangeKey, final Supplier<V> lookup,
+            final Callable<V> loadAndStore) {
+        final Pair<H, R> key = Pair.of(hashKey, rangeKey);
+        final InFlightLoad<V> load = new InFlightLoad<V>();
+        final InFlightLoad<V> existingLoad = inFlightLoads.putIfAbsent(key, load);
+        if (existingLoad != null) {
+            return awaitLoad(key, existingLoad);
+        }
+        try {
+            //another caller might have finished loading between our get and registering the future
+            V value = lookup.get();
+            if (value == null) {
+                value = Callables.call(loadAndStore);
+            }
+            load.future.complete(value);
+            return value;
+        } catch (final Throwable t) {
+            load.future.completeExceptionally(t);
+            throw Throwables.propagate(t);
+        } finally {
+            inFlightLoads.remove(key, load);
         }
     }
 
-    public V getOrLoad(final H hashKey, final R rangeKey, final Callable<V> loadable) {
-        final V cachedValue = get(hashKey, rangeKey);
-        if (cachedValue == null) {
-            //don't hold read lock while loading value
-            final V loadedValue = Callables.call(loadable);
-            //write lock is only for the actual table variable, not the table values, thus read lock is fine here
-            put(hashKey, rangeKey, loadedValue);
-            return loadedValue;
+    /**
+     * Visible for tests.
+     */
+    int getInFlightLoadsCount() {
+        return inFlightLoads.size();
+    }
+
+    private V getNullableRangeKey(final H hashKey, final R rangeKey) {
+        if (rangeKey == null) {
+            return get(hashKey);
         } else {
-            return cachedValue;
+            return get(hashKey, rangeKey);
+        }
+    }
+
+    private V awaitLoad(final Pair<H, R> key, final InFlightLoad<V> load) {
+        if (load.owner == Thread.currentThread()) {
+            throw new IllegalStateException("Loader of [" + getName() + "] for key [" + key
+                    + "] called getOrLoad for the same key again, this would wait for itself");
+        }
+        try {
+            return load.future.join();
+        } catch (final CompletionException e) {
+            throw Throwables.propagate(e.getCause());
         }
     }
 
@@ -875,6 +997,12 @@ public abstract class ADelegateRangeTable<H, R, V> implements RangeTable<H, R, V
         }
     }
 
+    @Immutable
+    private static final class InFlightLoad<_V> {
+        private final Thread owner = Thread.currentThread();
+        private final CompletableFuture<_V> future = new CompletableFuture<_V>();
+    }
+
     private static final class TableFinalizer<_H, _R, _V> extends AFinalizer {
         private volatile RangeTable<_H, _R, _V> table;
 
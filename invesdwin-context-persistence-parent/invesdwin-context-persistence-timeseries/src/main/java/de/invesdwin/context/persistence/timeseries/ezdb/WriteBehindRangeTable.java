@@ -0,0 +1,248 @@
+package de.invesdwin.context.persistence.timeseries.ezdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
+import de.invesdwin.util.bean.tuple.Pair;
+import de.invesdwin.util.collections.factory.ILockCollectionFactory;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import ezdb.batch.RangeBatch;
+
+/**
+ * Takes the writes of getOrLoad(...) off the read path of a lookup table. Loaded values are buffered and written in
+ * batches by a background thread. Only values that were loaded at least twice or that were expensive to load get
+ * persisted at all, so that random one-off lookups do not fill the table.
+ *
+ * Pending values are visible to getOrLoad(...) right away. They need to be dropped (or deleted together with the
+ * table range) when the underlying data changes, which is done while holding the flush lock so that a running flush
+ * can not write them afterwards.
+ */
+@ThreadSafe
+public class WriteBehindRangeTable<H, R, V> {
+
+    private static final WrappedExecutorService FLUSH_EXECUTOR = Executors
+            .newFixedThreadPool(WriteBehindRangeTable.class.getSimpleName() + "_flush", 1);
+    private static final Map<WriteBehindRangeTable<?, ?, ?>, Boolean> DIRTY_TABLES = ILockCollectionFactory
+            .getInstance(true)
+            .newConcurrentMap();
+    private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean();
+    /**
+     * Keys that were loaded only once are forgotten when this many accumulated, so that the admission bookkeeping
+     * itself stays bounded.
+     */
+    private static final int MAX_LOADED_ONCE = 100_000;
+
+    private final ADelegateRangeTable<H, R, V> table;
+    /**
+     * Indexed by the hash key so that dropping the values of one hash key does not need to look at the others. The
+     * values of a hash key are only modified via compute(...) of the outer map, thus a dropped map can not be modified
+     * afterwards.
+     */
+    private final Map<H, Map<R, V>> pending = ILockCollectionFactory.getInstance(true).newConcurrentMap();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Map<Pair<H, R>, Boolean> loadedOnce = ILockCollectionFactory.getInstance(true).newConcurrentMap();
+    private final Object flushLock = new Object();
+    @GuardedBy("flushLock")
+    private boolean closed;
+
+    public WriteBehindRangeTable(final ADelegateRangeTable<H, R, V> table) {
+        this.table = table;
+    }
+
+    public ADelegateRangeTable<H, R, V> getTable() {
+        return table;
+    }
+
+    /**
+     * Misses go through the single flight of the table, so concurrent callers for the same key wait for one load
+     * instead of running the loader each.
+     */
+    public V getOrLoad(final H hashKey, final R rangeKey, final Function<Pair<H, R>, V> loadable) {
+        final Pair<H, R> key = Pair.of(hashKey, rangeKey);
+        final V cachedValue = get(key);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        return table.loadSingleFlight(hashKey, rangeKey, () -> get(key), () -> {
+            final long startNanos = System.nanoTime();
+            final V loadedValue = loadable.apply(key);
+            if (loadedValue != null && shouldPersist(key, System.nanoTime() - startNanos)) {
+                enqueue(key, loadedValue);
+            }
+            return loadedValue;
+        });
+    }
+
+    private V get(final Pair<H, R> key) {
+        final Map<R, V> hashKeyPending = pending.get(key.getFirst());
+        if (hashKeyPending != null) {
+            final V pendingValue = hashKeyPending.get(key.getSecond());
+            if (pendingValue != null) {
+                return pendingValue;
+            }
+        }
+        return table.get(key.getFirst(), key.getSecond());
+    }
+
+    private boolean shouldPersist(final Pair<H, R> key, final long loadNanos) {
+        if (loadNanos >= TimeSeriesProperties.LOOKUP_WRITE_BEHIND_EXPENSIVE_LOAD_NANOS) {
+            return true;
+        }
+        if (loadedOnce.remove(key) != null) {
+            //computed the second time now
+            return true;
+        }
+        if (loadedOnce.size() >= MAX_LOADED_ONCE) {
+            loadedOnce.clear();
+        }
+        loadedOnce.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    private void enqueue(final Pair<H, R> key, final V value) {
+        pending.compute(key.getFirst(), (hashKey, hashKeyPending) -> {
+            final Map<R, V> map;
+            if (hashKeyPending == null) {
+                map = ILockCollectionFactory.getInstance(true).newConcurrentMap();
+            } else {
+                map = hashKeyPending;
+            }
+            if (map.put(key.getSecond(), value) == null) {
+                pendingCount.incrementAndGet();
+            }
+            return map;
+        });
+        if (pendingCount.get() >= TimeSeriesProperties.LOOKUP_WRITE_BEHIND_MAX_PENDING) {
+            //apply back pressure instead of growing without bounds
+            flush();
+        } else {
+            DIRTY_TABLES.put(this, Boolean.TRUE);
+            if (FLUSH_SCHEDULED.compareAndSet(false, true)) {
+                FLUSH_EXECUTOR.execute(new FlushDirtyTablesRunnable());
+            }
+        }
+    }
+
+    /**
+     * Writes all pending values in one batch.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (closed || pending.isEmpty()) {
+                return;
+            }
+            final List<Pair<H, Entry<R, V>>> entries = new ArrayList<Pair<H, Entry<R, V>>>(pendingCount.get());
+            for (final Entry<H, Map<R, V>> hashKeyPending : pending.entrySet()) {
+                for (final Entry<R, V> entry : hashKeyPending.getValue().entrySet()) {
+                    entries.add(Pair.of(hashKeyPending.getKey(), entry));
+                }
+            }
+            try (RangeBatch<H, R, V> batch = table.newRangeBatch()) {
+                for (int i = 0; i < entries.size(); i++) {
+                    final Pair<H, Entry<R, V>> entry = entries.get(i);
+                    batch.put(entry.getFirst(), entry.getSecond().getKey(), entry.getSecond().getValue());
+                }
+                batch.flush();
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            //only remove after the batch got written, so that the values stay visible in the mean time
+            for (int i = 0; i < entries.size(); i++) {
+                final Pair<H, Entry<R, V>> entry = entries.get(i);
+                removePending(entry.getFirst(), entry.getSecond().getKey(), entry.getSecond().getValue());
+            }
+        }
+    }
+
+    private void removePending(final H hashKey, final R rangeKey, final V value) {
+        pending.computeIfPresent(hashKey, (key, hashKeyPending) -> {
+            if (hashKeyPending.remove(rangeKey, value)) {
+                pendingCount.decrementAndGet();
+            }
+            if (hashKeyPending.isEmpty()) {
+                return null;
+            } else {
+                return hashKeyPending;
+            }
+        });
+    }
+
+    /**
+     * Drops all values of the hash key that were not written yet.
+     */
+    public void dropPending(final H hashKey) {
+        synchronized (flushLock) {
+            final Map<R, V> hashKeyPending = pending.remove(hashKey);
+            if (hashKeyPending != null) {
+                pendingCount.addAndGet(-hashKeyPending.size());
+            }
+        }
+    }
+
+    public void deleteRange(final H hashKey) {
+        synchronized (flushLock) {
+            dropPending(hashKey);
+            table.deleteRange(hashKey);
+        }
+    }
+
+    /**
+     * Drops all pending values of the hash key, not only the ones after fromRangeKey, since those are only cached
+     * lookups anyway.
+     */
+    public void deleteRange(final H hashKey, final R fromRangeKey) {
+        synchronized (flushLock) {
+            dropPending(hashKey);
+            table.deleteRange(hashKey, fromRangeKey);
+        }
+    }
+
+    public void close() {
+        synchronized (flushLock) {
+            flush();
+            closed = true;
+            pending.clear();
+            pendingCount.set(0);
+            table.close();
+        }
+        DIRTY_TABLES.remove(this);
+    }
+
+    private static final class FlushDirtyTablesRunnable implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                //collect more values before writing them in one batch
+                Thread.sleep(TimeSeriesProperties.LOOKUP_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                FLUSH_SCHEDULED.set(false);
+            }
+            for (final WriteBehindRangeTable<?, ?, ?> table : new ArrayList<>(DIRTY_TABLES.keySet())) {
+                DIRTY_TABLES.remove(table);
+                try {
+                    table.flush();
+                } catch (final Throwable t) {
+                    Err.process(new RuntimeException("Write behind flush failed for table ["
+                            + table.getTable().getName() + "]", t));
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package de.invesdwin.context.persistence.timeseries.ipc;
+
+import java.io.IOException;
+
+/**
+ * Writers that can collect multiple messages before sending them in one go. The batch is sent by write(...) when the
+ * configured batch size is reached or when the flush interval has elapsed. There is no timer involved, the interval
+ * is only checked when the next message is written. Thus flush() needs to be called after the last message of a
+ * burst, otherwise the messages stay in the buffer until the next write.
+ */
+public interface ISynchronousBatchWriter extends ISynchronousWriter {
+
+    /**
+     * Sends the messages that were collected so far. Needs to be called after the last message of a burst.
+     */
+    void flush() throws IOException;
+
+}
@@ -0,0 +1,14 @@
+package de.invesdwin.context.persistence.timeseries.ipc;
+
+import java.io.IOException;
+
+/**
+ * Alternative to {@link ISynchronousReader#readMessage()} that does not allocate a new response per message. The
+ * returned response and its message buffer are reused by the reader and are only valid until the next read, so
+ * consumers need to copy the data if they want to keep it.
+ */
+public interface ISynchronousBufferReader extends ISynchronousReader {
+
+    SynchronousBufferResponse readMessageBuffer() throws IOException;
+
+}
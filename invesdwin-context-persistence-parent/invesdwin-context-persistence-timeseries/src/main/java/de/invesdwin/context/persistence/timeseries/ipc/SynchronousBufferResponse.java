@@ -0,0 +1,55 @@
+package de.invesdwin.context.persistence.timeseries.ipc;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Mutable response that is reused by an {@link ISynchronousBufferReader} for each message.
+ */
+@NotThreadSafe
+public class SynchronousBufferResponse {
+
+    private int type;
+    private int sequence;
+    private ByteBuffer message;
+
+    public void set(final int type, final int sequence, final ByteBuffer message) {
+        this.type = type;
+        this.sequence = sequence;
+        this.message = message;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * The message is located between position and limit of the buffer.
+     */
+    public ByteBuffer getMessage() {
+        return message;
+    }
+
+    public int getMessageSize() {
+        return message.remaining();
+    }
+
+    public byte[] getMessageBytes() {
+        final byte[] bytes = new byte[message.remaining()];
+        message.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Copies the message so that it stays valid after the next read.
+     */
+    public SynchronousResponse toResponse() {
+        return new SynchronousResponse(type, sequence, getMessageBytes());
+    }
+
+}
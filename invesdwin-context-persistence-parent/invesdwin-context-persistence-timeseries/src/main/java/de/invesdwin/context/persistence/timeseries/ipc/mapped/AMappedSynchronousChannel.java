@@ -31,7 +31,7 @@ public abstract class AMappedSynchronousChannel implements ISynchronousChannel {
 
     protected MemoryMappedFile mem;
     protected final File file;
-    private final int maxMessageSize;
+    protected final int maxMessageSize;
 
     public AMappedSynchronousChannel(final File file, final int maxMessageSize) {
         this.file = file;
@@ -107,6 +107,15 @@ public abstract class AMappedSynchronousChannel implements ISynchronousChannel {
         return data;
     }
 
+    /**
+     * Copies the message into the given buffer without allocating a new array and returns the size of the message.
+     */
+    protected int getMessage(final byte[] buffer) {
+        final int size = getSize();
+        mem.getBytes(MESSAGE_POS, buffer, 0, size);
+        return size;
+    }
+
     protected void setMessage(final byte[] data) {
         final int size = data.length;
         setSize(size);
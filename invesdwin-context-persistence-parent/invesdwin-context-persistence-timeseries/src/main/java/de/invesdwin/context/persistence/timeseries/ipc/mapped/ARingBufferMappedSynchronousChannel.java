@@ -0,0 +1,137 @@
+package de.invesdwin.context.persistence.timeseries.ipc.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousChannel;
+
+/**
+ * Single producer single consumer ring buffer inside a memory mapped file. Other than with the
+ * MappedSynchronousWriter/Reader, multiple messages can be in flight, so the writer can write bursts of messages
+ * without waiting for the reader to consume each one individually.
+ *
+ * The head (read position) and the tail (write position) are monotonically increasing byte sequences that are stored on
+ * separate cache lines. Each record consists of a size, type and sequence header followed by the variable length
+ * message. When a record does not fit into the space until the end of the buffer, a padding marker is written and the
+ * record starts at the beginning of the buffer instead.
+ */
+@NotThreadSafe
+public abstract class ARingBufferMappedSynchronousChannel implements ISynchronousChannel {
+
+    public static final int DEFAULT_SLOTS = 1024;
+
+    private static final int CACHE_LINE_SIZE = 64;
+
+    public static final long HEAD_POS = 0;
+    public static final long TAIL_POS = HEAD_POS + CACHE_LINE_SIZE;
+    public static final long CLOSED_POS = TAIL_POS + CACHE_LINE_SIZE;
+    public static final long DATA_POS = CLOSED_POS + CACHE_LINE_SIZE;
+
+    public static final int CLOSED_INITIAL_VALUE = 0;
+    public static final int CLOSED_VALUE = 1;
+
+    public static final int SIZE_OFFSET = 0;
+    public static final int TYPE_OFFSET = SIZE_OFFSET + Integer.BYTES;
+    public static final int SEQUENCE_OFFSET = TYPE_OFFSET + Integer.BYTES;
+    public static final int MESSAGE_OFFSET = SEQUENCE_OFFSET + Integer.BYTES;
+    /**
+     * Records are aligned so that the size header never gets split at the end of the buffer.
+     */
+    public static final int RECORD_ALIGNMENT = Long.BYTES;
+    /**
+     * Written as the size when the remaining space until the end of the buffer is skipped.
+     */
+    public static final int PADDING_SIZE = -1;
+
+    protected MemoryMappedFile mem;
+    protected final File file;
+    protected final int maxMessageSize;
+    protected final int capacity;
+    protected final int mask;
+
+    public ARingBufferMappedSynchronousChannel(final File file, final int maxMessageSize, final int slots) {
+        this.file = file;
+        if (maxMessageSize <= 0) {
+            throw new IllegalArgumentException("maxMessageSize needs to be positive");
+        }
+        if (slots <= 0) {
+            throw new IllegalArgumentException("slots needs to be positive");
+        }
+        this.maxMessageSize = maxMessageSize;
+        this.capacity = nextPowerOfTwo((long) getRecordSize(maxMessageSize) * slots);
+        this.mask = capacity - 1;
+    }
+
+    private static int nextPowerOfTwo(final long value) {
+        if (value > 1 << 30) {
+            throw new IllegalArgumentException("ring buffer capacity [" + value + "] is too large");
+        }
+        int capacity = 1;
+        while (capacity < value) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    protected static int getRecordSize(final int messageSize) {
+        final int size = MESSAGE_OFFSET + messageSize;
+        return (size + RECORD_ALIGNMENT - 1) & ~(RECORD_ALIGNMENT - 1);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void open() throws IOException {
+        final long fileSize = DATA_POS + capacity;
+        try {
+            this.mem = new MemoryMappedFile(file.getAbsolutePath(), fileSize);
+        } catch (final Exception e) {
+            throw new IOException("Unable to open file: " + file, e);
+        }
+    }
+
+    protected long getHead() {
+        return mem.getLongVolatile(HEAD_POS);
+    }
+
+    protected void setHead(final long val) {
+        mem.putOrderedLong(HEAD_POS, val);
+    }
+
+    protected long getTail() {
+        return mem.getLongVolatile(TAIL_POS);
+    }
+
+    protected void setTail(final long val) {
+        mem.putOrderedLong(TAIL_POS, val);
+    }
+
+    protected boolean isClosed() {
+        return mem.getIntVolatile(CLOSED_POS) == CLOSED_VALUE;
+    }
+
+    protected void setClosed(final int val) {
+        mem.putIntVolatile(CLOSED_POS, val);
+    }
+
+    protected long getDataPos(final long sequence) {
+        return DATA_POS + (sequence & mask);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mem != null) {
+            try {
+                mem.unmap();
+                mem = null;
+            } catch (final Exception e) {
+                throw new IOException("Unable to close the file: " + file, e);
+            }
+        }
+    }
+
+}
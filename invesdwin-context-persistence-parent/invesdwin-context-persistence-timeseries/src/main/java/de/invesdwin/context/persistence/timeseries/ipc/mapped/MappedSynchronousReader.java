@@ -3,10 +3,12 @@ package de.invesdwin.context.persistence.timeseries.ipc.mapped;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
 
 /**
@@ -21,11 +23,16 @@ import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
  *
  */
 @NotThreadSafe
-public class MappedSynchronousReader extends AMappedSynchronousChannel implements ISynchronousReader {
+public class MappedSynchronousReader extends AMappedSynchronousChannel implements ISynchronousBufferReader {
     private int lastTransaction;
+    private final byte[] messageBytes;
+    private final ByteBuffer messageBuffer;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
 
     public MappedSynchronousReader(final File file, final int maxMessageSize) {
         super(file, maxMessageSize);
+        this.messageBytes = new byte[maxMessageSize];
+        this.messageBuffer = ByteBuffer.wrap(messageBytes);
     }
 
     @Override
@@ -60,4 +67,14 @@ public class MappedSynchronousReader extends AMappedSynchronousChannel implement
         return new SynchronousResponse(getType(), getSequence(), getMessage());
     }
 
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() {
+        lastTransaction = getTransaction();
+        final int size = getMessage(messageBytes);
+        messageBuffer.clear();
+        messageBuffer.limit(size);
+        bufferResponse.set(getType(), getSequence(), messageBuffer);
+        return bufferResponse;
+    }
+
 }
\ No newline at end of file
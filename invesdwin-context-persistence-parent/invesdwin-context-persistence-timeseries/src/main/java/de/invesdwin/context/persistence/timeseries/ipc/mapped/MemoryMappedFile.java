@@ -218,6 +218,19 @@ public class MemoryMappedFile {
         UNSAFE.putLongVolatile(null, pos + addr, val);
     }
 
+    /**
+     * Writes a long (ordered) to the specified position. This is cheaper than a volatile write since it only prevents
+     * reordering with previous writes, which is sufficient to publish data to a single consumer.
+     * 
+     * @param pos
+     *            the position in the memory mapped file
+     * @param val
+     *            the value to write
+     */
+    public void putOrderedLong(final long pos, final long val) {
+        UNSAFE.putOrderedLong(null, pos + addr, val);
+    }
+
     /**
      * Reads a buffer of data.
      * 
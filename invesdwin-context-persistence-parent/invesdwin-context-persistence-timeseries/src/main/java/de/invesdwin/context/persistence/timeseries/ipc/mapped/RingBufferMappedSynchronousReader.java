@@ -0,0 +1,88 @@
+package de.invesdwin.context.persistence.timeseries.ipc.mapped;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
+
+/**
+ * There should only be one reader per file, since the read position is shared with the writer to free up space.
+ */
+@NotThreadSafe
+public class RingBufferMappedSynchronousReader extends ARingBufferMappedSynchronousChannel
+        implements ISynchronousBufferReader {
+
+    private long head;
+    private final byte[] messageBytes;
+    private final ByteBuffer messageBuffer;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
+
+    public RingBufferMappedSynchronousReader(final File file, final int maxMessageSize) {
+        this(file, maxMessageSize, DEFAULT_SLOTS);
+    }
+
+    public RingBufferMappedSynchronousReader(final File file, final int maxMessageSize, final int slots) {
+        super(file, maxMessageSize, slots);
+        this.messageBytes = new byte[maxMessageSize];
+        this.messageBuffer = ByteBuffer.wrap(messageBytes);
+    }
+
+    @Override
+    public void open() throws IOException {
+        super.open();
+        /*
+         * use inital value instead of reading the value to not fall into a race condition when writer has already
+         * written first message before the reader is initialized
+         */
+        head = 0;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (mem == null) {
+            return false;
+        }
+        //check closed first, the writer sets it only after the last message was published
+        final boolean closed = isClosed();
+        if (head != getTail()) {
+            return true;
+        }
+        if (closed) {
+            throw new EOFException("Channel was closed by the other endpoint");
+        }
+        return false;
+    }
+
+    @Override
+    public SynchronousResponse readMessage() {
+        return readMessageBuffer().toResponse();
+    }
+
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() {
+        long pos = getDataPos(head);
+        int size = mem.getInt(pos + SIZE_OFFSET);
+        if (size == PADDING_SIZE) {
+            head += capacity - (int) (head & mask);
+            pos = getDataPos(head);
+            size = mem.getInt(pos + SIZE_OFFSET);
+        }
+        final int type = mem.getInt(pos + TYPE_OFFSET);
+        final int sequence = mem.getInt(pos + SEQUENCE_OFFSET);
+        mem.getBytes(pos + MESSAGE_OFFSET, messageBytes, 0, size);
+        head += getRecordSize(size);
+        //free up the space for the writer
+        setHead(head);
+        messageBuffer.clear();
+        messageBuffer.limit(size);
+        bufferResponse.set(type, sequence, messageBuffer);
+        return bufferResponse;
+    }
+
+}
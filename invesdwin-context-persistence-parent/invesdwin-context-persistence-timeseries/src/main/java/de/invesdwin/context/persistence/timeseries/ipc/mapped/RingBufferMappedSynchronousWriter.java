@@ -0,0 +1,115 @@
+package de.invesdwin.context.persistence.timeseries.ipc.mapped;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousWriter;
+import de.invesdwin.util.concurrent.ASpinWait;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * There should only be one writer per file, or else the threads might destroy each others data.
+ *
+ * The writer only has to wait for the reader when the ring buffer is full.
+ */
+@NotThreadSafe
+public class RingBufferMappedSynchronousWriter extends ARingBufferMappedSynchronousChannel
+        implements ISynchronousWriter {
+
+    public static final Duration DEFAULT_MAX_WAIT_DURATION = new Duration(1, FTimeUnit.MINUTES);
+
+    private final Duration maxWaitDuration;
+    private long tail;
+    private long requiredHead;
+    private final ASpinWait spaceAvailableSpinWait = new ASpinWait() {
+        @Override
+        protected boolean isConditionFulfilled() throws Exception {
+            return getHead() >= requiredHead;
+        }
+    };
+
+    public RingBufferMappedSynchronousWriter(final File file, final int maxMessageSize) {
+        this(file, maxMessageSize, DEFAULT_SLOTS, DEFAULT_MAX_WAIT_DURATION);
+    }
+
+    public RingBufferMappedSynchronousWriter(final File file, final int maxMessageSize, final int slots,
+            final Duration maxWaitDuration) {
+        super(file, maxMessageSize, slots);
+        this.maxWaitDuration = maxWaitDuration;
+    }
+
+    @Override
+    public void open() throws IOException {
+        super.open();
+        //start a new session, this also removes the closed flag that causes an EOFException on the reader
+        tail = 0;
+        setHead(0);
+        setTail(0);
+        setClosed(CLOSED_INITIAL_VALUE);
+    }
+
+    /**
+     * Writes a message.
+     *
+     * @throws EOFException
+     *             in case the reader did not free up space in time
+     */
+    @Override
+    public void write(final int type, final int sequence, final byte[] message) throws IOException {
+        final int size = message.length;
+        if (size > maxMessageSize) {
+            throw new IllegalStateException(
+                    "messageSize [" + size + "] exceeds maxMessageSize [" + maxMessageSize + "]");
+        }
+        final int recordSize = getRecordSize(size);
+        final int remainingUntilEnd = capacity - (int) (tail & mask);
+        final int padding;
+        if (remainingUntilEnd < recordSize) {
+            padding = remainingUntilEnd;
+        } else {
+            padding = 0;
+        }
+        awaitSpace(tail + padding + recordSize - capacity);
+        if (padding > 0) {
+            mem.putInt(getDataPos(tail) + SIZE_OFFSET, PADDING_SIZE);
+            tail += padding;
+        }
+        final long pos = getDataPos(tail);
+        mem.putInt(pos + SIZE_OFFSET, size);
+        mem.putInt(pos + TYPE_OFFSET, type);
+        mem.putInt(pos + SEQUENCE_OFFSET, sequence);
+        mem.setBytes(pos + MESSAGE_OFFSET, message, 0, size);
+        tail += recordSize;
+        //publish after the record is complete
+        setTail(tail);
+    }
+
+    private void awaitSpace(final long requiredHead) throws IOException {
+        if (requiredHead <= 0 || getHead() >= requiredHead) {
+            return;
+        }
+        this.requiredHead = requiredHead;
+        final boolean fulfilled;
+        try {
+            fulfilled = spaceAvailableSpinWait.awaitFulfill(System.nanoTime(), maxWaitDuration);
+        } catch (final Exception e) {
+            throw new IOException(e);
+        }
+        if (!fulfilled) {
+            throw new EOFException("Reader did not consume messages within " + maxWaitDuration);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mem != null) {
+            setClosed(CLOSED_VALUE);
+        }
+        super.close();
+    }
+
+}
@@ -29,6 +29,11 @@ public abstract class APipeSynchronousChannel implements ISynchronousChannel {
 
     public static final int MESSAGE_POS = SIZE_POS + SIZE_OFFSET;
 
+    /**
+     * Readers buffer at least this many bytes so that batches of messages can be decoded from a single read.
+     */
+    public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+
     protected final File file;
     protected final int maxMessageSize;
     protected final int fileSize;
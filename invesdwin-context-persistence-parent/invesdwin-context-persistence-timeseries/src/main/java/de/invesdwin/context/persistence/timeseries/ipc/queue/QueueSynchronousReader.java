@@ -2,19 +2,24 @@ package de.invesdwin.context.persistence.timeseries.ipc.queue;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Queue;
 import java.util.concurrent.SynchronousQueue;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
 import de.invesdwin.util.assertions.Assertions;
 
 @NotThreadSafe
-public class QueueSynchronousReader implements ISynchronousReader {
+public class QueueSynchronousReader implements ISynchronousBufferReader {
 
     private Queue<SynchronousResponse> queue;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
+    private byte[] messageBytes;
+    private ByteBuffer messageBuffer;
 
     public QueueSynchronousReader(final Queue<SynchronousResponse> queue) {
         Assertions.assertThat(queue)
@@ -46,4 +51,21 @@ public class QueueSynchronousReader implements ISynchronousReader {
         return message;
     }
 
+    /**
+     * The queue already transports message objects, thus only the wrapper is reused here.
+     */
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        final SynchronousResponse message = readMessage();
+        final byte[] bytes = message.getMessage();
+        if (messageBytes != bytes) {
+            messageBytes = bytes;
+            messageBuffer = ByteBuffer.wrap(bytes);
+        } else {
+            messageBuffer.clear();
+        }
+        bufferResponse.set(message.getType(), message.getSequence(), messageBuffer);
+        return bufferResponse;
+    }
+
 }
@@ -2,18 +2,24 @@ package de.invesdwin.context.persistence.timeseries.ipc.queue.blocking;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.queue.QueueSynchronousWriter;
 
 @NotThreadSafe
-public class BlockingQueueSynchronousReader extends ABlockingQueueSynchronousChannel implements ISynchronousReader {
+public class BlockingQueueSynchronousReader extends ABlockingQueueSynchronousChannel
+        implements ISynchronousBufferReader {
 
     private SynchronousResponse next;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
+    private byte[] messageBytes;
+    private ByteBuffer messageBuffer;
 
     public BlockingQueueSynchronousReader(final BlockingQueue<SynchronousResponse> queue) {
         super(queue);
@@ -40,4 +46,21 @@ public class BlockingQueueSynchronousReader extends ABlockingQueueSynchronousCha
         return message;
     }
 
+    /**
+     * The queue already transports message objects, thus only the wrapper is reused here.
+     */
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        final SynchronousResponse message = readMessage();
+        final byte[] bytes = message.getMessage();
+        if (messageBytes != bytes) {
+            messageBytes = bytes;
+            messageBuffer = ByteBuffer.wrap(bytes);
+        } else {
+            messageBuffer.clear();
+        }
+        bufferResponse.set(message.getType(), message.getSequence(), messageBuffer);
+        return bufferResponse;
+    }
+
 }
@@ -3,32 +3,38 @@ package de.invesdwin.context.persistence.timeseries.ipc.socket;
 import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.net.SocketAddress;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
 import de.invesdwin.util.assertions.Assertions;
 
 @NotThreadSafe
-public class SocketSynchronousReader extends ASocketSynchronousChannel implements ISynchronousReader {
+public class SocketSynchronousReader extends ASocketSynchronousChannel implements ISynchronousBufferReader {
 
     private static final int CLOSED_READ_COUNT = -1;
     private static final int TIMEOUT_READ_COUNT = 0;
-    private final byte[] typeBuffer = new byte[TYPE_OFFSET];
-    private final byte[] sequenceBuffer = new byte[SEQUENCE_OFFSET];
-    private final byte[] sizeBuffer = new byte[SIZE_OFFSET];
+    private final byte[] headerBytes = new byte[MESSAGE_POS];
+    private final ByteBuffer headerBuffer = ByteBuffer.wrap(headerBytes);
+    private final byte[] messageBytes;
+    private final ByteBuffer messageBuffer;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
     private BufferedInputStream in;
 
     public SocketSynchronousReader(final SocketAddress socketAddress, final boolean server, final int maxMessageSize) {
         super(socketAddress, server, maxMessageSize);
+        this.messageBytes = new byte[maxMessageSize];
+        this.messageBuffer = ByteBuffer.wrap(messageBytes);
     }
 
     @Override
     public void open() throws IOException {
         super.open();
-        in = new BufferedInputStream(socket.getInputStream(), bufferSize);
+        in = new BufferedInputStream(socket.getInputStream(), Math.max(bufferSize, DEFAULT_READ_BUFFER_SIZE));
     }
 
     @Override
@@ -51,23 +57,29 @@ public class SocketSynchronousReader extends ASocketSynchronousChannel implement
 
     @Override
     public SynchronousResponse readMessage() throws IOException {
-        Assertions.checkTrue(read(typeBuffer));
-        final int type = TYPE_SERDE.fromBytes(typeBuffer);
+        return readMessageBuffer().toResponse();
+    }
+
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        //read the whole header at once and decode it without allocating
+        Assertions.checkTrue(read(headerBytes, MESSAGE_POS));
+        final int type = headerBuffer.getInt(TYPE_POS);
         if (type == TYPE_CLOSED_VALUE) {
             throw new EOFException("Channel was closed by the other endpoint");
         }
-        Assertions.checkTrue(read(sequenceBuffer));
-        final int sequence = SEQUENCE_SERDE.fromBytes(sequenceBuffer);
-        Assertions.checkTrue(read(sizeBuffer));
-        final int size = SIZE_SERDE.fromBytes(sizeBuffer);
-        final byte[] message = new byte[size];
+        final int sequence = headerBuffer.getInt(SEQUENCE_POS);
+        final int size = headerBuffer.getInt(SIZE_POS);
         if (size > 0) {
-            Assertions.checkTrue(read(message));
+            Assertions.checkTrue(read(messageBytes, size));
         }
-        return new SynchronousResponse(type, sequence, message);
+        messageBuffer.clear();
+        messageBuffer.limit(size);
+        bufferResponse.set(type, sequence, messageBuffer);
+        return bufferResponse;
     }
 
-    private boolean read(final byte[] buffer) throws IOException {
+    private boolean read(final byte[] buffer, final int length) throws IOException {
         try {
             if (in.available() <= 0) {
                 return false;
@@ -75,15 +87,21 @@ public class SocketSynchronousReader extends ASocketSynchronousChannel implement
         } catch (final IOException e) {
             throw newEofException(e);
         }
-        final int read = in.read(buffer);
+        final int read = in.read(buffer, 0, length);
         if (read == TIMEOUT_READ_COUNT) {
             return false;
         }
         if (read == CLOSED_READ_COUNT) {
             throw new EOFException("Pipe closed");
         }
-        if (read != buffer.length) {
-            throw new IllegalStateException("Read less bytes [" + read + "] than expected [" + buffer.length + "]");
+        int total = read;
+        while (total < length) {
+            //the remainder of the message is still in transit
+            final int next = in.read(buffer, total, length - total);
+            if (next == CLOSED_READ_COUNT) {
+                throw new EOFException("Pipe closed");
+            }
+            total += next;
         }
         return true;
     }
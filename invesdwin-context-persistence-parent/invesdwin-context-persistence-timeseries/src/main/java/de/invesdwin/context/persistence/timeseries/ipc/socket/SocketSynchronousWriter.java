@@ -1,27 +1,57 @@
 package de.invesdwin.context.persistence.timeseries.ipc.socket;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBatchWriter;
 import de.invesdwin.util.math.Bytes;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
 
+/**
+ * Messages are encoded into a preallocated buffer. Without batching each message is written immediately, with batching
+ * the buffer is written in one syscall when the batch size or the flush interval is reached or when flush() is called.
+ * The flush interval is only checked by the next write, so the last message of a burst is only sent by flush().
+ */
 @NotThreadSafe
-public class SocketSynchronousWriter extends ASocketSynchronousChannel implements ISynchronousWriter {
+public class SocketSynchronousWriter extends ASocketSynchronousChannel implements ISynchronousBatchWriter {
 
-    private BufferedOutputStream out;
+    private final int batchSize;
+    private final long batchFlushIntervalNanos;
+    private OutputStream out;
+    private byte[] buffer;
+    private ByteBuffer bufferWrapper;
+    private int position;
+    private long firstUnflushedNanos;
 
     public SocketSynchronousWriter(final SocketAddress socketAddress, final boolean server, final int maxMessageSize) {
         super(socketAddress, server, maxMessageSize);
+        this.batchSize = 0;
+        this.batchFlushIntervalNanos = 0;
+    }
+
+    public SocketSynchronousWriter(final SocketAddress socketAddress, final boolean server, final int maxMessageSize,
+            final int batchSize, final Duration batchFlushInterval) {
+        super(socketAddress, server, maxMessageSize);
+        this.batchSize = batchSize;
+        this.batchFlushIntervalNanos = batchFlushInterval.longValue(FTimeUnit.NANOSECONDS);
+    }
+
+    public boolean isBatching() {
+        return batchSize > 0;
     }
 
     @Override
     public void open() throws IOException {
         super.open();
-        out = new BufferedOutputStream(socket.getOutputStream(), bufferSize);
+        out = socket.getOutputStream();
+        buffer = new byte[Math.max(bufferSize, batchSize)];
+        bufferWrapper = ByteBuffer.wrap(buffer);
+        position = 0;
     }
 
     @Override
@@ -29,6 +59,7 @@ public class SocketSynchronousWriter extends ASocketSynchronousChannel implement
         if (out != null) {
             try {
                 writeWithoutTypeCheck(TYPE_CLOSED_VALUE, SEQUENCE_CLOSED_VALUE, Bytes.EMPTY_ARRAY);
+                flush();
             } catch (final Throwable t) {
                 //ignore
             }
@@ -60,23 +91,40 @@ public class SocketSynchronousWriter extends ASocketSynchronousChannel implement
     public void write(final int type, final int sequence, final byte[] message) throws IOException {
         checkType(type);
         writeWithoutTypeCheck(type, sequence, message);
+        if (!isBatching() || position >= batchSize
+                || System.nanoTime() - firstUnflushedNanos >= batchFlushIntervalNanos) {
+            flush();
+        }
     }
 
     private void writeWithoutTypeCheck(final int type, final int sequence, final byte[] message) throws IOException {
         checkSize(message.length);
-        final byte[] typeBuffer = TYPE_SERDE.toBytes(type);
-        out.write(typeBuffer);
-        final byte[] sequenceBuffer = SEQUENCE_SERDE.toBytes(sequence);
-        out.write(sequenceBuffer);
-        final byte[] sizeBuffer = SIZE_SERDE.toBytes(message.length);
-        out.write(sizeBuffer);
-        if (message.length > 0) {
-            out.write(message);
+        final int recordSize = MESSAGE_POS + message.length;
+        if (position + recordSize > buffer.length) {
+            //never split a message between two writes
+            flush();
+        }
+        if (position == 0) {
+            firstUnflushedNanos = System.nanoTime();
+        }
+        bufferWrapper.putInt(position + TYPE_POS, type);
+        bufferWrapper.putInt(position + SEQUENCE_POS, sequence);
+        bufferWrapper.putInt(position + SIZE_POS, message.length);
+        System.arraycopy(message, 0, buffer, position + MESSAGE_POS, message.length);
+        position += recordSize;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (position == 0) {
+            return;
         }
         try {
-            out.flush();
+            out.write(buffer, 0, position);
         } catch (final IOException e) {
             throw newEofException(e);
+        } finally {
+            position = 0;
         }
     }
 }
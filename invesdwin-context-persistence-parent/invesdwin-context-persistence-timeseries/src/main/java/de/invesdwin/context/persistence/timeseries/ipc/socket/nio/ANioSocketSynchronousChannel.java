@@ -0,0 +1,199 @@
+package de.invesdwin.context.persistence.timeseries.ipc.socket.nio;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousChannel;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.udp.ADatagramSocketSynchronousChannel;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Uses a java.nio SocketChannel with direct buffers instead of blocking socket streams. Besides TCP this also supports
+ * unix domain sockets (requires java 16 or newer) which avoid the loopback TCP overhead for processes on the same host.
+ */
+@NotThreadSafe
+public abstract class ANioSocketSynchronousChannel implements ISynchronousChannel {
+
+    public static final int TYPE_POS = 0;
+    public static final int TYPE_OFFSET = Integer.BYTES;
+    public static final int TYPE_CLOSED_VALUE = -1;
+
+    public static final int SEQUENCE_POS = TYPE_POS + TYPE_OFFSET;
+    public static final int SEQUENCE_OFFSET = TYPE_OFFSET;
+    public static final int SEQUENCE_CLOSED_VALUE = -1;
+
+    public static final int SIZE_POS = SEQUENCE_POS + SEQUENCE_OFFSET;
+    public static final int SIZE_OFFSET = SEQUENCE_OFFSET;
+
+    public static final int MESSAGE_POS = SIZE_POS + SIZE_OFFSET;
+
+    /**
+     * Readers buffer at least this many bytes so that batches of messages can be decoded from a single read.
+     */
+    public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final String UNIX_DOMAIN_SOCKET_ADDRESS_CLASS = "java.net.UnixDomainSocketAddress";
+
+    protected final int maxMessageSize;
+    protected final int bufferSize;
+    protected SocketChannel socketChannel;
+    private final SocketAddress socketAddress;
+    private final boolean server;
+    private ServerSocketChannel serverSocketChannel;
+
+    public ANioSocketSynchronousChannel(final SocketAddress socketAddress, final boolean server,
+            final int maxMessageSize) {
+        this.socketAddress = socketAddress;
+        this.server = server;
+        this.maxMessageSize = maxMessageSize;
+        this.bufferSize = maxMessageSize + MESSAGE_POS;
+    }
+
+    @Override
+    public void open() throws IOException {
+        final boolean unixDomainSocket = isUnixDomainSocketAddress(socketAddress);
+        if (server) {
+            if (unixDomainSocket) {
+                //remove stale socket file from a previous run, otherwise bind fails
+                Files.deleteQuietly(getUnixDomainSocketFile(socketAddress));
+                serverSocketChannel = (ServerSocketChannel) invokeOpen(ServerSocketChannel.class);
+            } else {
+                serverSocketChannel = ServerSocketChannel.open();
+            }
+            serverSocketChannel.bind(socketAddress);
+            socketChannel = serverSocketChannel.accept();
+        } else {
+            for (int tries = 0;; tries++) {
+                try {
+                    if (unixDomainSocket) {
+                        socketChannel = (SocketChannel) invokeOpen(SocketChannel.class);
+                    } else {
+                        socketChannel = SocketChannel.open();
+                    }
+                    socketChannel.connect(socketAddress);
+                    break;
+                } catch (final SocketException e) {
+                    //ConnectException for TCP, unix domain sockets also fail when the socket file does not exist yet
+                    socketChannel.close();
+                    socketChannel = null;
+                    if (tries < getMaxConnectRetries()) {
+                        try {
+                            getConnectRetryDelay().sleep();
+                        } catch (final InterruptedException e1) {
+                            throw new RuntimeException(e1);
+                        }
+                    } else {
+                        throw e;
+                    }
+                }
+            }
+        }
+        if (!unixDomainSocket) {
+            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            socketChannel.socket()
+                    .setTrafficClass(ADatagramSocketSynchronousChannel.IPTOS_LOWDELAY
+                            | ADatagramSocketSynchronousChannel.IPTOS_THROUGHPUT);
+        }
+        socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, bufferSize);
+        socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, bufferSize);
+    }
+
+    protected Duration getConnectRetryDelay() {
+        return Duration.ONE_SECOND;
+    }
+
+    protected int getMaxConnectRetries() {
+        return 10;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (socketChannel != null) {
+            socketChannel.close();
+            socketChannel = null;
+        }
+        if (serverSocketChannel != null) {
+            serverSocketChannel.close();
+            serverSocketChannel = null;
+            if (isUnixDomainSocketAddress(socketAddress)) {
+                Files.deleteQuietly(getUnixDomainSocketFile(socketAddress));
+            }
+        }
+    }
+
+    protected EOFException newEofException(final IOException e) throws EOFException {
+        final EOFException eof = new EOFException(e.getMessage());
+        eof.initCause(e);
+        return eof;
+    }
+
+    public static boolean isUnixDomainSocketSupported() {
+        try {
+            Class.forName(UNIX_DOMAIN_SOCKET_ADDRESS_CLASS);
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reflection is used here so that this class can still be compiled and used with TCP on java versions before 16.
+     */
+    public static SocketAddress newUnixDomainSocketAddress(final File file) {
+        try {
+            final Class<?> addressClass = Class.forName(UNIX_DOMAIN_SOCKET_ADDRESS_CLASS);
+            final Method of = addressClass.getMethod("of", Path.class);
+            return (SocketAddress) of.invoke(null, file.getAbsoluteFile().toPath());
+        } catch (final ClassNotFoundException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require java 16 or newer", e);
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static boolean isUnixDomainSocketAddress(final SocketAddress socketAddress) {
+        return !(socketAddress instanceof InetSocketAddress)
+                && UNIX_DOMAIN_SOCKET_ADDRESS_CLASS.equals(socketAddress.getClass().getName());
+    }
+
+    private static File getUnixDomainSocketFile(final SocketAddress socketAddress) {
+        try {
+            final Method getPath = socketAddress.getClass().getMethod("getPath");
+            final Path path = (Path) getPath.invoke(socketAddress);
+            return path.toFile();
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object invokeOpen(final Class<?> channelClass) throws IOException {
+        final ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+        try {
+            final Method open = channelClass.getMethod("open", ProtocolFamily.class);
+            return open.invoke(null, unix);
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package de.invesdwin.context.persistence.timeseries.ipc.socket.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
+
+/**
+ * The channel is switched to non-blocking mode, so hasNext() reads whatever is available without polling
+ * available(). Multiple messages that arrive together are decoded from the same read. The buffered message is only
+ * valid until the next call to hasNext() or readMessageBuffer().
+ */
+@NotThreadSafe
+public class NioSocketSynchronousReader extends ANioSocketSynchronousChannel implements ISynchronousBufferReader {
+
+    private static final int CLOSED_READ_COUNT = -1;
+    private ByteBuffer buffer;
+    private ByteBuffer messageBuffer;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
+    private int readIndex;
+
+    public NioSocketSynchronousReader(final SocketAddress socketAddress, final boolean server,
+            final int maxMessageSize) {
+        super(socketAddress, server, maxMessageSize);
+    }
+
+    @Override
+    public void open() throws IOException {
+        super.open();
+        socketChannel.configureBlocking(false);
+        buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, DEFAULT_READ_BUFFER_SIZE));
+        messageBuffer = buffer.duplicate();
+        readIndex = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        messageBuffer = null;
+        super.close();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (isMessageAvailable()) {
+            return true;
+        }
+        if (readIndex > 0) {
+            //move the incomplete message to the start of the buffer
+            buffer.flip();
+            buffer.position(readIndex);
+            buffer.compact();
+            readIndex = 0;
+        }
+        final int read;
+        try {
+            read = socketChannel.read(buffer);
+        } catch (final IOException e) {
+            throw newEofException(e);
+        }
+        if (read == CLOSED_READ_COUNT) {
+            throw new EOFException("Channel was closed by the other endpoint");
+        }
+        return isMessageAvailable();
+    }
+
+    private boolean isMessageAvailable() {
+        final int available = buffer.position() - readIndex;
+        if (available < MESSAGE_POS) {
+            return false;
+        }
+        final int size = buffer.getInt(readIndex + SIZE_POS);
+        return available >= MESSAGE_POS + size;
+    }
+
+    @Override
+    public SynchronousResponse readMessage() throws IOException {
+        return readMessageBuffer().toResponse();
+    }
+
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        final int type = buffer.getInt(readIndex + TYPE_POS);
+        if (type == TYPE_CLOSED_VALUE) {
+            throw new EOFException("Channel was closed by the other endpoint");
+        }
+        final int sequence = buffer.getInt(readIndex + SEQUENCE_POS);
+        final int size = buffer.getInt(readIndex + SIZE_POS);
+        final int messageStart = readIndex + MESSAGE_POS;
+        final int messageEnd = messageStart + size;
+        messageBuffer.clear();
+        messageBuffer.position(messageStart);
+        messageBuffer.limit(messageEnd);
+        readIndex = messageEnd;
+        bufferResponse.set(type, sequence, messageBuffer);
+        return bufferResponse;
+    }
+
+}
@@ -0,0 +1,122 @@
+package de.invesdwin.context.persistence.timeseries.ipc.socket.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBatchWriter;
+import de.invesdwin.util.math.Bytes;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Encodes the header and message into a preallocated direct buffer so that each message is written with a single
+ * write call without intermediate allocations. With batching multiple messages are collected in the buffer and written
+ * together when the batch size or the flush interval is reached or when flush() is called. The flush interval is only
+ * checked by the next write, so the last message of a burst is only sent by flush().
+ */
+@NotThreadSafe
+public class NioSocketSynchronousWriter extends ANioSocketSynchronousChannel implements ISynchronousBatchWriter {
+
+    private final int batchSize;
+    private final long batchFlushIntervalNanos;
+    private ByteBuffer buffer;
+    private long firstUnflushedNanos;
+
+    public NioSocketSynchronousWriter(final SocketAddress socketAddress, final boolean server,
+            final int maxMessageSize) {
+        super(socketAddress, server, maxMessageSize);
+        this.batchSize = 0;
+        this.batchFlushIntervalNanos = 0;
+    }
+
+    public NioSocketSynchronousWriter(final SocketAddress socketAddress, final boolean server,
+            final int maxMessageSize, final int batchSize, final Duration batchFlushInterval) {
+        super(socketAddress, server, maxMessageSize);
+        this.batchSize = batchSize;
+        this.batchFlushIntervalNanos = batchFlushInterval.longValue(FTimeUnit.NANOSECONDS);
+    }
+
+    public boolean isBatching() {
+        return batchSize > 0;
+    }
+
+    @Override
+    public void open() throws IOException {
+        super.open();
+        buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, batchSize));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            try {
+                writeWithoutTypeCheck(TYPE_CLOSED_VALUE, SEQUENCE_CLOSED_VALUE, Bytes.EMPTY_ARRAY);
+                flush();
+            } catch (final Throwable t) {
+                //ignore
+            }
+            buffer = null;
+        }
+        super.close();
+    }
+
+    private void checkType(final int type) {
+        if (type == TYPE_CLOSED_VALUE) {
+            throw new IllegalArgumentException(
+                    "type [" + type + "] is reserved for close notification, please use a different type number");
+        }
+    }
+
+    private void checkSize(final int size) {
+        if (size > maxMessageSize) {
+            throw new IllegalStateException(
+                    "messageSize [" + size + "] exceeds maxMessageSize [" + maxMessageSize + "]");
+        }
+    }
+
+    @Override
+    public void write(final int type, final int sequence, final byte[] message) throws IOException {
+        checkType(type);
+        writeWithoutTypeCheck(type, sequence, message);
+        if (!isBatching() || buffer.position() >= batchSize
+                || System.nanoTime() - firstUnflushedNanos >= batchFlushIntervalNanos) {
+            flush();
+        }
+    }
+
+    private void writeWithoutTypeCheck(final int type, final int sequence, final byte[] message) throws IOException {
+        checkSize(message.length);
+        if (buffer.remaining() < MESSAGE_POS + message.length) {
+            //never split a message between two writes
+            flush();
+        }
+        if (buffer.position() == 0) {
+            firstUnflushedNanos = System.nanoTime();
+        }
+        buffer.putInt(type);
+        buffer.putInt(sequence);
+        buffer.putInt(message.length);
+        buffer.put(message);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                socketChannel.write(buffer);
+            }
+        } catch (final IOException e) {
+            throw newEofException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+}
@@ -121,7 +121,7 @@ public abstract class ADatagramSocketSynchronousChannel implements ISynchronousC
         packetBuffer.putInt(SIZE_POS, val);
     }
 
-    private int getSize() {
+    protected int getSize() {
         return packetBuffer.getInt(SIZE_POS);
     }
 
@@ -2,18 +2,25 @@ package de.invesdwin.context.persistence.timeseries.ipc.socket.udp;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.net.SocketAddress;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
 import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
 
 @NotThreadSafe
-public class DatagramSocketSynchronousReader extends ADatagramSocketSynchronousChannel implements ISynchronousReader {
+public class DatagramSocketSynchronousReader extends ADatagramSocketSynchronousChannel
+        implements ISynchronousBufferReader {
+
+    private final ByteBuffer messageBuffer;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
 
     public DatagramSocketSynchronousReader(final SocketAddress socketAddress, final int maxMessageSize) {
         super(socketAddress, true, maxMessageSize);
+        this.messageBuffer = ByteBuffer.wrap(packetBytes, MESSAGE_POS, maxMessageSize).slice();
     }
 
     @Override
@@ -33,4 +40,18 @@ public class DatagramSocketSynchronousReader extends ADatagramSocketSynchronousC
         return new SynchronousResponse(type, sequence, message);
     }
 
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        final int type = getType();
+        if (type == TYPE_CLOSED_VALUE) {
+            throw new EOFException("Channel was closed by the other endpoint");
+        }
+        final int sequence = getSequence();
+        //the message is a view on the packet that is overwritten by the next receive
+        messageBuffer.clear();
+        messageBuffer.limit(getSize());
+        bufferResponse.set(type, sequence, messageBuffer);
+        return bufferResponse;
+    }
+
 }
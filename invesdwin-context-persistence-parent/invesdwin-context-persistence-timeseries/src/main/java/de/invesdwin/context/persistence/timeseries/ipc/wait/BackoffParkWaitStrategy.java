@@ -0,0 +1,64 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Spins first, then yields and finally parks the thread with an exponentially growing duration up to a maximum. This
+ * keeps the latency low during bursts while idle channels only cost little CPU.
+ */
+@Immutable
+public class BackoffParkWaitStrategy implements IWaitStrategy {
+
+    public static final int DEFAULT_MAX_SPINS = 100;
+    public static final int DEFAULT_MAX_YIELDS = 100;
+    public static final long DEFAULT_MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    public static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int maxSpins;
+    private final int maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    public BackoffParkWaitStrategy() {
+        this(DEFAULT_MAX_SPINS, DEFAULT_MAX_YIELDS, DEFAULT_MIN_PARK_NANOS, DEFAULT_MAX_PARK_NANOS);
+    }
+
+    public BackoffParkWaitStrategy(final int maxSpins, final int maxYields, final long minParkNanos,
+            final long maxParkNanos) {
+        if (minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("minParkNanos [" + minParkNanos
+                    + "] needs to be positive and not greater than maxParkNanos [" + maxParkNanos + "]");
+        }
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public void idle(final int idleCount) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (idleCount < maxSpins) {
+            return;
+        }
+        if (idleCount < maxSpins + maxYields) {
+            Thread.yield();
+            return;
+        }
+        LockSupport.parkNanos(getParkNanos(idleCount - maxSpins - maxYields));
+    }
+
+    private long getParkNanos(final int parkCount) {
+        //stop shifting before the value overflows
+        if (parkCount >= Long.numberOfLeadingZeros(minParkNanos) - 1) {
+            return maxParkNanos;
+        }
+        return Math.min(maxParkNanos, minParkNanos << parkCount);
+    }
+
+}
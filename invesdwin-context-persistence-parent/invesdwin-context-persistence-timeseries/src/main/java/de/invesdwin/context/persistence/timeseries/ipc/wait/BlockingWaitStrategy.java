@@ -0,0 +1,39 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Parks the thread for a fixed interval between checks. The transports have no way to signal a waiting thread across
+ * processes, thus this gives the lowest CPU usage for channels that are mostly idle at the cost of up to one interval
+ * of latency.
+ */
+@Immutable
+public class BlockingWaitStrategy implements IWaitStrategy {
+
+    public static final long DEFAULT_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long parkNanos;
+
+    public BlockingWaitStrategy() {
+        this(DEFAULT_PARK_NANOS);
+    }
+
+    public BlockingWaitStrategy(final long parkNanos) {
+        if (parkNanos <= 0) {
+            throw new IllegalArgumentException("parkNanos [" + parkNanos + "] needs to be positive");
+        }
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public void idle(final int idleCount) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        LockSupport.parkNanos(parkNanos);
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Lowest latency, but occupies a whole core while waiting.
+ */
+@Immutable
+public final class BusySpinWaitStrategy implements IWaitStrategy {
+
+    public static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+    private BusySpinWaitStrategy() {}
+
+    @Override
+    public void idle(final int idleCount) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+/**
+ * Decides what to do between two unsuccessful checks for a new message. This allows to trade latency against CPU usage
+ * per channel, e.g. dedicate a core to a hot channel by busy spinning while parking idle channels.
+ */
+public interface IWaitStrategy {
+
+    /**
+     * @param idleCount
+     *            the number of unsuccessful checks that happened since the wait started, begins with 0
+     */
+    void idle(int idleCount) throws InterruptedException;
+
+}
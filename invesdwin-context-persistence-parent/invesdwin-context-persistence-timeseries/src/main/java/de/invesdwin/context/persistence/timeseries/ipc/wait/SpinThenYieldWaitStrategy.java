@@ -0,0 +1,33 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Spins for a few iterations to catch messages that arrive shortly and then gives other threads a chance to run.
+ */
+@Immutable
+public class SpinThenYieldWaitStrategy implements IWaitStrategy {
+
+    public static final int DEFAULT_MAX_SPINS = 100;
+
+    private final int maxSpins;
+
+    public SpinThenYieldWaitStrategy() {
+        this(DEFAULT_MAX_SPINS);
+    }
+
+    public SpinThenYieldWaitStrategy(final int maxSpins) {
+        this.maxSpins = maxSpins;
+    }
+
+    @Override
+    public void idle(final int idleCount) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (idleCount >= maxSpins) {
+            Thread.yield();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package de.invesdwin.context.persistence.timeseries.ipc.wait;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousBufferReader;
+import de.invesdwin.context.persistence.timeseries.ipc.ISynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousBufferResponse;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+/**
+ * Wraps any reader to provide blocking reads with a timeout, so consumers do not need their own polling loops. How the
+ * time between checks is spent is decided by the given wait strategy.
+ */
+@NotThreadSafe
+public class WaitingSynchronousReader implements ISynchronousBufferReader {
+
+    private final ISynchronousReader delegate;
+    private final IWaitStrategy waitStrategy;
+    private final SynchronousBufferResponse bufferResponse = new SynchronousBufferResponse();
+
+    public WaitingSynchronousReader(final ISynchronousReader delegate, final IWaitStrategy waitStrategy) {
+        this.delegate = delegate;
+        this.waitStrategy = waitStrategy;
+    }
+
+    public ISynchronousReader getDelegate() {
+        return delegate;
+    }
+
+    public IWaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public void open() throws IOException {
+        delegate.open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public SynchronousResponse readMessage() throws IOException {
+        return delegate.readMessage();
+    }
+
+    @Override
+    public SynchronousBufferResponse readMessageBuffer() throws IOException {
+        if (delegate instanceof ISynchronousBufferReader) {
+            final ISynchronousBufferReader cDelegate = (ISynchronousBufferReader) delegate;
+            return cDelegate.readMessageBuffer();
+        }
+        final SynchronousResponse message = delegate.readMessage();
+        bufferResponse.set(message.getType(), message.getSequence(), ByteBuffer.wrap(message.getMessage()));
+        return bufferResponse;
+    }
+
+    /**
+     * Waits until a message is available.
+     *
+     * @return false if the timeout was reached without a message becoming available
+     */
+    public boolean awaitNext(final Duration timeout) throws IOException, InterruptedException {
+        if (delegate.hasNext()) {
+            return true;
+        }
+        final long timeoutNanos = timeout.longValue(FTimeUnit.NANOSECONDS);
+        final long startNanos = System.nanoTime();
+        int idleCount = 0;
+        while (true) {
+            waitStrategy.idle(idleCount);
+            if (delegate.hasNext()) {
+                return true;
+            }
+            if (System.nanoTime() - startNanos >= timeoutNanos) {
+                return false;
+            }
+            if (idleCount < Integer.MAX_VALUE) {
+                idleCount++;
+            }
+        }
+    }
+
+    /**
+     * @return null if no message arrived within the timeout
+     */
+    public SynchronousResponse readMessage(final Duration timeout) throws IOException, InterruptedException {
+        if (awaitNext(timeout)) {
+            return readMessage();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return null if no message arrived within the timeout
+     */
+    public SynchronousBufferResponse readMessageBuffer(final Duration timeout)
+            throws IOException, InterruptedException {
+        if (awaitNext(timeout)) {
+            return readMessageBuffer();
+        } else {
+            return null;
+        }
+    }
+
+}
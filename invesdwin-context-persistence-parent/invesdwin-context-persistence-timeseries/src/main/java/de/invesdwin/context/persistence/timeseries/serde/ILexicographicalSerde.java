@@ -0,0 +1,12 @@
+package de.invesdwin.context.persistence.timeseries.serde;
+
+import ezdb.serde.Serde;
+
+/**
+ * Marker for serdes whose encoded bytes compare (unsigned, byte by byte) in the same order as the decoded objects.
+ * Range tables use a plain LexicographicalComparator for such range keys instead of deserializing both keys during
+ * each comparison inside the database.
+ */
+public interface ILexicographicalSerde<E> extends Serde<E> {
+
+}
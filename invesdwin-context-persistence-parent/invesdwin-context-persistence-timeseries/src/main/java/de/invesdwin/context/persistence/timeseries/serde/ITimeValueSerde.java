@@ -0,0 +1,11 @@
+package de.invesdwin.context.persistence.timeseries.serde;
+
+import ezdb.serde.Serde;
+
+/**
+ * Marker for fixed length serdes that encode a value as its time in milliseconds (long) followed by a double. Chunks of
+ * such values can be read into primitive time and value columns without deserializing objects.
+ */
+public interface ITimeValueSerde<E> extends Serde<E> {
+
+}
@@ -0,0 +1,71 @@
+package de.invesdwin.context.persistence.timeseries.serde;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.invesdwin.util.time.date.FDate;
+
+/**
+ * Encodes the millis as a big-endian long with a flipped sign bit, so negative values sort before positive values when
+ * comparing the unsigned bytes. Null is encoded as the smallest possible value. This encoding is not compatible with
+ * FDateSerde.
+ */
+@Immutable
+public class LexicographicalFDateSerde implements ILexicographicalSerde<FDate> {
+
+    public static final LexicographicalFDateSerde GET = new LexicographicalFDateSerde();
+    public static final int FIXED_LENGTH = Long.BYTES;
+
+    private static final long NULL_VALUE = Long.MIN_VALUE;
+
+    @Override
+    public FDate fromBytes(final byte[] bytes) {
+        final ByteBuffer buf = ByteBuffer.wrap(bytes);
+        return extractFDate(buf);
+    }
+
+    @Override
+    public byte[] toBytes(final FDate obj) {
+        final ByteBuffer buf = ByteBuffer.allocate(FIXED_LENGTH);
+        putFDate(buf, obj);
+        return buf.array();
+    }
+
+    public static void putFDate(final ByteBuffer buf, final FDate value) {
+        if (value == null) {
+            putLong(buf, NULL_VALUE);
+        } else {
+            putLong(buf, value.millisValue());
+        }
+    }
+
+    public static FDate extractFDate(final ByteBuffer buf) {
+        final long millis = extractLong(buf);
+        if (millis == NULL_VALUE) {
+            return null;
+        } else {
+            return FDate.valueOf(millis);
+        }
+    }
+
+    /**
+     * Can be used by composite keys that append further numbers after the date.
+     */
+    public static void putLong(final ByteBuffer buf, final long value) {
+        buf.putLong(value ^ Long.MIN_VALUE);
+    }
+
+    public static long extractLong(final ByteBuffer buf) {
+        return buf.getLong() ^ Long.MIN_VALUE;
+    }
+
+    public static void putInt(final ByteBuffer buf, final int value) {
+        buf.putInt(value ^ Integer.MIN_VALUE);
+    }
+
+    public static int extractInt(final ByteBuffer buf) {
+        return buf.getInt() ^ Integer.MIN_VALUE;
+    }
+
+}
@@ -8,10 +8,9 @@ import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.math.decimal.TimedDecimal;
 import de.invesdwin.util.time.date.FDate;
 import de.invesdwin.util.time.date.FDates;
-import ezdb.serde.Serde;
 
 @Immutable
-public class TimedDecimalSerde implements Serde<TimedDecimal> {
+public class TimedDecimalSerde implements ITimeValueSerde<TimedDecimal> {
 
     public static final TimedDecimalSerde GET = new TimedDecimalSerde();
     public static final Integer FIXED_LENGTH = 8 + 8;
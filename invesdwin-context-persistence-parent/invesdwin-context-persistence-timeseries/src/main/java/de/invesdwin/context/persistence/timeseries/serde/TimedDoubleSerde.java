@@ -8,10 +8,9 @@ import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.math.Bytes;
 import de.invesdwin.util.math.TimedDouble;
 import de.invesdwin.util.time.date.FDate;
-import ezdb.serde.Serde;
 
 @ThreadSafe
-public class TimedDoubleSerde implements Serde<TimedDouble> {
+public class TimedDoubleSerde implements ITimeValueSerde<TimedDouble> {
 
     public static final TimedDoubleSerde GET = new TimedDoubleSerde();
     public static final Integer FIXED_LENGTH = 8 + 8;
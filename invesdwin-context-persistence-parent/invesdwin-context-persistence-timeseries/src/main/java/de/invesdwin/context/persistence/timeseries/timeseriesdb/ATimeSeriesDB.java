@@ -1,6 +1,7 @@
 package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
@@ -12,6 +13,7 @@ import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.integration.retry.Retry;
 import de.invesdwin.context.integration.retry.RetryLaterRuntimeException;
 import de.invesdwin.context.log.error.Err;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.compaction.TimeSeriesCompactionService;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.CorruptedTimeSeriesStorageException;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.TimeSeriesStorage;
 import de.invesdwin.util.collections.iterable.ACloseableIterator;
@@ -36,7 +38,10 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
     private final String name;
     private final Serde<V> valueSerde;
     private final Integer fixedLength;
+    private final ChunkReadMode chunkReadMode;
+    private final ChunkEncoding chunkEncoding;
     private final File directory;
+    private final TimeSeriesCompactionService<K, V> compactionService;
     private final ALoadingCache<K, TimeSeriesStorageCache<K, V>> key_lookupTableCache;
     private final ALoadingCache<K, IReadWriteLock> key_tableLock = new ALoadingCache<K, IReadWriteLock>() {
         @Override
@@ -58,6 +63,12 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
         this.name = name;
         this.valueSerde = newValueSerde();
         this.fixedLength = newValueFixedLength();
+        this.chunkReadMode = newChunkReadMode();
+        this.chunkEncoding = newChunkEncoding();
+        if (chunkEncoding == ChunkEncoding.COLUMNAR && !ChunkEncoding.isColumnarSupported(fixedLength)) {
+            throw new IllegalArgumentException(ChunkEncoding.class.getSimpleName() + "." + chunkEncoding
+                    + " requires a fixed length that is a multiple of " + Long.BYTES + ": " + fixedLength);
+        }
         final File baseDirectory = getBaseDirectory();
         if (Objects.equals(baseDirectory.getAbsolutePath(), new File(".").getAbsolutePath())) {
             throw new IllegalStateException(
@@ -65,17 +76,20 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
         }
         this.directory = new File(baseDirectory,
                 ATimeSeriesDB.class.getSimpleName() + "/" + Files.normalizePath(getName()));
+        this.compactionService = newCompactionService();
         this.key_lookupTableCache = new ALoadingCache<K, TimeSeriesStorageCache<K, V>>() {
             @Override
             protected TimeSeriesStorageCache<K, V> loadValue(final K key) {
                 final String hashKey = hashKeyToString(key);
-                return new TimeSeriesStorageCache<K, V>(getStorage(), hashKey, valueSerde, fixedLength,
-                        new Function<V, FDate>() {
+                final TimeSeriesStorageCache<K, V> lookupTableCache = new TimeSeriesStorageCache<K, V>(getStorage(),
+                        hashKey, valueSerde, fixedLength, new Function<V, FDate>() {
                             @Override
                             public FDate apply(final V input) {
                                 return extractEndTime(input);
                             }
-                        });
+                        }, chunkReadMode);
+                getStorageCacheBudget().register(ATimeSeriesDB.this, key, lookupTableCache);
+                return lookupTableCache;
             }
 
             @Override
@@ -111,6 +125,7 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
     }
 
     protected void deleteCorruptedStorage(final File directory) {
+        DecompressedChunkCache.getInstance().invalidateDirectory(directory);
         Files.deleteNative(directory);
     }
 
@@ -141,6 +156,48 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
         return fixedLength;
     }
 
+    /**
+     * Override this to memory map chunk files during reads instead of copying them to the heap first. This is
+     * beneficial for read heavy workloads that scan lots of chunks.
+     */
+    protected ChunkReadMode newChunkReadMode() {
+        return ChunkReadMode.DEFAULT;
+    }
+
+    public ChunkReadMode getChunkReadMode() {
+        return chunkReadMode;
+    }
+
+    /**
+     * Override this to write chunk files column wise for fixed length values like time/value pairs. Readers detect the
+     * encoding automatically, thus this can be switched on for existing data.
+     */
+    protected ChunkEncoding newChunkEncoding() {
+        return ChunkEncoding.DEFAULT;
+    }
+
+    public ChunkEncoding getChunkEncoding() {
+        return chunkEncoding;
+    }
+
+    /**
+     * Override this to configure how the small chunks left behind by incremental updates get merged in the background.
+     */
+    protected TimeSeriesCompactionService<K, V> newCompactionService() {
+        return new TimeSeriesCompactionService<K, V>(this);
+    }
+
+    public TimeSeriesCompactionService<K, V> getCompactionService() {
+        return compactionService;
+    }
+
+    /**
+     * Override this to use a separate memory budget for the per key caches of this table.
+     */
+    protected TimeSeriesStorageCacheBudget getStorageCacheBudget() {
+        return TimeSeriesStorageCacheBudget.getInstance();
+    }
+
     @Override
     public IReadWriteLock getTableLock(final K key) {
         return key_tableLock.get(key);
@@ -160,6 +217,37 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
         return new RangeReverseValues(key, from, to);
     }
 
+    @Override
+    public long count(final K key, final FDate from, final FDate to) {
+        return getLookupTableCache(key).count(from, to, getTableLock(key).readLock());
+    }
+
+    @Override
+    public boolean isTimeValueColumnsSupported() {
+        return TimeValueColumns.isSupported(valueSerde, fixedLength);
+    }
+
+    @Override
+    public int rangeTimeValues(final K key, final FDate from, final FDate to, final TimeValueColumns columns) {
+        TimeValueColumns.assertSupported(name, valueSerde, fixedLength);
+        return getLookupTableCache(key).readRangeTimeValues(from, to, getTableLock(key).readLock(), columns);
+    }
+
+    /**
+     * Returns the value at the given position (0 is the first value) or null if the index is out of range.
+     */
+    public V getValueAt(final K key, final long index) {
+        return getLookupTableCache(key).getValueAt(index, getTableLock(key).readLock());
+    }
+
+    /**
+     * Returns the position of the latest value at or before the given date or -1 if there is none, so that
+     * getValueAt(key, indexOf(key, date)) is the same as getLatestValue(key, date) for dates after the first value.
+     */
+    public long indexOf(final K key, final FDate date) {
+        return getLookupTableCache(key).indexOf(date, getTableLock(key).readLock());
+    }
+
     @Override
     public V getLatestValue(final K key, final FDate date) {
         final Lock readLock = getTableLock(key).readLock();
@@ -177,6 +265,13 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
         }
     }
 
+    @Override
+    public List<V> getLatestValues(final K key, final List<FDate> dates) {
+        //the read lock is only acquired when a snapshot needs to be created, the pass itself works on the consistent
+        //snapshot without holding it
+        return getLookupTableCache(key).getLatestValues(dates, getTableLock(key).readLock());
+    }
+
     @Override
     public FDate getLatestValueKey(final K key, final FDate date) {
         final V value = getLatestValue(key, date);
@@ -277,7 +372,30 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
     }
 
     public TimeSeriesStorageCache<K, V> getLookupTableCache(final K key) {
-        return key_lookupTableCache.get(key);
+        final TimeSeriesStorageCache<K, V> lookupTableCache = key_lookupTableCache.get(key);
+        lookupTableCache.touch();
+        getStorageCacheBudget().maybeEvictIfDue();
+        return lookupTableCache;
+    }
+
+    /**
+     * Removes the cache of an idle key so that its lookups and snapshot can be garbage collected, the next access
+     * creates a new one. Returns false without waiting when the key is currently locked. The table lock itself is kept,
+     * since threads that already obtained it would otherwise not be mutually exclusive with the ones that get a new
+     * lock.
+     */
+    boolean evictLookupTableCache(final K key, final TimeSeriesStorageCache<K, V> lookupTableCache) {
+        final ILock writeLock = getTableLock(key).writeLock();
+        if (!writeLock.tryLock()) {
+            return false;
+        }
+        try {
+            key_lookupTableCache.remove(key);
+            lookupTableCache.evict();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public Serde<V> getValueSerde() {
@@ -298,6 +416,10 @@ public abstract class ATimeSeriesDB<K, V> implements ITimeSeriesDB<K, V> {
                 storage = null;
             }
         }
+        for (final TimeSeriesStorageCache<K, V> lookupTableCache : key_lookupTableCache.values()) {
+            getStorageCacheBudget().unregister(lookupTableCache);
+            lookupTableCache.releaseSnapshot();
+        }
         key_lookupTableCache.clear();
         key_tableLock.clear();
     }
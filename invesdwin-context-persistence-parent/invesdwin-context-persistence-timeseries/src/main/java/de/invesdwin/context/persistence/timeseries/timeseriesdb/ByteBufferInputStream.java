@@ -0,0 +1,119 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.instrument.DynamicInstrumentationReflections;
+
+/**
+ * Reads from a heap or direct byte buffer (e.g. a memory mapped file) without copying it first.
+ */
+@SuppressWarnings("restriction")
+@NotThreadSafe
+public class ByteBufferInputStream extends InputStream {
+
+    private static final Method INVOKE_CLEANER = newInvokeCleaner();
+
+    private ByteBuffer buffer;
+
+    public ByteBufferInputStream(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * The underlying file channel is closed right after mapping, the mapping itself stays valid until the buffer gets
+     * garbage collected.
+     */
+    public static MappedByteBuffer map(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Releases the mapping right away instead of waiting for the garbage collector, otherwise the file can not be moved
+     * or deleted on windows. Neither the buffer nor any of its slices or duplicates may be used afterwards. When the
+     * mapping can not be released explicitly, it is still released by the garbage collector.
+     */
+    public static void unmap(final MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(DynamicInstrumentationReflections.getUnsafe(), buffer);
+            } else {
+                //java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (final Throwable t) {
+            //ignore
+        }
+    }
+
+    private static Method newInvokeCleaner() {
+        try {
+            return sun.misc.Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (final NoSuchMethodException e) {
+            //java 8
+            return null;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (buffer == null || !buffer.hasRemaining()) {
+            return -1;
+        }
+        final int length = Math.min(len, buffer.remaining());
+        buffer.get(b, off, length);
+        return length;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (buffer == null || n <= 0) {
+            return 0;
+        }
+        final int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (buffer == null) {
+            return 0;
+        }
+        return buffer.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        //release reference so a mapping can be garbage collected
+        buffer = null;
+    }
+
+}
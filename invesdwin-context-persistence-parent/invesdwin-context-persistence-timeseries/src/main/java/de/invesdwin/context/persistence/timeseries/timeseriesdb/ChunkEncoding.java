@@ -0,0 +1,26 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Defines how the fixed length records of a chunk file are laid out before being compressed.
+ */
+@Immutable
+public enum ChunkEncoding {
+    /**
+     * Records are written as they come from the serde.
+     */
+    ROW,
+    /**
+     * Records are split into 8 byte columns. The first column (normally the time) is delta-of-delta encoded, the other
+     * columns (normally doubles or longs) are XOR encoded against their previous value. This shrinks regular tick and
+     * bar data considerably before it gets compressed. Requires a fixed length that is a multiple of 8.
+     */
+    COLUMNAR;
+
+    public static final ChunkEncoding DEFAULT = ROW;
+
+    public static boolean isColumnarSupported(final Integer fixedLength) {
+        return fixedLength != null && fixedLength > 0 && fixedLength % Long.BYTES == 0;
+    }
+}
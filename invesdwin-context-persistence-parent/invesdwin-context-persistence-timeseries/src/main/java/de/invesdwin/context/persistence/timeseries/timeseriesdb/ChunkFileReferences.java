@@ -0,0 +1,165 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.util.lang.Files;
+
+/**
+ * Process wide reference counts for chunk files that are part of a published {@link ChunkFileSnapshot}. Writers do
+ * not delete or overwrite a referenced file directly, instead it gets retired by moving it out of the way. The retired
+ * file is deleted as soon as the last snapshot that contains it is released. Thus readers never see files vanish or
+ * change underneath them and do not need to hold the table lock while iterating.
+ */
+@ThreadSafe
+public final class ChunkFileReferences {
+
+    private static final ChunkFileReferences INSTANCE = new ChunkFileReferences();
+
+    @GuardedBy("this")
+    private final Map<String, ChunkFileReference> path_reference = new HashMap<String, ChunkFileReference>();
+    private final AtomicLong retiredSequence = new AtomicLong();
+
+    private ChunkFileReferences() {
+    }
+
+    public static ChunkFileReferences getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized ChunkFileReference retain(final File file) {
+        final String path = file.getAbsolutePath();
+        ChunkFileReference reference = path_reference.get(path);
+        if (reference == null) {
+            reference = new ChunkFileReference(file);
+            path_reference.put(path, reference);
+        }
+        reference.references++;
+        return reference;
+    }
+
+    synchronized void release(final ChunkFileReference reference) {
+        reference.references--;
+        if (reference.references > 0) {
+            return;
+        }
+        if (reference.retired) {
+            final File retiredFile = reference.file;
+            retiredFile.delete();
+            DecompressedChunkCache.getInstance().invalidate(retiredFile);
+        } else {
+            //the path might already be referenced by a newer file when this one failed to be retired
+            path_reference.remove(reference.file.getAbsolutePath(), reference);
+        }
+    }
+
+    /**
+     * Needs to be called before a chunk file gets deleted or overwritten. When the file is still referenced by a
+     * snapshot it is moved into the retired directory, otherwise nothing happens.
+     *
+     * Waiting for the readers of the file happens outside of the monitor, so that retaining and releasing other files
+     * is not blocked while a reader decompresses this one.
+     */
+    public void retire(final File file, final File retiredDirectory) {
+        final ChunkFileReference reference;
+        synchronized (this) {
+            reference = path_reference.remove(file.getAbsolutePath());
+            if (reference == null) {
+                return;
+            }
+            //pin the reference so that the last snapshot being released in the mean time does not drop it
+            reference.references++;
+        }
+        try {
+            final File retiredFile = new File(retiredDirectory,
+                    retiredSequence.incrementAndGet() + "_" + file.getParentFile().getName() + "_" + file.getName());
+            reference.lock.writeLock().lock();
+            try {
+                Files.forceMkdir(retiredDirectory);
+                if (file.exists()) {
+                    java.nio.file.Files.move(file.toPath(), retiredFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+                DecompressedChunkCache.getInstance().invalidate(file);
+                reference.file = retiredFile;
+                reference.retired = true;
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                reference.lock.writeLock().unlock();
+            }
+        } finally {
+            //deletes the retired file right away when no snapshot references it anymore
+            release(reference);
+        }
+    }
+
+    /**
+     * Retires all referenced files inside the given directory, should be called before the directory gets deleted.
+     */
+    public void retireDirectory(final File directory, final File retiredDirectory) {
+        final String prefix = directory.getAbsolutePath() + File.separator;
+        final List<File> files = new ArrayList<File>();
+        synchronized (this) {
+            for (final ChunkFileReference reference : path_reference.values()) {
+                if (reference.file.getAbsolutePath().startsWith(prefix)) {
+                    files.add(reference.file);
+                }
+            }
+        }
+        for (final File file : files) {
+            retire(file, retiredDirectory);
+        }
+    }
+
+    /**
+     * A chunk file that is pinned by at least one snapshot. The file location changes when the file gets retired,
+     * thus it should only be accessed while holding the read lock.
+     */
+    @ThreadSafe
+    public static final class ChunkFileReference {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        @GuardedBy("INSTANCE")
+        private int references;
+        private volatile File file;
+        private volatile boolean retired;
+
+        private ChunkFileReference(final File file) {
+            this.file = file;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean isRetired() {
+            return retired;
+        }
+
+        /**
+         * Prevents the file from being moved while it is being read.
+         */
+        public Lock getReadLock() {
+            return lock.readLock();
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.util.List;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkFileReferences.ChunkFileReference;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ChunkValue;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.TableRow;
+
+/**
+ * An immutable version of the chunk file list of one key. The publisher holds one reference, each reader that
+ * iterates over the snapshot holds another one. The chunk files stay pinned until the last reference is released.
+ */
+@ThreadSafe
+public final class ChunkFileSnapshot {
+
+    private final List<TableRow<String, FDate, ChunkValue>> rows;
+    private final ChunkFileReference[] files;
+    /**
+     * Prefix sums of the chunk counts, offsets[i] is the index of the first value in chunk i and the last entry is the
+     * total count.
+     */
+    private final long[] offsets;
+    @GuardedBy("this")
+    private int references = 1;
+
+    ChunkFileSnapshot(final List<TableRow<String, FDate, ChunkValue>> rows, final ChunkFileReference[] files) {
+        this.rows = rows;
+        this.files = files;
+        this.offsets = new long[rows.size() + 1];
+        for (int i = 0; i < rows.size(); i++) {
+            offsets[i + 1] = offsets[i] + rows.get(i).getValue().getCount();
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public TableRow<String, FDate, ChunkValue> getRow(final int index) {
+        return rows.get(index);
+    }
+
+    public ChunkFileReference getFile(final int index) {
+        return files[index];
+    }
+
+    /**
+     * Behaves like ADelegateRangeTable.getLatest(): returns the index of the last chunk that starts before or at the
+     * given date, or the first chunk if all chunks start after it. Returns -1 when there are no chunks.
+     */
+    public int getLatestIndex(final FDate date) {
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        int low = 0;
+        int high = rows.size() - 1;
+        int latest = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (rows.get(mid).getRangeKey().isAfter(date)) {
+                high = mid - 1;
+            } else {
+                latest = mid;
+                low = mid + 1;
+            }
+        }
+        return latest;
+    }
+
+    public long getValueCount() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Returns the overall index of the first value in the given chunk.
+     */
+    public long getValueOffset(final int chunk) {
+        return offsets[chunk];
+    }
+
+    /**
+     * Binary search for the chunk that contains the value with the given overall index, which needs to be between 0
+     * and getValueCount() - 1.
+     */
+    public int getChunkIndexAt(final long valueIndex) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] > valueIndex) {
+                high = mid - 1;
+            } else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns false when the snapshot was already released by all its holders and thus can not be used anymore.
+     */
+    public synchronized boolean tryRetain() {
+        if (references <= 0) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    public void release() {
+        synchronized (this) {
+            references--;
+            if (references > 0) {
+                return;
+            }
+        }
+        for (final ChunkFileReference file : files) {
+            ChunkFileReferences.getInstance().release(file);
+        }
+    }
+
+}
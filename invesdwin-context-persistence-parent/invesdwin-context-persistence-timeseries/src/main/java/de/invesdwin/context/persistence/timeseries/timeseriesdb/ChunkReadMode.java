@@ -0,0 +1,22 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Defines how chunk files are read before being handed to the decompressor.
+ */
+@Immutable
+public enum ChunkReadMode {
+    /**
+     * Copies the whole file into a heap byte array so that the file handle can be released immediately. This doubles
+     * heap usage during decompression but works on every platform without keeping mappings alive.
+     */
+    HEAP_COPY,
+    /**
+     * Maps the file into memory and lets the decompressor read directly from the page cache. The file handle is closed
+     * right after the mapping is established, thus this does not cause too many open files errors either.
+     */
+    MEMORY_MAPPED;
+
+    public static final ChunkReadMode DEFAULT = HEAP_COPY;
+}
@@ -0,0 +1,139 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Decodes data written by {@link ColumnarEncodingOutputStream} back into fixed length rows. Data that does not start
+ * with the columnar magic is passed through as is, so row encoded files stay readable.
+ */
+@NotThreadSafe
+public class ColumnarDecodingInputStream extends InputStream {
+
+    private final int fixedLength;
+    private InputStream in;
+    private ByteBuffer rows;
+    private boolean initialized;
+
+    public ColumnarDecodingInputStream(final InputStream in, final int fixedLength) {
+        this.in = in;
+        this.fixedLength = fixedLength;
+    }
+
+    private InputStream getDelegate() throws IOException {
+        if (!initialized) {
+            initialized = true;
+            final PushbackInputStream pushback = new PushbackInputStream(in, Long.BYTES);
+            final byte[] magic = new byte[Long.BYTES];
+            int read = 0;
+            while (read < magic.length) {
+                final int n = pushback.read(magic, read, magic.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            if (read == magic.length && ByteBuffer.wrap(magic).getLong() == ColumnarEncodingOutputStream.MAGIC) {
+                rows = decode(new DataInputStream(pushback));
+                pushback.close();
+                in = new ByteBufferInputStream(rows);
+            } else {
+                if (read > 0) {
+                    pushback.unread(magic, 0, read);
+                }
+                in = pushback;
+            }
+        }
+        return in;
+    }
+
+    private ByteBuffer decode(final DataInputStream data) throws IOException {
+        final int count = (int) readVarLong(data);
+        final int encodedFixedLength = (int) readVarLong(data);
+        if (encodedFixedLength != fixedLength) {
+            throw new IllegalStateException(
+                    "Encoded fixed length [" + encodedFixedLength + "] does not match expected [" + fixedLength + "]");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(count * fixedLength);
+        long prevTime = 0;
+        long prevDelta = 0;
+        for (int i = 0; i < count; i++) {
+            final long delta = prevDelta + ColumnarEncodingOutputStream.unZigZag(readVarLong(data));
+            final long time = prevTime + delta;
+            buffer.putLong(i * fixedLength, time);
+            prevDelta = delta;
+            prevTime = time;
+        }
+        for (int column = Long.BYTES; column < fixedLength; column += Long.BYTES) {
+            long prevBits = 0;
+            for (int i = 0; i < count; i++) {
+                final long bits = prevBits ^ readXor(data);
+                buffer.putLong(i * fixedLength + column, bits);
+                prevBits = bits;
+            }
+        }
+        return buffer;
+    }
+
+    private static long readXor(final DataInputStream data) throws IOException {
+        final int control = data.readUnsignedByte();
+        if (control == 0) {
+            return 0L;
+        }
+        final int leadingZeroBytes = (control - 1) / Byte.SIZE;
+        final int trailingZeroBytes = (control - 1) % Byte.SIZE;
+        final int meaningfulBytes = Long.BYTES - leadingZeroBytes - trailingZeroBytes;
+        long meaningful = 0L;
+        for (int i = 0; i < meaningfulBytes; i++) {
+            meaningful = (meaningful << Byte.SIZE) | data.readUnsignedByte();
+        }
+        return meaningful << (trailingZeroBytes * Byte.SIZE);
+    }
+
+    private static long readVarLong(final DataInputStream data) throws IOException {
+        long value = 0L;
+        int shift = 0;
+        while (shift < Long.SIZE) {
+            final int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+        throw new EOFException("Malformed varlong");
+    }
+
+    @Override
+    public int read() throws IOException {
+        return getDelegate().read();
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        return getDelegate().read(b, off, len);
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        return getDelegate().skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return getDelegate().available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+        rows = null;
+    }
+
+}
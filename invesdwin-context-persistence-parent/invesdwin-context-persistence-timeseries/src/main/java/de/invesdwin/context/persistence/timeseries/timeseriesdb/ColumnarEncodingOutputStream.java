@@ -0,0 +1,127 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Buffers fixed length records and writes them column wise on close, see {@link ChunkEncoding#COLUMNAR}. Thus the
+ * encoded data only becomes visible to readers after this stream was closed.
+ *
+ * Layout: [long magic][varint count][varint fixedLength][column 0 delta-of-delta zigzag varints][column 1..n XOR
+ * encoded]
+ */
+@NotThreadSafe
+public class ColumnarEncodingOutputStream extends OutputStream {
+
+    static final long MAGIC = 0x436F6C756D6E6172L;
+
+    private final OutputStream out;
+    private final int fixedLength;
+    private final ByteArrayOutputStream rows = new ByteArrayOutputStream();
+    private boolean closed;
+
+    public ColumnarEncodingOutputStream(final OutputStream out, final int fixedLength) {
+        if (!ChunkEncoding.isColumnarSupported(fixedLength)) {
+            throw new IllegalArgumentException(
+                    "fixedLength needs to be a positive multiple of " + Long.BYTES + ": " + fixedLength);
+        }
+        this.out = out;
+        this.fixedLength = fixedLength;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        rows.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        rows.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        //columns can only be written once all rows are known
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        final byte[] bytes = rows.toByteArray();
+        if (bytes.length % fixedLength != 0) {
+            throw new IllegalStateException("Written bytes [" + bytes.length
+                    + "] are not a multiple of the fixed length [" + fixedLength + "]");
+        }
+        final int count = bytes.length / fixedLength;
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeLong(MAGIC);
+        writeVarLong(data, count);
+        writeVarLong(data, fixedLength);
+        long prevTime = 0;
+        long prevDelta = 0;
+        for (int i = 0; i < count; i++) {
+            final long time = buffer.getLong(i * fixedLength);
+            final long delta = time - prevTime;
+            writeVarLong(data, zigZag(delta - prevDelta));
+            prevDelta = delta;
+            prevTime = time;
+        }
+        for (int column = Long.BYTES; column < fixedLength; column += Long.BYTES) {
+            long prevBits = 0;
+            for (int i = 0; i < count; i++) {
+                final long bits = buffer.getLong(i * fixedLength + column);
+                writeXor(data, bits ^ prevBits);
+                prevBits = bits;
+            }
+        }
+        data.flush();
+        out.close();
+    }
+
+    /**
+     * Byte aligned variant of the Gorilla XOR scheme: a control byte tells how many leading and trailing zero bytes
+     * were stripped, followed by the remaining meaningful bytes.
+     */
+    private static void writeXor(final DataOutputStream data, final long xor) throws IOException {
+        if (xor == 0L) {
+            data.writeByte(0);
+            return;
+        }
+        final int leadingZeroBytes = Long.numberOfLeadingZeros(xor) / Byte.SIZE;
+        final int trailingZeroBytes = Long.numberOfTrailingZeros(xor) / Byte.SIZE;
+        data.writeByte(1 + leadingZeroBytes * Byte.SIZE + trailingZeroBytes);
+        final int meaningfulBytes = Long.BYTES - leadingZeroBytes - trailingZeroBytes;
+        final long meaningful = xor >>> (trailingZeroBytes * Byte.SIZE);
+        for (int i = meaningfulBytes - 1; i >= 0; i--) {
+            data.writeByte((int) (meaningful >>> (i * Byte.SIZE)));
+        }
+    }
+
+    static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarLong(final DataOutputStream data, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0L) {
+            data.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        data.writeByte((int) remaining);
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Footer of a file that consists of independently compressed blocks. It records the offset, element count and the
+ * serialized first element of each block, so that readers can binary search for a block and decompress only that one.
+ *
+ * Layout: [block 0]...[block n-1][n x (int offset, int count, int firstLength, byte[] first)][int n][int
+ * footerLength][long magic]
+ */
+@Immutable
+public final class CompressedBlockIndex {
+
+    private static final long MAGIC = 0x69644C5A34424958L;
+    private static final int TRAILER_LENGTH = Integer.BYTES + Long.BYTES;
+
+    private final int[] offsets;
+    private final int[] counts;
+    private final byte[][] firstElements;
+    private final int dataLength;
+
+    CompressedBlockIndex(final int[] offsets, final int[] counts, final byte[][] firstElements,
+            final int dataLength) {
+        this.offsets = offsets;
+        this.counts = counts;
+        this.firstElements = firstElements;
+        this.dataLength = dataLength;
+    }
+
+    public int getBlockCount() {
+        return offsets.length;
+    }
+
+    public int getOffset(final int block) {
+        return offsets[block];
+    }
+
+    public int getLength(final int block) {
+        if (block == offsets.length - 1) {
+            return dataLength - offsets[block];
+        } else {
+            return offsets[block + 1] - offsets[block];
+        }
+    }
+
+    public int getCount(final int block) {
+        return counts[block];
+    }
+
+    public byte[] getFirstElement(final int block) {
+        return firstElements[block];
+    }
+
+    public ByteBuffer slice(final ByteBuffer buffer, final int block) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(getOffset(block) + getLength(block));
+        duplicate.position(getOffset(block));
+        return duplicate.slice();
+    }
+
+    public static void write(final DataOutputStream out, final List<Integer> offsets, final List<Integer> counts,
+            final List<byte[]> firstElements) throws IOException {
+        int footerLength = Integer.BYTES;
+        for (int i = 0; i < offsets.size(); i++) {
+            final byte[] firstElement = firstElements.get(i);
+            out.writeInt(offsets.get(i));
+            out.writeInt(counts.get(i));
+            out.writeInt(firstElement.length);
+            out.write(firstElement);
+            footerLength += Integer.BYTES * 3 + firstElement.length;
+        }
+        out.writeInt(offsets.size());
+        out.writeInt(footerLength);
+        out.writeLong(MAGIC);
+    }
+
+    /**
+     * Returns null if the buffer does not end with a block index footer, which is the case for files that were written
+     * as one single compressed stream.
+     */
+    public static CompressedBlockIndex read(final ByteBuffer buffer) {
+        final int limit = buffer.limit();
+        if (limit < TRAILER_LENGTH || buffer.getLong(limit - Long.BYTES) != MAGIC) {
+            return null;
+        }
+        final int footerLength = buffer.getInt(limit - TRAILER_LENGTH);
+        final int dataLength = limit - TRAILER_LENGTH - footerLength;
+        final int blockCount = buffer.getInt(limit - TRAILER_LENGTH - Integer.BYTES);
+        final int[] offsets = new int[blockCount];
+        final int[] counts = new int[blockCount];
+        final byte[][] firstElements = new byte[blockCount][];
+        int position = dataLength;
+        for (int i = 0; i < blockCount; i++) {
+            offsets[i] = buffer.getInt(position);
+            position += Integer.BYTES;
+            counts[i] = buffer.getInt(position);
+            position += Integer.BYTES;
+            final byte[] firstElement = new byte[buffer.getInt(position)];
+            position += Integer.BYTES;
+            for (int b = 0; b < firstElement.length; b++) {
+                firstElement[b] = buffer.get(position + b);
+            }
+            position += firstElement.length;
+            firstElements[i] = firstElement;
+        }
+        return new CompressedBlockIndex(offsets, counts, firstElements, dataLength);
+    }
+
+}
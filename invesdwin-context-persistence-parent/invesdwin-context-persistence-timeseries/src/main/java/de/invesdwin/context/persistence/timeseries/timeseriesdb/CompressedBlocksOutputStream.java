@@ -0,0 +1,173 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Splits the written elements into blocks of blockSize elements that are compressed independently from each other. A
+ * {@link CompressedBlockIndex} is appended as a footer on close.
+ */
+@NotThreadSafe
+public class CompressedBlocksOutputStream extends OutputStream {
+
+    private final CountingOutputStream out;
+    private final int blockSize;
+    private final Function<OutputStream, OutputStream> compressorFactory;
+    private final List<Integer> offsets = new ArrayList<>();
+    private final List<Integer> counts = new ArrayList<>();
+    private final List<byte[]> firstElements = new ArrayList<>();
+    private OutputStream block;
+    private int blockCount;
+    private boolean closed;
+    private int dataLength;
+
+    public CompressedBlocksOutputStream(final OutputStream out, final int blockSize,
+            final Function<OutputStream, OutputStream> compressorFactory) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize needs to be positive: " + blockSize);
+        }
+        this.out = new CountingOutputStream(out);
+        this.blockSize = blockSize;
+        this.compressorFactory = compressorFactory;
+    }
+
+    /**
+     * Needs to be called before the bytes of each element are written so that blocks are only split between elements.
+     */
+    public void onElement(final byte[] element) throws IOException {
+        if (block == null || blockCount >= blockSize) {
+            finishBlock();
+            offsets.add(out.count);
+            firstElements.add(element);
+            block = compressorFactory.apply(new CloseShieldOutputStream(out));
+        }
+        blockCount++;
+    }
+
+    private void finishBlock() throws IOException {
+        if (block != null) {
+            //finishes the compressed stream without closing the file
+            block.close();
+            block = null;
+            counts.add(blockCount);
+            blockCount = 0;
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        getBlock().write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        getBlock().write(b, off, len);
+    }
+
+    private OutputStream getBlock() {
+        if (block == null) {
+            throw new IllegalStateException("onElement(...) needs to be called before writing");
+        }
+        return block;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (block != null) {
+            block.flush();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finishBlock();
+        dataLength = out.count;
+        final DataOutputStream footer = new DataOutputStream(out);
+        CompressedBlockIndex.write(footer, offsets, counts, firstElements);
+        footer.flush();
+        out.close();
+    }
+
+    /**
+     * Describes the blocks that were written so far, the last one might still be in progress. Only the bytes up to the
+     * last flush are readable by others.
+     */
+    public CompressedBlockIndex newFlushedBlockIndex() {
+        final int blocks = offsets.size();
+        final int[] offsetsArray = new int[blocks];
+        final int[] countsArray = new int[blocks];
+        final byte[][] firstElementsArray = new byte[blocks][];
+        for (int i = 0; i < blocks; i++) {
+            offsetsArray[i] = offsets.get(i);
+            if (i < counts.size()) {
+                countsArray[i] = counts.get(i);
+            } else {
+                countsArray[i] = blockCount;
+            }
+            firstElementsArray[i] = firstElements.get(i);
+        }
+        final int length;
+        if (closed) {
+            length = dataLength;
+        } else {
+            length = out.count;
+        }
+        return new CompressedBlockIndex(offsetsArray, countsArray, firstElementsArray, length);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private int count;
+
+        private CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+    private static final class CloseShieldOutputStream extends FilterOutputStream {
+
+        private CloseShieldOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,231 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
+
+/**
+ * Process wide cache for decompressed chunk blocks that is shared by all time series keys. It is bounded by the total
+ * number of bytes instead of the number of entries, so that one memory budget can be configured regardless of how many
+ * instruments are loaded. The blocks of a chunk file are held together in one entry, so that invalidating a file that
+ * gets rewritten or deleted does not need to look at the blocks of other files.
+ */
+@ThreadSafe
+public final class DecompressedChunkCache {
+
+    /**
+     * Used as the block number when a file does not have a block index and is decompressed as a whole.
+     */
+    public static final int WHOLE_FILE_BLOCK = -1;
+
+    private static final DecompressedChunkCache INSTANCE = new DecompressedChunkCache(
+            TimeSeriesProperties.CHUNK_CACHE_MAXIMUM_BYTES, TimeSeriesProperties.CHUNK_CACHE_OFF_HEAP);
+    /**
+     * Block indexes are small compared to the blocks, thus they get a fraction of the budget.
+     */
+    private static final int BLOCK_INDEX_BUDGET_DIVISOR = 16;
+
+    private final Cache<String, ChunkBlocks> blocks;
+    private final Cache<String, Optional<CompressedBlockIndex>> blockIndexes;
+    private final boolean offHeap;
+
+    public DecompressedChunkCache(final long maximumBytes, final boolean offHeap) {
+        this.offHeap = offHeap;
+        if (maximumBytes > 0) {
+            this.blocks = Caffeine.newBuilder()
+                    .maximumWeight(maximumBytes)
+                    .weigher((final String key, final ChunkBlocks value) -> value.getWeight())
+                    .build();
+            this.blockIndexes = Caffeine.newBuilder()
+                    .maximumWeight(Math.max(1, maximumBytes / BLOCK_INDEX_BUDGET_DIVISOR))
+                    .weigher((final String key, final Optional<CompressedBlockIndex> value) -> weigh(value))
+                    .build();
+        } else {
+            this.blocks = null;
+            this.blockIndexes = null;
+        }
+    }
+
+    public static DecompressedChunkCache getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return blocks != null;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Returns a duplicate of the cached block so that callers can move the position freely.
+     */
+    public ByteBuffer getBlock(final File file, final int block, final IChunkLoader<ByteBuffer> loader)
+            throws IOException {
+        if (blocks == null) {
+            return loader.load();
+        }
+        final String key = file.getAbsolutePath();
+        final ChunkBlocks cached = blocks.getIfPresent(key);
+        if (cached != null) {
+            final ByteBuffer cachedBlock = cached.getBlock(block);
+            if (cachedBlock != null) {
+                return cachedBlock.duplicate();
+            }
+        }
+        final ByteBuffer loaded = store(loader.load());
+        //another thread might have loaded the same block in the mean time, keep the one that is already cached
+        final ChunkBlocks merged = blocks.asMap()
+                .merge(key, ChunkBlocks.EMPTY.withBlock(block, loaded), (existing, added) -> {
+                    if (existing.getBlock(block) != null) {
+                        return existing;
+                    } else {
+                        return existing.withBlock(block, loaded);
+                    }
+                });
+        return merged.getBlock(block).duplicate();
+    }
+
+    /**
+     * The returned index might be null when the file was written without a block index.
+     */
+    public CompressedBlockIndex getBlockIndex(final File file, final IChunkLoader<CompressedBlockIndex> loader)
+            throws IOException {
+        if (blockIndexes == null) {
+            return loader.load();
+        }
+        final String key = file.getAbsolutePath();
+        final Optional<CompressedBlockIndex> cached = blockIndexes.getIfPresent(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        final Optional<CompressedBlockIndex> loaded = Optional.ofNullable(loader.load());
+        blockIndexes.put(key, loaded);
+        return loaded.orElse(null);
+    }
+
+    private ByteBuffer store(final ByteBuffer decompressed) {
+        final ByteBuffer source = decompressed.duplicate();
+        final ByteBuffer copy;
+        if (offHeap) {
+            copy = ByteBuffer.allocateDirect(source.remaining());
+            copy.put(source);
+            copy.flip();
+        } else if (source.hasArray() && source.arrayOffset() == 0 && source.position() == 0
+                && source.remaining() == source.capacity()) {
+            //no need to copy the heap buffer that was just created by the loader
+            copy = source;
+        } else {
+            copy = ByteBuffer.allocate(source.remaining());
+            copy.put(source);
+            copy.flip();
+        }
+        return copy.asReadOnlyBuffer();
+    }
+
+    public void invalidate(final File file) {
+        if (blocks == null) {
+            return;
+        }
+        final String path = file.getAbsolutePath();
+        blockIndexes.invalidate(path);
+        blocks.invalidate(path);
+    }
+
+    public void invalidateDirectory(final File directory) {
+        if (blocks == null) {
+            return;
+        }
+        final String prefix = directory.getAbsolutePath() + File.separator;
+        blockIndexes.asMap().keySet().removeIf((key) -> key.startsWith(prefix));
+        blocks.asMap().keySet().removeIf((key) -> key.startsWith(prefix));
+    }
+
+    public void clear() {
+        if (blocks == null) {
+            return;
+        }
+        blockIndexes.invalidateAll();
+        blocks.invalidateAll();
+    }
+
+    private static int weigh(final Optional<CompressedBlockIndex> value) {
+        if (!value.isPresent()) {
+            return 1;
+        }
+        final CompressedBlockIndex blockIndex = value.get();
+        int weight = 0;
+        for (int i = 0; i < blockIndex.getBlockCount(); i++) {
+            weight += Integer.BYTES * 2 + blockIndex.getFirstElement(i).length;
+        }
+        return Math.max(1, weight);
+    }
+
+    @FunctionalInterface
+    public interface IChunkLoader<T> {
+        T load() throws IOException;
+    }
+
+    /**
+     * The decompressed blocks of one chunk file. Adding a block creates a new instance so that the cache can weigh the
+     * entry again.
+     */
+    @Immutable
+    private static final class ChunkBlocks {
+        private static final ChunkBlocks EMPTY = new ChunkBlocks(null, new ByteBuffer[0]);
+
+        private final ByteBuffer wholeFile;
+        private final ByteBuffer[] blocks;
+        private final int weight;
+
+        private ChunkBlocks(final ByteBuffer wholeFile, final ByteBuffer[] blocks) {
+            this.wholeFile = wholeFile;
+            this.blocks = blocks;
+            long capacity = 0;
+            if (wholeFile != null) {
+                capacity += wholeFile.capacity();
+            }
+            for (final ByteBuffer block : blocks) {
+                if (block != null) {
+                    capacity += block.capacity();
+                }
+            }
+            this.weight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, capacity));
+        }
+
+        public ByteBuffer getBlock(final int block) {
+            if (block == WHOLE_FILE_BLOCK) {
+                return wholeFile;
+            } else if (block < blocks.length) {
+                return blocks[block];
+            } else {
+                return null;
+            }
+        }
+
+        public ChunkBlocks withBlock(final int block, final ByteBuffer buffer) {
+            if (block == WHOLE_FILE_BLOCK) {
+                return new ChunkBlocks(buffer, blocks);
+            }
+            final ByteBuffer[] newBlocks = Arrays.copyOf(blocks, Math.max(blocks.length, block + 1));
+            newBlocks[block] = buffer;
+            return new ChunkBlocks(wholeFile, newBlocks);
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+}
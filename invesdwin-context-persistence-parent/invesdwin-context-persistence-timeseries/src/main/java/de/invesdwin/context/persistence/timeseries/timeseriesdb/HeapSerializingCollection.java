@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -38,6 +39,11 @@ public class HeapSerializingCollection<E> extends SerializingCollection<E> {
         }
     }
 
+    @Override
+    protected ByteBuffer newFileBuffer(final File file) throws IOException {
+        return ByteBuffer.wrap(getBytes());
+    }
+
     public byte[] getBytes() {
         if (bytes != null) {
             return bytes;
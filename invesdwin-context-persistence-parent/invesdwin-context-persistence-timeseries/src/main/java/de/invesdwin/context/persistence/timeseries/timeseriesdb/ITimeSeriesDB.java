@@ -2,6 +2,7 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.List;
 
 import de.invesdwin.util.collections.iterable.ICloseableIterable;
 import de.invesdwin.util.concurrent.lock.readwrite.IReadWriteLock;
@@ -20,10 +21,33 @@ public interface ITimeSeriesDB<K, V> extends Closeable {
      */
     ICloseableIterable<V> rangeReverseValues(K key, FDate from, FDate to);
 
+    /**
+     * Returns the number of values that rangeValues(key, from, to) would return, without deserializing all of them.
+     */
+    long count(K key, FDate from, FDate to);
+
+    /**
+     * Returns true when the values can be read into TimeValueColumns, which requires a fixed length ITimeValueSerde.
+     */
+    boolean isTimeValueColumnsSupported();
+
+    /**
+     * Appends the times and values of rangeValues(key, from, to) to the given columns without creating an object per
+     * value and returns the number of appended values. Throws an IllegalStateException when
+     * isTimeValueColumnsSupported() is false.
+     */
+    int rangeTimeValues(K key, FDate from, FDate to, TimeValueColumns columns);
+
     V getLatestValue(K key, FDate date);
 
     FDate getLatestValueKey(K key, FDate date);
 
+    /**
+     * Returns the same as getLatestValue(key, date) for each of the given dates in the same order. The dates need to be
+     * sorted ascending so that they can be resolved in a single forward pass instead of one lookup per date.
+     */
+    List<V> getLatestValues(K key, List<FDate> dates);
+
     /**
      * Jumps the specified shiftBackUnits to the past instead of only one unit. 0 results in current value.
      * 
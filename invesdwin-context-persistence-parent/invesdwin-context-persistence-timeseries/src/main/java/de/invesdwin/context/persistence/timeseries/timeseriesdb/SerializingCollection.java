@@ -2,6 +2,7 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -12,14 +13,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SerializationException;
 
 import de.invesdwin.context.ContextProperties;
@@ -57,6 +63,10 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
     private final File file;
     private final SerializingCollectionFinalizer finalizer;
     private final Integer fixedLength = getFixedLength();
+    private final Integer blockSize = getBlockSize();
+    private ByteBuffer cachedBuffer;
+    private CompressedBlockIndex cachedBlockIndex;
+    private boolean cachedBlockIndexLoaded;
     @SuppressWarnings("unchecked")
     private final Serde<E> serde = (Serde<E>) newSerde();
 
@@ -105,7 +115,13 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
                 throw new IllegalStateException("false expected");
             }
             try {
-                finalizer.fos = new DataOutputStream(newCompressor(newFileOutputStream(file)));
+                if (blockSize != null) {
+                    finalizer.blocks = new CompressedBlocksOutputStream(newFileOutputStream(file), blockSize,
+                            this::newCompressor);
+                    finalizer.fos = new DataOutputStream(finalizer.blocks);
+                } else {
+                    finalizer.fos = new DataOutputStream(newCompressor(newFileOutputStream(file)));
+                }
             } catch (final IOException e) {
                 throw new RuntimeException(e);
             }
@@ -125,6 +141,9 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
                 throw new IllegalStateException("bytes should contain actual data: " + element);
             }
             final DataOutputStream fos = getFos();
+            if (finalizer.blocks != null) {
+                finalizer.blocks.onElement(bytes);
+            }
             if (fixedLength == null) {
                 fos.writeInt(bytes.length);
                 fos.write(bytes);
@@ -175,6 +194,15 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
         return null;
     }
 
+    /**
+     * Override this to split the file into independently compressed blocks of the given number of elements. A block
+     * index gets appended as a footer, which allows readers to start decompressing at any block. Files without a footer
+     * can still be read when this is enabled. Such a collection can only be read after it was closed.
+     */
+    protected Integer getBlockSize() {
+        return null;
+    }
+
     /**
      * Closes this Iterable for more add() operations.
      */
@@ -211,9 +239,18 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
 
     @Override
     public ICloseableIterator<E> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Starts iterating at the given block, see {@link #getBlockIndex()}.
+     */
+    public ICloseableIterator<E> iterator(final int fromBlock) {
         if (size() > 0) {
             if (finalizer.closed) {
-                return newIterator();
+                return newIterator(fromBlock);
+            } else if (blockSize != null) {
+                throw new IllegalStateException("Block compressed collection needs to be closed before being read");
             } else {
                 try {
                     //need to flush contents so we can actually read them
@@ -222,7 +259,7 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
                     throw new RuntimeException(e);
                 }
                 //we allow iteration up to the current size
-                return new LimitingIterator<E>(newIterator(), size());
+                return new LimitingIterator<E>(newIterator(fromBlock), size());
             }
         } else {
             return EmptyCloseableIterator.getInstance();
@@ -231,6 +268,30 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
 
     @Override
     public ICloseableIterator<E> reverseIterator() {
+        return reverseIterator(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Starts iterating backwards at the given block (clamped to the last block), see {@link #getBlockIndex()}. Block
+     * compressed collections are read one block at a time from the end. Fixed length collections without blocks are
+     * decompressed into bytes first and deserialized backwards lazily. Only dynamic length collections without blocks
+     * need to be fully deserialized before the first element can be returned.
+     */
+    public ICloseableIterator<E> reverseIterator(final int fromBlock) {
+        if (size() == 0) {
+            return EmptyCloseableIterator.getInstance();
+        }
+        final CompressedBlockIndex blockIndex = getBlockIndex();
+        if (blockIndex != null) {
+            if (blockIndex.getBlockCount() == 0) {
+                return EmptyCloseableIterator.getInstance();
+            }
+            final int lastBlock = Math.min(fromBlock, blockIndex.getBlockCount() - 1);
+            return new ReverseDeserializingIterator(blockIndex, lastBlock);
+        }
+        if (fixedLength != null && fixedLength > 0) {
+            return new ReverseDeserializingIterator(readDecompressedBytes());
+        }
         final BufferingIterator<E> reverseIterator = new BufferingIterator<E>();
         try (ICloseableIterator<E> iterator = iterator()) {
             while (true) {
@@ -242,16 +303,166 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
         return reverseIterator;
     }
 
-    private ICloseableIterator<E> newIterator() {
+    private ByteBuffer readDecompressedBytes() {
+        try {
+            if (finalizer.closed) {
+                if (blockSize != null) {
+                    return newDecompressedBlock(DecompressedChunkCache.WHOLE_FILE_BLOCK);
+                }
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (InputStream in = newDecompressingInputStream(0)) {
+                    IOUtils.copy(in, bos);
+                } catch (final EOFException e) {
+                    //stream might not have been finished by a writer that is still open
+                }
+                return ByteBuffer.wrap(bos.toByteArray());
+            } else {
+                //need to flush contents so we can actually read them, though only up to the current size
+                finalizer.fos.flush();
+                final byte[] bytes = new byte[size() * fixedLength];
+                try (DataInputStream in = new DataInputStream(newDecompressingInputStream(0))) {
+                    in.readFully(bytes);
+                }
+                return ByteBuffer.wrap(bytes);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the decompressed bytes of the given block, or of the whole collection when it does not have a block
+     * index. Fixed length elements are stored back to back in it, which allows callers to decode them without
+     * deserializing objects.
+     */
+    public ByteBuffer getDecompressedBytes(final int block) {
+        if (getBlockIndex() == null) {
+            return readDecompressedBytes();
+        }
+        return getDecompressedBlockUnchecked(block);
+    }
+
+    private ICloseableIterator<E> newIterator(final int fromBlock) {
         final ICloseableIterator<E> iterator;
         if (fixedLength != null) {
-            iterator = new FixedLengthDeserializingIterator();
+            iterator = new FixedLengthDeserializingIterator(fromBlock);
         } else {
-            iterator = new DynamicLengthDeserializingIterator();
+            iterator = new DynamicLengthDeserializingIterator(fromBlock);
         }
         return iterator;
     }
 
+    /**
+     * Flushes and describes the blocks that were written so far by this open collection, the last block might still
+     * be in progress. Returns null if nothing was written yet or this collection is not block compressed.
+     */
+    public CompressedBlockIndex getFlushedBlockIndex() {
+        if (finalizer.blocks == null) {
+            return null;
+        }
+        flush();
+        return finalizer.blocks.newFlushedBlockIndex();
+    }
+
+    /**
+     * Returns null if this collection is not block compressed or the file was written without a block index.
+     */
+    public CompressedBlockIndex getBlockIndex() {
+        if (blockSize == null || !finalizer.closed) {
+            return null;
+        }
+        if (!cachedBlockIndexLoaded) {
+            try {
+                cachedBlockIndex = newBlockIndex();
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            cachedBlockIndexLoaded = true;
+        }
+        return cachedBlockIndex;
+    }
+
+    private ByteBuffer getBuffer() throws IOException {
+        if (cachedBuffer == null) {
+            //file does not change anymore after it was closed
+            cachedBuffer = newFileBuffer(file);
+        }
+        return cachedBuffer;
+    }
+
+    /**
+     * Drops the buffer of the file contents, a memory mapping gets released right away. Subclasses call this after
+     * reading when the buffer should not outlive the lock that protects the file.
+     */
+    protected void releaseFileBuffer() {
+        final ByteBuffer buffer = cachedBuffer;
+        cachedBuffer = null;
+        if (buffer instanceof MappedByteBuffer) {
+            ByteBufferInputStream.unmap((MappedByteBuffer) buffer);
+        }
+    }
+
+    /**
+     * Override this to cache the block index, the file is only read when this or {@link #newDecompressedBlock(int)}
+     * need it.
+     */
+    protected CompressedBlockIndex newBlockIndex() throws IOException {
+        return CompressedBlockIndex.read(getBuffer());
+    }
+
+    /**
+     * Override this to cache decompressed blocks. The block is {@link DecompressedChunkCache#WHOLE_FILE_BLOCK} when
+     * the file does not have a block index.
+     */
+    protected ByteBuffer newDecompressedBlock(final int block) throws IOException {
+        if (block == DecompressedChunkCache.WHOLE_FILE_BLOCK) {
+            return decompress(getBuffer().duplicate());
+        } else {
+            return decompress(getBlockIndex().slice(getBuffer(), block));
+        }
+    }
+
+    /**
+     * Decompresses the given bytes, a stream that was flushed but not finished yet is read up to the last flush.
+     */
+    protected ByteBuffer decompress(final ByteBuffer compressed) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream in = newDecompressor(new ByteBufferInputStream(compressed))) {
+            IOUtils.copy(in, bos);
+        } catch (final EOFException e) {
+            //file might have been written without being finished properly
+        }
+        return ByteBuffer.wrap(bos.toByteArray());
+    }
+
+    private InputStream newDecompressingInputStream(final int fromBlock) throws IOException {
+        if (blockSize == null) {
+            return newDecompressor(newFileInputStream(file));
+        }
+        final CompressedBlockIndex blockIndex = getBlockIndex();
+        if (blockIndex == null) {
+            return new ByteBufferInputStream(newDecompressedBlock(DecompressedChunkCache.WHOLE_FILE_BLOCK));
+        }
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int block = fromBlock;
+
+            @Override
+            public boolean hasMoreElements() {
+                return block < blockIndex.getBlockCount();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                final ByteBuffer decompressed = getDecompressedBlockUnchecked(block);
+                block++;
+                return new ByteBufferInputStream(decompressed);
+            }
+        });
+    }
+
     @Override
     public int size() {
         return size;
@@ -314,6 +525,15 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
         return new BufferedInputStream(new FileInputStream(file));
     }
 
+    /**
+     * Used for block compressed collections since the block index needs random access to the file contents.
+     */
+    protected ByteBuffer newFileBuffer(final File file) throws IOException {
+        try (InputStream in = newFileInputStream(file)) {
+            return ByteBuffer.wrap(IOUtils.toByteArray(in));
+        }
+    }
+
     protected OutputStream newFileOutputStream(final File file) throws IOException {
         return new BufferedOutputStream(new FileOutputStream(file));
     }
@@ -322,12 +542,12 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
     private final class DynamicLengthDeserializingIterator extends ACloseableIterator<E> {
         private final DynamicLengthDeserializingIteratorFinalizer<E> finalizer;
 
-        private DynamicLengthDeserializingIterator() {
+        private DynamicLengthDeserializingIterator(final int fromBlock) {
             super(new TextDescription("%s: %s.%s: %s", name, SerializingCollection.class.getSimpleName(),
                     DynamicLengthDeserializingIteratorFinalizer.class.getSimpleName(), file));
             finalizer = new DynamicLengthDeserializingIteratorFinalizer<>();
             try {
-                finalizer.inputStream = new DataInputStream(newDecompressor(newFileInputStream(file)));
+                finalizer.inputStream = new DataInputStream(newDecompressingInputStream(fromBlock));
             } catch (final IOException e) {
                 throw new RuntimeException(e);
             }
@@ -428,12 +648,12 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
 
         private final FixedLengthDeserializingIteratorFinalizer<E> finalizer;
 
-        private FixedLengthDeserializingIterator() {
+        private FixedLengthDeserializingIterator(final int fromBlock) {
             super(new TextDescription("%s: %s.%s: %s", name, SerializingCollection.class.getSimpleName(),
                     FixedLengthDeserializingIterator.class.getSimpleName(), file));
             this.finalizer = new FixedLengthDeserializingIteratorFinalizer<>();
             try {
-                this.finalizer.inputStream = new DataInputStream(newDecompressor(newFileInputStream(file)));
+                this.finalizer.inputStream = new DataInputStream(newDecompressingInputStream(fromBlock));
                 this.finalizer.byteBuffer = new byte[fixedLength];
             } catch (final IOException e) {
                 throw new RuntimeException(e);
@@ -523,6 +743,127 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
         }
     }
 
+    /**
+     * Deserializes one decompressed block at a time backwards, thus only holding one block in memory.
+     */
+    @NotThreadSafe
+    private final class ReverseDeserializingIterator extends ACloseableIterator<E> {
+
+        private final CompressedBlockIndex blockIndex;
+        private int nextBlock;
+        private ByteBuffer bytes;
+        private int[] offsets;
+        private int remaining;
+        private byte[] elementBytes;
+
+        private ReverseDeserializingIterator(final CompressedBlockIndex blockIndex, final int lastBlock) {
+            super(new TextDescription("%s: %s.%s: %s", name, SerializingCollection.class.getSimpleName(),
+                    ReverseDeserializingIterator.class.getSimpleName(), file));
+            this.blockIndex = blockIndex;
+            this.nextBlock = lastBlock;
+        }
+
+        private ReverseDeserializingIterator(final ByteBuffer bytes) {
+            super(new TextDescription("%s: %s.%s: %s", name, SerializingCollection.class.getSimpleName(),
+                    ReverseDeserializingIterator.class.getSimpleName(), file));
+            this.blockIndex = null;
+            this.nextBlock = -1;
+            setBytes(bytes);
+        }
+
+        private boolean loadNextBlock() {
+            if (blockIndex == null || nextBlock < 0) {
+                return false;
+            }
+            setBytes(getDecompressedBlockUnchecked(nextBlock));
+            nextBlock--;
+            return true;
+        }
+
+        private void setBytes(final ByteBuffer bytes) {
+            //absolute access relative to the start of the decompressed bytes
+            this.bytes = bytes.slice();
+            final int length = this.bytes.remaining();
+            if (fixedLength != null) {
+                if (elementBytes == null) {
+                    elementBytes = new byte[fixedLength];
+                }
+                remaining = length / fixedLength;
+            } else {
+                //need to find the element boundaries by walking forward once
+                final List<Integer> positions = new ArrayList<>();
+                int position = 0;
+                while (position + Integer.BYTES <= length) {
+                    final int next = position + Integer.BYTES + this.bytes.getInt(position);
+                    if (next > length) {
+                        break;
+                    }
+                    positions.add(position);
+                    position = next;
+                }
+                offsets = new int[positions.size()];
+                for (int i = 0; i < offsets.length; i++) {
+                    offsets[i] = positions.get(i);
+                }
+                remaining = offsets.length;
+            }
+        }
+
+        @Override
+        protected boolean innerHasNext() {
+            while (remaining == 0) {
+                if (!loadNextBlock()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected E innerNext() {
+            if (!innerHasNext()) {
+                throw new FastNoSuchElementException(
+                        "SerializingCollection.ReverseDeserializingIterator: no more elements");
+            }
+            remaining--;
+            if (fixedLength != null) {
+                copy(remaining * fixedLength, elementBytes);
+                return serde.fromBytes(elementBytes);
+            } else {
+                final int offset = offsets[remaining];
+                final byte[] element = new byte[bytes.getInt(offset)];
+                copy(offset + Integer.BYTES, element);
+                return serde.fromBytes(element);
+            }
+        }
+
+        private void copy(final int offset, final byte[] dst) {
+            //works for heap and direct buffers
+            final ByteBuffer duplicate = bytes.duplicate();
+            duplicate.position(offset);
+            duplicate.get(dst);
+        }
+
+        @Override
+        protected void innerClose() {
+            //free memory
+            bytes = null;
+            offsets = null;
+            elementBytes = null;
+            remaining = 0;
+            nextBlock = -1;
+        }
+
+    }
+
+    private ByteBuffer getDecompressedBlockUnchecked(final int block) {
+        try {
+            return newDecompressedBlock(block);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public boolean remove(final Object o) {
         throw new UnsupportedOperationException();
@@ -546,12 +887,14 @@ public class SerializingCollection<E> implements Collection<E>, IReverseCloseabl
     private static final class SerializingCollectionFinalizer extends AFinalizer {
 
         private DataOutputStream fos;
+        private CompressedBlocksOutputStream blocks;
         private boolean closed;
 
         @Override
         protected void clean() {
             Closeables.closeQuietly(fos);
             fos = null;
+            blocks = null;
             closed = true;
         }
 
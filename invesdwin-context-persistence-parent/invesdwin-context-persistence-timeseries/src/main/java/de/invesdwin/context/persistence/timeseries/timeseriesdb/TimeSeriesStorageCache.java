@@ -1,14 +1,17 @@
 package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
@@ -19,14 +22,13 @@ import javax.annotation.concurrent.NotThreadSafe;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SerializationException;
-import org.apache.commons.lang3.mutable.MutableInt;
 
 import de.invesdwin.context.integration.retry.RetryLaterRuntimeException;
 import de.invesdwin.context.log.Log;
 import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable.DelegateTableIterator;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkFileReferences.ChunkFileReference;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ChunkValue;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ISkipFileFunction;
-import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ShiftUnitsRangeKey;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.SingleValue;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.TimeSeriesStorage;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
@@ -41,18 +43,17 @@ import de.invesdwin.util.collections.iterable.EmptyCloseableIterator;
 import de.invesdwin.util.collections.iterable.FlatteningIterator;
 import de.invesdwin.util.collections.iterable.ICloseableIterable;
 import de.invesdwin.util.collections.iterable.ICloseableIterator;
-import de.invesdwin.util.collections.iterable.IReverseCloseableIterable;
-import de.invesdwin.util.collections.iterable.buffer.BufferingIterator;
 import de.invesdwin.util.collections.loadingcache.ALoadingCache;
 import de.invesdwin.util.collections.loadingcache.historical.AHistoricalCache;
 import de.invesdwin.util.concurrent.lock.disabled.DisabledLock;
-import de.invesdwin.util.concurrent.reference.MutableReference;
 import de.invesdwin.util.error.FastNoSuchElementException;
 import de.invesdwin.util.error.Throwables;
+import de.invesdwin.util.error.UnknownArgumentException;
 import de.invesdwin.util.lang.Files;
 import de.invesdwin.util.lang.description.TextDescription;
 import de.invesdwin.util.time.date.FDate;
 import ezdb.TableRow;
+import ezdb.batch.RangeBatch;
 import ezdb.serde.Serde;
 
 // CHECKSTYLE:OFF ClassDataAbstractionCoupling
@@ -60,6 +61,18 @@ import ezdb.serde.Serde;
 public class TimeSeriesStorageCache<K, V> {
     //CHECKSTYLE:ON
     public static final Integer MAXIMUM_SIZE = 1_000;
+    /**
+     * Rough heap usage of one cached lookup entry without the value itself (key, node and loading cache structures).
+     */
+    public static final int ESTIMATED_ENTRY_OVERHEAD_BYTES = 128;
+    /**
+     * Used as the value size when the serde does not have a fixed length.
+     */
+    public static final int ESTIMATED_VALUE_BYTES = 64;
+    /**
+     * Rough heap usage of this instance when all caches are empty.
+     */
+    public static final int ESTIMATED_BASE_BYTES = 2048;
     public static final EvictionMode EVICTION_MODE = AHistoricalCache.EVICTION_MODE;
 
     private final TimeSeriesStorage storage;
@@ -91,7 +104,8 @@ public class TimeSeriesStorageCache<K, V> {
                             final SerializingCollection<V> serializingCollection = newSerializingCollection(
                                     "latestValueLookupCache.loadValue", file, DisabledLock.INSTANCE);
                             V latestValue = null;
-                            try (ICloseableIterator<V> it = serializingCollection.iterator()) {
+                            try (ICloseableIterator<V> it = serializingCollection
+                                    .iterator(findLatestBlock(serializingCollection, key, true))) {
                                 while (true) {
                                     final V newValue = it.next();
                                     final FDate newValueTime = extractEndTime.apply(newValue);
@@ -135,39 +149,14 @@ public class TimeSeriesStorageCache<K, V> {
         protected V loadValue(final Pair<FDate, Integer> key) {
             final FDate date = key.getFirst();
             final int shiftBackUnits = key.getSecond();
-            final SingleValue value = storage.getPreviousValueLookupTable()
-                    .getOrLoad(hashKey, new ShiftUnitsRangeKey(date, shiftBackUnits),
-                            new Function<Pair<String, ShiftUnitsRangeKey>, SingleValue>() {
-
-                                @Override
-                                public SingleValue apply(final Pair<String, ShiftUnitsRangeKey> input) {
-                                    final FDate date = key.getFirst();
-                                    final int shiftBackUnits = key.getSecond();
-                                    final MutableReference<V> previousValue = new MutableReference<>();
-                                    final MutableInt shiftBackRemaining = new MutableInt(shiftBackUnits);
-                                    try (ICloseableIterator<V> rangeValuesReverse = readRangeValuesReverse(date, null,
-                                            DisabledLock.INSTANCE, new ISkipFileFunction() {
-                                                @Override
-                                                public boolean skipFile(final ChunkValue file) {
-                                                    final boolean skip = previousValue.get() != null
-                                                            && file.getCount() < shiftBackRemaining.intValue();
-                                                    if (skip) {
-                                                        shiftBackRemaining.subtract(file.getCount());
-                                                    }
-                                                    return skip;
-                                                }
-                                            })) {
-                                        while (shiftBackRemaining.intValue() >= 0) {
-                                            previousValue.set(rangeValuesReverse.next());
-                                            shiftBackRemaining.decrement();
-                                        }
-                                    } catch (final NoSuchElementException e) {
-                                        //ignore
-                                    }
-                                    return new SingleValue(valueSerde, previousValue.get());
-                                }
-                            });
-            return value.getValue(valueSerde);
+            //the caller holds the read lock already
+            final ChunkFileSnapshot snapshot = acquireSnapshot(DisabledLock.INSTANCE);
+            try {
+                final long index = countValues(snapshot, date, true) - 1;
+                return getValueAt(snapshot, Math.max(0, index - shiftBackUnits));
+            } finally {
+                snapshot.release();
+            }
         }
     };
     private final ALoadingCache<Pair<FDate, Integer>, V> nextValueLookupCache = new ALoadingCache<Pair<FDate, Integer>, V>() {
@@ -186,56 +175,14 @@ public class TimeSeriesStorageCache<K, V> {
         protected V loadValue(final Pair<FDate, Integer> key) {
             final FDate date = key.getFirst();
             final int shiftForwardUnits = key.getSecond();
-            final SingleValue value = storage.getNextValueLookupTable()
-                    .getOrLoad(hashKey, new ShiftUnitsRangeKey(date, shiftForwardUnits),
-                            new Function<Pair<String, ShiftUnitsRangeKey>, SingleValue>() {
-
-                                @Override
-                                public SingleValue apply(final Pair<String, ShiftUnitsRangeKey> input) {
-                                    final FDate date = key.getFirst();
-                                    final int shiftForwardUnits = key.getSecond();
-                                    final MutableReference<V> nextValue = new MutableReference<>();
-                                    final MutableInt shiftForwardRemaining = new MutableInt(shiftForwardUnits);
-                                    try (ICloseableIterator<V> rangeValues = readRangeValues(date, null,
-                                            DisabledLock.INSTANCE, new ISkipFileFunction() {
-                                                @Override
-                                                public boolean skipFile(final ChunkValue file) {
-                                                    final boolean skip = nextValue.get() != null
-                                                            && file.getCount() < shiftForwardRemaining.intValue();
-                                                    if (skip) {
-                                                        shiftForwardRemaining.subtract(file.getCount());
-                                                    }
-                                                    return skip;
-                                                }
-                                            })) {
-                                        while (shiftForwardRemaining.intValue() >= 0) {
-                                            nextValue.set(rangeValues.next());
-                                            shiftForwardRemaining.decrement();
-                                        }
-                                    } catch (final NoSuchElementException e) {
-                                        //ignore
-                                    }
-                                    return new SingleValue(valueSerde, nextValue.get());
-                                }
-                            });
-            return value.getValue(valueSerde);
-        }
-    };
-    private final ALoadingCache<FDate, TableRow<String, FDate, ChunkValue>> fileLookupTable_latestRangeKeyCache = new ALoadingCache<FDate, TableRow<String, FDate, ChunkValue>>() {
-
-        @Override
-        protected Integer getInitialMaximumSize() {
-            return MAXIMUM_SIZE;
-        }
-
-        @Override
-        protected EvictionMode getEvictionMode() {
-            return EVICTION_MODE;
-        }
-
-        @Override
-        protected TableRow<String, FDate, ChunkValue> loadValue(final FDate key) {
-            return storage.getFileLookupTable().getLatest(hashKey, key);
+            //the caller holds the read lock already
+            final ChunkFileSnapshot snapshot = acquireSnapshot(DisabledLock.INSTANCE);
+            try {
+                final long index = countValues(snapshot, date, false);
+                return getValueAt(snapshot, Math.min(snapshot.getValueCount() - 1, index + shiftForwardUnits));
+            } finally {
+                snapshot.release();
+            }
         }
     };
 
@@ -243,6 +190,7 @@ public class TimeSeriesStorageCache<K, V> {
     private final Serde<V> valueSerde;
     private final Integer fixedLength;
     private final Function<V, FDate> extractEndTime;
+    private final ChunkReadMode chunkReadMode;
     @GuardedBy("this")
     private File dataDirectory;
 
@@ -252,19 +200,42 @@ public class TimeSeriesStorageCache<K, V> {
      * keeping the range keys outside of the concurrent linked hashmap of the ADelegateRangeTable with memory write
      * through to disk is still better for increased parallelity and for not having to iterate through each element of
      * the other hashkeys.
+     *
+     * Range readers iterate over this published version without holding the table lock. Writers keep it valid until
+     * they publish the next version, since the chunk files it contains are pinned and only get retired instead of
+     * deleted.
      */
-    private volatile ICloseableIterable<TableRow<String, FDate, ChunkValue>> cachedAllRangeKeys;
-    private volatile ICloseableIterable<TableRow<String, FDate, ChunkValue>> cachedAllRangeKeysReverse;
+    private volatile ChunkFileSnapshot publishedSnapshot;
     private final Log log = new Log(this);
     private Map<FDate, File> redirectedFiles;
+    /**
+     * Set during an incremental update (only accessed while holding the write lock of the key), values before this date
+     * stay the same, so cached lookups for them do not need to be invalidated.
+     */
+    private FDate incrementalUpdateFrom;
+    /**
+     * Set together with incrementalUpdateFrom, when the redone chunk was the only one the first value changes as well.
+     */
+    private boolean incrementalFirstChunkRewritten;
+    private volatile long lastAccessNanos = System.nanoTime();
+    /**
+     * Set when this instance got removed from its table, it is still usable by callers that already obtained it, but it
+     * should not publish snapshots anymore since nobody would release them.
+     */
+    private volatile boolean evicted;
 
     public TimeSeriesStorageCache(final TimeSeriesStorage storage, final String hashKey, final Serde<V> valueSerde,
-            final Integer fixedLength, final Function<V, FDate> extractTime) {
+            final Integer fixedLength, final Function<V, FDate> extractTime, final ChunkReadMode chunkReadMode) {
         this.storage = storage;
         this.hashKey = hashKey;
         this.valueSerde = valueSerde;
         this.fixedLength = fixedLength;
         this.extractEndTime = extractTime;
+        this.chunkReadMode = chunkReadMode;
+    }
+
+    public ChunkReadMode getChunkReadMode() {
+        return chunkReadMode;
     }
 
     public synchronized File getDataDirectory() {
@@ -305,98 +276,84 @@ public class TimeSeriesStorageCache<K, V> {
             redirectedFiles = ILockCollectionFactory.getInstance(true).newConcurrentMap();
         }
         Assertions.checkNull(redirectedFiles.put(time, redirect));
+        releaseSnapshot();
     }
 
     public void finishFile(final FDate time, final V firstValue, final V lastValue, final int count) {
         storage.getFileLookupTable().put(hashKey, time, new ChunkValue(valueSerde, firstValue, lastValue, count));
-        clearCaches();
+        DecompressedChunkCache.getInstance().invalidate(newFile(time));
+        if (incrementalUpdateFrom != null) {
+            invalidateCaches(incrementalUpdateFrom, incrementalFirstChunkRewritten);
+        } else {
+            clearCaches();
+        }
     }
 
-    protected ICloseableIterable<File> readRangeFiles(final FDate from, final FDate to, final Lock readLock,
-            final ISkipFileFunction skipFileFunction) {
-        return new ICloseableIterable<File>() {
+    protected ICloseableIterable<ChunkFileReference> readRangeFiles(final FDate from, final FDate to,
+            final Lock readLock, final ISkipFileFunction skipFileFunction) {
+        return new ICloseableIterable<ChunkFileReference>() {
 
             @Override
-            public ICloseableIterator<File> iterator() {
-                final FDate usedFrom;
+            public ICloseableIterator<ChunkFileReference> iterator() {
+                final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+                //use latest chunk available even if the range itself contains no chunks
+                final int fromIndex;
                 if (from == null) {
-                    final V firstValue = getFirstValue();
-                    if (firstValue == null) {
-                        return EmptyCloseableIterator.getInstance();
-                    }
-                    usedFrom = extractEndTime.apply(firstValue);
+                    fromIndex = snapshot.isEmpty() ? -1 : 0;
+                } else {
+                    fromIndex = snapshot.getLatestIndex(from);
+                }
+                if (fromIndex < 0) {
+                    snapshot.release();
+                    return EmptyCloseableIterator.getInstance();
+                }
+                final int toIndex;
+                if (to == null) {
+                    toIndex = snapshot.size() - 1;
                 } else {
-                    usedFrom = from;
+                    toIndex = Math.max(fromIndex, snapshot.getLatestIndex(to));
                 }
-                return new ACloseableIterator<File>(new TextDescription("%s[%s]: readRangeFiles(%s, %s)",
+                return new ACloseableIterator<ChunkFileReference>(new TextDescription("%s[%s]: readRangeFiles(%s, %s)",
                         TimeSeriesStorageCache.class.getSimpleName(), hashKey, from, to)) {
 
-                    //use latest time available even if delegate iterator has no values
-                    private TableRow<String, FDate, ChunkValue> latestFirstTime = fileLookupTable_latestRangeKeyCache
-                            .get(usedFrom);
-                    private final ICloseableIterator<TableRow<String, FDate, ChunkValue>> delegate;
+                    private int index = fromIndex;
+                    private int skipCheckedIndex = fromIndex;
 
-                    {
-                        if (latestFirstTime == null) {
-                            delegate = EmptyCloseableIterator.getInstance();
-                        } else {
-                            delegate = getRangeKeys(hashKey, latestFirstTime.getRangeKey().addMilliseconds(1), to);
+                    private void maybeSkipFiles() {
+                        if (skipFileFunction == null) {
+                            return;
+                        }
+                        /*
+                         * the first and the last file are never skipped: cannot optimize this further for multiple
+                         * segments because we don't know if a segment further back might be empty or not and thus the
+                         * last segment of interest might have been the previous one from which we skipped the last
+                         * file falsely
+                         */
+                        while (index > skipCheckedIndex && index < toIndex) {
+                            skipCheckedIndex = index;
+                            if (skipFileFunction.skipFile(snapshot.getRow(index).getValue())) {
+                                index++;
+                            }
                         }
                     }
 
                     @Override
                     protected boolean innerHasNext() {
-                        return latestFirstTime != null || delegate.hasNext();
-                    }
-
-                    private ICloseableIterator<TableRow<String, FDate, ChunkValue>> getRangeKeys(final String hashKey,
-                            final FDate from, final FDate to) {
-                        readLock.lock();
-                        try {
-                            final ICloseableIterator<TableRow<String, FDate, ChunkValue>> range = getAllRangeKeys(
-                                    readLock);
-                            final GetRangeKeysIterator rangeFiltered = new GetRangeKeysIterator(range, from, to);
-                            final BufferingIterator<TableRow<String, FDate, ChunkValue>> buffer = new BufferingIterator<>(
-                                    rangeFiltered);
-                            if (skipFileFunction != null) {
-                                return new ASkippingIterator<TableRow<String, FDate, ChunkValue>>(buffer) {
-                                    @Override
-                                    protected boolean skip(final TableRow<String, FDate, ChunkValue> element) {
-                                        if (element == buffer.getTail()) {
-                                            /*
-                                             * cannot optimize this further for multiple segments because we don't know
-                                             * if a segment further back might be empty or not and thus the last segment
-                                             * of interest might have been the previous one from which we skipped the
-                                             * last file falsely
-                                             */
-                                            return false;
-                                        }
-                                        return skipFileFunction.skipFile(element.getValue());
-                                    }
-                                };
-                            } else {
-                                return buffer;
-                            }
-                        } finally {
-                            readLock.unlock();
-                        }
+                        maybeSkipFiles();
+                        return index <= toIndex;
                     }
 
                     @Override
-                    protected File innerNext() {
-                        final FDate time;
-                        if (latestFirstTime != null) {
-                            time = latestFirstTime.getRangeKey();
-                            latestFirstTime = null;
-                        } else {
-                            time = delegate.next().getRangeKey();
+                    protected ChunkFileReference innerNext() {
+                        if (!innerHasNext()) {
+                            throw new FastNoSuchElementException("readRangeFiles reached end");
                         }
-                        return newFile(time);
+                        return snapshot.getFile(index++);
                     }
 
                     @Override
                     protected void innerClose() {
-                        delegate.close();
+                        snapshot.release();
                     }
 
                 };
@@ -404,95 +361,71 @@ public class TimeSeriesStorageCache<K, V> {
         };
     }
 
-    protected ICloseableIterable<File> readRangeFilesReverse(final FDate from, final FDate to, final Lock readLock,
-            final ISkipFileFunction skipFileFunction) {
-        return new ICloseableIterable<File>() {
+    protected ICloseableIterable<ChunkFileReference> readRangeFilesReverse(final FDate from, final FDate to,
+            final Lock readLock, final ISkipFileFunction skipFileFunction) {
+        return new ICloseableIterable<ChunkFileReference>() {
 
             @Override
-            public ICloseableIterator<File> iterator() {
-                final FDate usedFrom;
+            public ICloseableIterator<ChunkFileReference> iterator() {
+                final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+                //use latest chunk available even if the range itself contains no chunks
+                final int fromIndex;
                 if (from == null) {
-                    final V lastValue = getLastValue();
-                    if (lastValue == null) {
-                        return EmptyCloseableIterator.getInstance();
-                    }
-                    usedFrom = extractEndTime.apply(lastValue);
+                    fromIndex = snapshot.size() - 1;
                 } else {
-                    usedFrom = from;
+                    fromIndex = snapshot.getLatestIndex(from);
                 }
-                return new ACloseableIterator<File>(new TextDescription("%s[%s]: readRangeFilesReverse(%s, %s)",
-                        TimeSeriesStorageCache.class.getSimpleName(), hashKey, from, to)) {
+                if (fromIndex < 0) {
+                    snapshot.release();
+                    return EmptyCloseableIterator.getInstance();
+                }
+                final int toIndex;
+                if (to == null) {
+                    toIndex = 0;
+                } else {
+                    int firstNotBefore = snapshot.getLatestIndex(to);
+                    if (snapshot.getRow(firstNotBefore).getRangeKey().isBefore(to)) {
+                        firstNotBefore++;
+                    }
+                    toIndex = Math.min(fromIndex, firstNotBefore);
+                }
+                return new ACloseableIterator<ChunkFileReference>(new TextDescription(
+                        "%s[%s]: readRangeFilesReverse(%s, %s)", TimeSeriesStorageCache.class.getSimpleName(),
+                        hashKey, from, to)) {
 
-                    //use latest time available even if delegate iterator has no values
-                    private TableRow<String, FDate, ChunkValue> latestLastTime = fileLookupTable_latestRangeKeyCache
-                            .get(usedFrom);
-                    // add 1 ms to not collide with firstTime
-                    private final ICloseableIterator<TableRow<String, FDate, ChunkValue>> delegate;
+                    private int index = fromIndex;
+                    private int skipCheckedIndex = fromIndex;
 
-                    {
-                        if (latestLastTime == null) {
-                            delegate = EmptyCloseableIterator.getInstance();
-                        } else {
-                            delegate = getRangeKeysReverse(hashKey, latestLastTime.getRangeKey().addMilliseconds(-1),
-                                    to);
+                    private void maybeSkipFiles() {
+                        if (skipFileFunction == null) {
+                            return;
+                        }
+                        //the first and the last file are never skipped, see readRangeFiles
+                        while (index < skipCheckedIndex && index > toIndex) {
+                            skipCheckedIndex = index;
+                            if (skipFileFunction.skipFile(snapshot.getRow(index).getValue())) {
+                                index--;
+                            }
                         }
                     }
 
                     @Override
                     protected boolean innerHasNext() {
-                        return latestLastTime != null || delegate.hasNext();
-                    }
-
-                    private ICloseableIterator<TableRow<String, FDate, ChunkValue>> getRangeKeysReverse(
-                            final String hashKey, final FDate from, final FDate to) {
-                        readLock.lock();
-                        try {
-                            final ICloseableIterator<TableRow<String, FDate, ChunkValue>> range = getAllRangeKeysReverse(
-                                    readLock);
-                            final GetRangeKeysReverseIterator rangeFiltered = new GetRangeKeysReverseIterator(range,
-                                    from, to);
-                            final BufferingIterator<TableRow<String, FDate, ChunkValue>> buffer = new BufferingIterator<>(
-                                    rangeFiltered);
-                            if (skipFileFunction != null) {
-                                return new ASkippingIterator<TableRow<String, FDate, ChunkValue>>(buffer) {
-
-                                    @Override
-                                    protected boolean skip(final TableRow<String, FDate, ChunkValue> element) {
-                                        if (element == buffer.getTail()) {
-                                            /*
-                                             * cannot optimize this further for multiple segments because we don't know
-                                             * if a segment further back might be empty or not and thus the last segment
-                                             * of interest might have been the previous one from which we skipped the
-                                             * last file falsely
-                                             */
-                                            return false;
-                                        }
-                                        return skipFileFunction.skipFile(element.getValue());
-                                    }
-                                };
-                            } else {
-                                return buffer;
-                            }
-                        } finally {
-                            readLock.unlock();
-                        }
+                        maybeSkipFiles();
+                        return index >= toIndex;
                     }
 
                     @Override
-                    protected File innerNext() {
-                        final FDate time;
-                        if (latestLastTime != null) {
-                            time = latestLastTime.getRangeKey();
-                            latestLastTime = null;
-                        } else {
-                            time = delegate.next().getRangeKey();
+                    protected ChunkFileReference innerNext() {
+                        if (!innerHasNext()) {
+                            throw new FastNoSuchElementException("readRangeFilesReverse reached end");
                         }
-                        return newFile(time);
+                        return snapshot.getFile(index--);
                     }
 
                     @Override
                     protected void innerClose() {
-                        delegate.close();
+                        snapshot.release();
                     }
 
                 };
@@ -502,17 +435,19 @@ public class TimeSeriesStorageCache<K, V> {
 
     public ICloseableIterator<V> readRangeValues(final FDate from, final FDate to, final Lock readLock,
             final ISkipFileFunction skipFileFunction) {
-        final ICloseableIterator<File> fileIterator = readRangeFiles(from, to, readLock, skipFileFunction).iterator();
-        final ICloseableIterator<ICloseableIterator<V>> chunkIterator = new ATransformingIterator<File, ICloseableIterator<V>>(
+        final ICloseableIterator<ChunkFileReference> fileIterator = readRangeFiles(from, to, readLock,
+                skipFileFunction).iterator();
+        final ICloseableIterator<ICloseableIterator<V>> chunkIterator = new ATransformingIterator<ChunkFileReference, ICloseableIterator<V>>(
                 fileIterator) {
             @Override
-            protected ICloseableIterator<V> transform(final File value) {
-                final ICloseableIterable<V> serializingCollection = newSerializingCollection("readRangeValues", value,
-                        readLock);
+            protected ICloseableIterator<V> transform(final ChunkFileReference value) {
+                final SerializingCollection<V> serializingCollection = newSerializingCollection("readRangeValues",
+                        value);
                 if (from == null && to == null) {
                     return serializingCollection.iterator();
                 } else {
-                    return new ASkippingIterator<V>(serializingCollection.iterator()) {
+                    final int fromBlock = from == null ? 0 : findLatestBlock(serializingCollection, from, false);
+                    return new ASkippingIterator<V>(serializingCollection.iterator(fromBlock)) {
                         @Override
                         protected boolean skip(final V element) {
                             final FDate time = extractEndTime.apply(element);
@@ -535,18 +470,20 @@ public class TimeSeriesStorageCache<K, V> {
 
     public ICloseableIterator<V> readRangeValuesReverse(final FDate from, final FDate to, final Lock readLock,
             final ISkipFileFunction skipFileFunction) {
-        final ICloseableIterator<File> fileIterator = readRangeFilesReverse(from, to, readLock, skipFileFunction)
-                .iterator();
-        final ICloseableIterator<ICloseableIterator<V>> chunkIterator = new ATransformingIterator<File, ICloseableIterator<V>>(
+        final ICloseableIterator<ChunkFileReference> fileIterator = readRangeFilesReverse(from, to, readLock,
+                skipFileFunction).iterator();
+        final ICloseableIterator<ICloseableIterator<V>> chunkIterator = new ATransformingIterator<ChunkFileReference, ICloseableIterator<V>>(
                 fileIterator) {
             @Override
-            protected ICloseableIterator<V> transform(final File value) {
-                final IReverseCloseableIterable<V> serializingCollection = newSerializingCollection(
-                        "readRangeValuesReverse", value, readLock);
+            protected ICloseableIterator<V> transform(final ChunkFileReference value) {
+                final SerializingCollection<V> serializingCollection = newSerializingCollection(
+                        "readRangeValuesReverse", value);
                 if (from == null && to == null) {
                     return serializingCollection.reverseIterator();
                 } else {
-                    return new ASkippingIterator<V>(serializingCollection.reverseIterator()) {
+                    final int fromBlock = from == null ? Integer.MAX_VALUE
+                            : findLatestBlock(serializingCollection, from, true);
+                    return new ASkippingIterator<V>(serializingCollection.reverseIterator(fromBlock)) {
                         @Override
                         protected boolean skip(final V element) {
                             final FDate time = extractEndTime.apply(element);
@@ -568,6 +505,21 @@ public class TimeSeriesStorageCache<K, V> {
 
     private SerializingCollection<V> newSerializingCollection(final String method, final File file,
             final Lock readLock) {
+        return newSerializingCollection(method, file, readLock, null);
+    }
+
+    private SerializingCollection<V> newSerializingCollection(final String method,
+            final ChunkFileReference reference) {
+        return newSerializingCollection(method, reference.getFile(), reference.getReadLock(), reference);
+    }
+
+    /**
+     * A referenced file might get retired (moved) while the collection is in use, thus its current location is
+     * resolved while holding the read lock of the reference. Cached blocks are keyed by that location so that blocks of
+     * a retired file and of the file that replaced it do not get mixed up.
+     */
+    private SerializingCollection<V> newSerializingCollection(final String method, final File file,
+            final Lock readLock, final ChunkFileReference reference) {
         final TextDescription name = new TextDescription("%s[%s]: %s(%s)", ATimeSeriesUpdater.class.getSimpleName(),
                 hashKey, method, file);
         return new SerializingCollection<V>(name, file, true) {
@@ -588,24 +540,105 @@ public class TimeSeriesStorageCache<K, V> {
             }
 
             @Override
-            protected InputStream newFileInputStream(final File file) throws IOException {
+            protected ByteBuffer newFileBuffer(final File originalFile) throws IOException {
                 //keep file input stream open as shorty as possible to prevent too many open files error
                 readLock.lock();
-                try (InputStream fis = super.newFileInputStream(file)) {
-                    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    IOUtils.copy(fis, bos);
-                    return new ByteArrayInputStream(bos.toByteArray());
-                } catch (final FileNotFoundException e) {
+                final File usedFile = reference == null ? originalFile : reference.getFile();
+                try {
+                    switch (chunkReadMode) {
+                    case MEMORY_MAPPED:
+                        //mapping stays valid after the channel is closed, no heap copy needed
+                        return ByteBufferInputStream.map(usedFile);
+                    case HEAP_COPY:
+                        try (InputStream fis = newFileInputStream(usedFile)) {
+                            return ByteBuffer.wrap(IOUtils.toByteArray(fis));
+                        }
+                    default:
+                        throw UnknownArgumentException.newInstance(ChunkReadMode.class, chunkReadMode);
+                    }
+                } catch (final FileNotFoundException | NoSuchFileException e) {
                     //maybe retry because of this in the outer iterator?
                     throw new RetryLaterRuntimeException(
                             "File might have been deleted in the mean time between read locks: "
-                                    + file.getAbsolutePath(),
+                                    + usedFile.getAbsolutePath(),
                             e);
                 } finally {
                     readLock.unlock();
                 }
             }
 
+            @Override
+            protected CompressedBlockIndex newBlockIndex() throws IOException {
+                if (reference == null) {
+                    return DecompressedChunkCache.getInstance().getBlockIndex(file, this::readBlockIndex);
+                }
+                readLock.lock();
+                try {
+                    return DecompressedChunkCache.getInstance()
+                            .getBlockIndex(reference.getFile(), this::readBlockIndex);
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            private CompressedBlockIndex readBlockIndex() throws IOException {
+                try {
+                    return super.newBlockIndex();
+                } finally {
+                    maybeReleaseFileBuffer();
+                }
+            }
+
+            @Override
+            protected ByteBuffer newDecompressedBlock(final int block) throws IOException {
+                //shared between all keys so that hot ranges do not get decompressed again and again
+                if (reference == null) {
+                    return DecompressedChunkCache.getInstance().getBlock(file, block, () -> readBlock(block));
+                }
+                readLock.lock();
+                try {
+                    return DecompressedChunkCache.getInstance()
+                            .getBlock(reference.getFile(), block, () -> readBlock(block));
+                } finally {
+                    readLock.unlock();
+                }
+            }
+
+            private ByteBuffer readBlock(final int block) throws IOException {
+                try {
+                    return super.newDecompressedBlock(block);
+                } finally {
+                    maybeReleaseFileBuffer();
+                }
+            }
+
+            /**
+             * A mapping must not outlive the read lock of the reference, otherwise the file could not be retired or
+             * deleted on windows. Decompressed blocks are copies, so nothing refers to the mapping afterwards.
+             */
+            private void maybeReleaseFileBuffer() {
+                if (chunkReadMode == ChunkReadMode.MEMORY_MAPPED) {
+                    releaseFileBuffer();
+                }
+            }
+
+            @Override
+            protected InputStream newDecompressor(final InputStream inputStream) {
+                final InputStream decompressor = super.newDecompressor(inputStream);
+                if (ChunkEncoding.isColumnarSupported(fixedLength)) {
+                    //detects columnar encoded chunks and passes row encoded ones through
+                    return new ColumnarDecodingInputStream(decompressor, fixedLength);
+                } else {
+                    return decompressor;
+                }
+            }
+
+            @Override
+            protected Integer getBlockSize() {
+                //enables reading the block index written by the updater
+                return ATimeSeriesUpdater.CHUNK_BLOCK_SIZE;
+            }
+
             @Override
             protected Integer getFixedLength() {
                 return fixedLength;
@@ -613,6 +646,32 @@ public class TimeSeriesStorageCache<K, V> {
         };
     }
 
+    /**
+     * Binary search for the last block that starts before (or at when inclusive) the given date, so that blocks before
+     * it do not need to be decompressed.
+     */
+    private int findLatestBlock(final SerializingCollection<V> serializingCollection, final FDate date,
+            final boolean inclusive) {
+        final CompressedBlockIndex blockIndex = serializingCollection.getBlockIndex();
+        if (blockIndex == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = blockIndex.getBlockCount() - 1;
+        int latestBlock = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final FDate firstTime = extractEndTime.apply(valueSerde.fromBytes(blockIndex.getFirstElement(mid)));
+            if (firstTime.isAfter(date) || !inclusive && firstTime.equalsNotNullSafe(date)) {
+                high = mid - 1;
+            } else {
+                latestBlock = mid;
+                low = mid + 1;
+            }
+        }
+        return latestBlock;
+    }
+
     public V getFirstValue() {
         if (cachedFirstValue == null) {
             final ChunkValue latestValue = storage.getFileLookupTable().getLatestValue(hashKey, FDate.MIN_DATE);
@@ -647,17 +706,146 @@ public class TimeSeriesStorageCache<K, V> {
         storage.getNextValueLookupTable().deleteRange(hashKey);
         storage.getPreviousValueLookupTable().deleteRange(hashKey);
         clearCaches();
+        ChunkFileReferences.getInstance().retireDirectory(newDataDirectory(), storage.getRetiredDirectory());
+        DecompressedChunkCache.getInstance().invalidateDirectory(newDataDirectory());
         Files.deleteNative(newDataDirectory());
         dataDirectory = null;
+        publishSnapshot();
+    }
+
+    /**
+     * Chunk files should only be deleted via this method, so that files that are still referenced by a snapshot get
+     * retired instead.
+     */
+    private void deleteFile(final File file) {
+        ChunkFileReferences.getInstance().retire(file, storage.getRetiredDirectory());
+        file.delete();
+        DecompressedChunkCache.getInstance().invalidate(file);
+    }
+
+    /**
+     * Readers that already hold the snapshot continue to see the previous version, all following readers see the
+     * current chunks. Writers call this when they are finished while still holding the write lock of the key.
+     */
+    public synchronized void publishSnapshot() {
+        final ChunkFileSnapshot previousSnapshot = publishedSnapshot;
+        if (evicted) {
+            publishedSnapshot = null;
+        } else {
+            publishedSnapshot = newSnapshot();
+        }
+        if (previousSnapshot != null) {
+            previousSnapshot.release();
+        }
+    }
+
+    /**
+     * Releases the published snapshot so that its files are not pinned anymore, the next reader creates a new one.
+     */
+    public synchronized void releaseSnapshot() {
+        final ChunkFileSnapshot previousSnapshot = publishedSnapshot;
+        publishedSnapshot = null;
+        if (previousSnapshot != null) {
+            previousSnapshot.release();
+        }
+    }
+
+    private ChunkFileSnapshot acquireSnapshot(final Lock readLock) {
+        while (true) {
+            final ChunkFileSnapshot snapshot = publishedSnapshot;
+            if (snapshot != null) {
+                if (snapshot.tryRetain()) {
+                    return snapshot;
+                }
+                //got replaced in the mean time, retry with the next published one
+                continue;
+            }
+            //only the first reader after a release needs to wait for a running update
+            readLock.lock();
+            try {
+                synchronized (this) {
+                    if (evicted) {
+                        //only referenced by this reader
+                        return newSnapshot();
+                    }
+                    if (publishedSnapshot == null) {
+                        publishedSnapshot = newSnapshot();
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases the published snapshot and stops publishing new ones, called when the instance gets removed from its
+     * table.
+     */
+    public synchronized void evict() {
+        evicted = true;
+        releaseSnapshot();
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    public void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    /**
+     * Estimates the heap that is retained by the lookup caches and the published snapshot of this key. This is only an
+     * approximation based on the value size, it is used to decide which keys to evict when the memory budget is
+     * exceeded.
+     */
+    public long estimateRetainedBytes() {
+        final long valueBytes;
+        if (fixedLength != null) {
+            valueBytes = fixedLength;
+        } else {
+            valueBytes = ESTIMATED_VALUE_BYTES;
+        }
+        final long entries = (long) latestValueLookupCache.size() + nextValueLookupCache.size()
+                + previousValueLookupCache.size();
+        long bytes = ESTIMATED_BASE_BYTES + entries * (ESTIMATED_ENTRY_OVERHEAD_BYTES + valueBytes);
+        final ChunkFileSnapshot snapshot = publishedSnapshot;
+        if (snapshot != null) {
+            //each chunk keeps its first and last value bytes together with the row, file reference and offset
+            bytes += snapshot.size() * (ESTIMATED_ENTRY_OVERHEAD_BYTES * 2 + valueBytes * 2);
+        }
+        return bytes;
+    }
+
+    private ChunkFileSnapshot newSnapshot() {
+        final List<TableRow<String, FDate, ChunkValue>> rows = new ArrayList<TableRow<String, FDate, ChunkValue>>();
+        final DelegateTableIterator<String, FDate, ChunkValue> range = storage.getFileLookupTable()
+                .range(hashKey, FDate.MIN_DATE, FDate.MAX_DATE);
+        try {
+            while (range.hasNext()) {
+                rows.add(range.next());
+            }
+        } finally {
+            range.close();
+        }
+        final ChunkFileReference[] files = new ChunkFileReference[rows.size()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = ChunkFileReferences.getInstance().retain(newFile(rows.get(i).getRangeKey()));
+        }
+        return new ChunkFileSnapshot(rows, files);
     }
 
     private void clearCaches() {
         latestValueLookupCache.clear();
         nextValueLookupCache.clear();
         previousValueLookupCache.clear();
-        fileLookupTable_latestRangeKeyCache.clear();
-        cachedAllRangeKeys = null;
-        cachedAllRangeKeysReverse = null;
+        //pending write behind values might have been computed from the old data
+        storage.getLatestValueLookupTable().dropPending(hashKey);
         cachedFirstValue = null;
         cachedLastValue = null;
     }
@@ -666,6 +854,286 @@ public class TimeSeriesStorageCache<K, V> {
         return latestValueLookupCache.get(date);
     }
 
+    /**
+     * Same as getLatestValue(date) for each of the ascending dates, but resolved in one forward pass over the chunks
+     * instead of one lookup per date. Only chunks that contain at least one of the dates get decompressed, starting at
+     * the block of the first date inside of it. Dates at or after the last value of a chunk are answered from the
+     * ChunkValue without decompressing anything.
+     */
+    public List<V> getLatestValues(final List<FDate> dates, final Lock readLock) {
+        final List<V> values = new ArrayList<V>(dates.size());
+        if (dates.isEmpty()) {
+            return values;
+        }
+        final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+        try {
+            if (snapshot.isEmpty()) {
+                for (int i = 0; i < dates.size(); i++) {
+                    values.add(null);
+                }
+                return values;
+            }
+            int start = 0;
+            while (start < dates.size()) {
+                final int chunk = snapshot.getLatestIndex(dates.get(start));
+                final FDate nextChunkFrom;
+                if (chunk + 1 < snapshot.size()) {
+                    nextChunkFrom = snapshot.getRow(chunk + 1).getRangeKey();
+                } else {
+                    nextChunkFrom = null;
+                }
+                int end = start + 1;
+                while (end < dates.size()) {
+                    final FDate date = dates.get(end);
+                    if (date.isBefore(dates.get(end - 1))) {
+                        throw new IllegalArgumentException("dates need to be sorted ascending: [" + date
+                                + "] is before [" + dates.get(end - 1) + "] at index " + end);
+                    }
+                    if (nextChunkFrom != null && !date.isBefore(nextChunkFrom)) {
+                        break;
+                    }
+                    end++;
+                }
+                addLatestValues(snapshot, chunk, dates.subList(start, end), values);
+                start = end;
+            }
+            return values;
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    private void addLatestValues(final ChunkFileSnapshot snapshot, final int chunk, final List<FDate> dates,
+            final List<V> values) {
+        final V lastValue = snapshot.getRow(chunk).getValue().getLastValue(valueSerde);
+        final FDate lastTime = extractEndTime.apply(lastValue);
+        int decompressEnd = dates.size();
+        while (decompressEnd > 0 && !dates.get(decompressEnd - 1).isBefore(lastTime)) {
+            decompressEnd--;
+        }
+        int i = 0;
+        if (decompressEnd > 0) {
+            final SerializingCollection<V> serializingCollection = newSerializingCollection("getLatestValues",
+                    snapshot.getFile(chunk));
+            V latestValue = null;
+            try (ICloseableIterator<V> it = serializingCollection
+                    .iterator(findLatestBlock(serializingCollection, dates.get(0), true))) {
+                while (i < decompressEnd && it.hasNext()) {
+                    final V newValue = it.next();
+                    final FDate newValueTime = extractEndTime.apply(newValue);
+                    while (i < decompressEnd && dates.get(i).isBefore(newValueTime)) {
+                        if (latestValue == null) {
+                            //date is before the first value, same as in getLatestValue
+                            values.add(newValue);
+                        } else {
+                            values.add(latestValue);
+                        }
+                        i++;
+                    }
+                    latestValue = newValue;
+                }
+            }
+            while (i < decompressEnd) {
+                values.add(latestValue);
+                i++;
+            }
+        }
+        while (i < dates.size()) {
+            values.add(lastValue);
+            i++;
+        }
+    }
+
+    /**
+     * Counts the values between from and to (inclusive, null means unbounded) as rangeValues would return them. This is
+     * the difference of the prefix counts at both boundaries, thus only the chunks that contain the boundaries get
+     * inspected and there only the block that contains the boundary gets decompressed.
+     */
+    public long count(final FDate from, final FDate to, final Lock readLock) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return 0;
+        }
+        final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+        try {
+            if (snapshot.isEmpty()) {
+                return 0;
+            }
+            final long countUpToTo = to == null ? snapshot.getValueCount() : countValues(snapshot, to, true);
+            final long countBeforeFrom = from == null ? 0 : countValues(snapshot, from, false);
+            return countUpToTo - countBeforeFrom;
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Counts the values before (or at when inclusive) the given date. Blocks before the one that contains the date are
+     * counted via the block index without decompressing them.
+     */
+    private int countValuesBefore(final SerializingCollection<V> serializingCollection, final FDate date,
+            final boolean inclusive) {
+        final int block = findLatestBlock(serializingCollection, date, inclusive);
+        int count = 0;
+        if (block > 0) {
+            final CompressedBlockIndex blockIndex = serializingCollection.getBlockIndex();
+            for (int i = 0; i < block; i++) {
+                count += blockIndex.getCount(i);
+            }
+        }
+        try (ICloseableIterator<V> it = serializingCollection.iterator(block)) {
+            while (it.hasNext()) {
+                final FDate time = extractEndTime.apply(it.next());
+                if (time.isAfter(date) || !inclusive && time.equalsNotNullSafe(date)) {
+                    break;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the times and values of readRangeValues(from, to) to the columns by reading them directly from the
+     * decompressed chunk bytes, which requires a serde that is supported by TimeValueColumns. The space for each chunk
+     * is reserved before reading it. Returns the number of appended values.
+     */
+    public int readRangeTimeValues(final FDate from, final FDate to, final Lock readLock,
+            final TimeValueColumns columns) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return 0;
+        }
+        final long fromMillis = from == null ? Long.MIN_VALUE : from.millisValue();
+        final long toMillis = to == null ? Long.MAX_VALUE : to.millisValue();
+        final int sizeBefore = columns.size();
+        final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+        try {
+            if (snapshot.isEmpty()) {
+                return 0;
+            }
+            final int fromIndex = from == null ? 0 : snapshot.getLatestIndex(from);
+            final int toIndex = to == null ? snapshot.size() - 1 : snapshot.getLatestIndex(to);
+            for (int chunk = fromIndex; chunk <= toIndex; chunk++) {
+                final SerializingCollection<V> serializingCollection = newSerializingCollection(
+                        "readRangeTimeValues", snapshot.getFile(chunk));
+                columns.ensureCapacity(columns.size() + snapshot.getRow(chunk).getValue().getCount());
+                final CompressedBlockIndex blockIndex = serializingCollection.getBlockIndex();
+                if (blockIndex == null) {
+                    readTimeValues(serializingCollection.getDecompressedBytes(DecompressedChunkCache.WHOLE_FILE_BLOCK),
+                            fromMillis, toMillis, columns);
+                } else {
+                    final int fromBlock = from == null ? 0 : findLatestBlock(serializingCollection, from, false);
+                    for (int block = fromBlock; block < blockIndex.getBlockCount(); block++) {
+                        if (!readTimeValues(serializingCollection.getDecompressedBytes(block), fromMillis, toMillis,
+                                columns)) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            snapshot.release();
+        }
+        return columns.size() - sizeBefore;
+    }
+
+    /**
+     * Returns false when a value after the range was reached.
+     */
+    private boolean readTimeValues(final ByteBuffer bytes, final long fromMillis, final long toMillis,
+            final TimeValueColumns columns) {
+        final int length = fixedLength;
+        final int start = bytes.position();
+        final int end = start + bytes.remaining() / length * length;
+        for (int offset = start; offset < end; offset += length) {
+            final long time = bytes.getLong(offset);
+            if (time < fromMillis) {
+                continue;
+            } else if (time > toMillis) {
+                return false;
+            }
+            columns.add(bytes, offset);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value at the given position (starting with 0 for the first value) or null if there is none. Finds the
+     * chunk via the prefix sums of the chunk counts and only decompresses the block that contains the value.
+     */
+    public V getValueAt(final long index, final Lock readLock) {
+        final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+        try {
+            return getValueAt(snapshot, index);
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Returns the position of the latest value at or before the given date or -1 if there is none.
+     */
+    public long indexOf(final FDate date, final Lock readLock) {
+        final ChunkFileSnapshot snapshot = acquireSnapshot(readLock);
+        try {
+            return countValues(snapshot, date, true) - 1;
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    private V getValueAt(final ChunkFileSnapshot snapshot, final long index) {
+        if (index < 0 || index >= snapshot.getValueCount()) {
+            return null;
+        }
+        final int chunk = snapshot.getChunkIndexAt(index);
+        final ChunkValue chunkValue = snapshot.getRow(chunk).getValue();
+        int remaining = (int) (index - snapshot.getValueOffset(chunk));
+        if (remaining == 0) {
+            return chunkValue.getFirstValue(valueSerde);
+        } else if (remaining == chunkValue.getCount() - 1) {
+            return chunkValue.getLastValue(valueSerde);
+        }
+        final SerializingCollection<V> serializingCollection = newSerializingCollection("getValueAt",
+                snapshot.getFile(chunk));
+        final CompressedBlockIndex blockIndex = serializingCollection.getBlockIndex();
+        int block = 0;
+        if (blockIndex != null) {
+            while (block < blockIndex.getBlockCount() - 1 && remaining >= blockIndex.getCount(block)) {
+                remaining -= blockIndex.getCount(block);
+                block++;
+            }
+        }
+        try (ICloseableIterator<V> it = serializingCollection.iterator(block)) {
+            for (int i = 0; i < remaining; i++) {
+                it.next();
+            }
+            return it.next();
+        }
+    }
+
+    /**
+     * Counts the values before (or at when inclusive) the given date. Only the chunk that contains the date is
+     * inspected, the chunks before it are counted via the prefix sums.
+     */
+    private long countValues(final ChunkFileSnapshot snapshot, final FDate date, final boolean inclusive) {
+        if (snapshot.isEmpty()) {
+            return 0;
+        }
+        int chunk = snapshot.getLatestIndex(date);
+        if (!inclusive && chunk > 0 && !snapshot.getRow(chunk).getRangeKey().isBefore(date)) {
+            //values at the date might also be at the end of the previous chunk
+            chunk--;
+        }
+        final ChunkValue chunkValue = snapshot.getRow(chunk).getValue();
+        final FDate lastTime = extractEndTime.apply(chunkValue.getLastValue(valueSerde));
+        if (lastTime.isBefore(date) || inclusive && lastTime.equalsNotNullSafe(date)) {
+            return snapshot.getValueOffset(chunk) + chunkValue.getCount();
+        }
+        final SerializingCollection<V> serializingCollection = newSerializingCollection("countValues",
+                snapshot.getFile(chunk));
+        return snapshot.getValueOffset(chunk) + countValuesBefore(serializingCollection, date, inclusive);
+    }
+
     public V getPreviousValue(final FDate date, final int shiftBackUnits) {
         assertShiftUnitsPositiveNonZero(shiftBackUnits);
         final V firstValue = getFirstValue();
@@ -703,10 +1171,11 @@ public class TimeSeriesStorageCache<K, V> {
                 throw Throwables.propagate(t);
             }
         }
-        try (ICloseableIterator<File> files = readRangeFiles(null, null, DisabledLock.INSTANCE, null).iterator()) {
+        try (ICloseableIterator<ChunkFileReference> files = readRangeFiles(null, null, DisabledLock.INSTANCE, null)
+                .iterator()) {
             boolean noFileFound = true;
             while (files.hasNext()) {
-                final File file = files.next();
+                final File file = files.next().getFile();
                 if (!file.exists()) {
                     log.warn("Table data for [%s] is inconsistent and needs to be reset. Missing file: [%s]", hashKey,
                             file);
@@ -729,6 +1198,8 @@ public class TimeSeriesStorageCache<K, V> {
      * get fragmented too much between updates
      */
     public synchronized Pair<FDate, List<V>> prepareForUpdate(final boolean shouldRedoLastFile) {
+        incrementalUpdateFrom = null;
+        incrementalFirstChunkRewritten = false;
         FDate latestRangeKey = storage.getFileLookupTable().getLatestRangeKey(hashKey, FDate.MAX_DATE);
         FDate updateFrom = latestRangeKey;
         final List<V> lastValues = new ArrayList<V>();
@@ -745,106 +1216,170 @@ public class TimeSeriesStorageCache<K, V> {
                 //remove last value because it might be an incomplete bar
                 final V lastValue = lastValues.remove(lastValues.size() - 1);
                 updateFrom = extractEndTime.apply(lastValue);
-                lastFile.delete();
+                deleteFile(lastFile);
             } else {
                 latestRangeKey = latestRangeKey.addMilliseconds(1);
             }
             storage.getFileLookupTable().deleteRange(hashKey, latestRangeKey);
             storage.getLatestValueLookupTable().deleteRange(hashKey, latestRangeKey);
-            storage.getNextValueLookupTable().deleteRange(hashKey); //we cannot be sure here about the date since shift keys can be arbitrarily large
-            storage.getPreviousValueLookupTable().deleteRange(hashKey, new ShiftUnitsRangeKey(latestRangeKey, 0));
         }
         clearCaches();
         return Pair.of(updateFrom, lastValues);
     }
 
-    private void assertShiftUnitsPositiveNonZero(final int shiftUnits) {
-        if (shiftUnits < 0) {
-            throw new IllegalArgumentException("shiftUnits needs to be a positive or zero value: " + shiftUnits);
+    /**
+     * Other than prepareForUpdate this only invalidates lookups that might change because of values starting with the
+     * previous last value. The last file is still redone, though the updater keeps it small in the incremental mode by
+     * writing the last value of each update into its own tail chunk.
+     */
+    public synchronized Pair<FDate, List<V>> prepareForIncrementalUpdate() {
+        final FDate latestRangeKey = storage.getFileLookupTable().getLatestRangeKey(hashKey, FDate.MAX_DATE);
+        if (latestRangeKey == null) {
+            return prepareForUpdate(true);
+        }
+        if (redirectedFiles != null) {
+            throw new IllegalStateException("redirectedFiles should be null for incremental updates");
+        }
+        final File lastFile = newFile(latestRangeKey);
+        final List<V> lastValues = new ArrayList<V>();
+        try (SerializingCollection<V> lastColl = newSerializingCollection("prepareForIncrementalUpdate", lastFile,
+                DisabledLock.INSTANCE)) {
+            lastValues.addAll(lastColl);
         }
+        //remove last value because it might be an incomplete bar
+        final V lastValue = lastValues.remove(lastValues.size() - 1);
+        final FDate updateFrom = extractEndTime.apply(lastValue);
+        deleteFile(lastFile);
+        storage.getFileLookupTable().deleteRange(hashKey, latestRangeKey);
+        storage.getLatestValueLookupTable().deleteRange(hashKey, updateFrom);
+        incrementalUpdateFrom = updateFrom;
+        //when the redone chunk was the only one, the values are rewritten from the start
+        incrementalFirstChunkRewritten = storage.getFileLookupTable().getLatestRangeKey(hashKey,
+                FDate.MAX_DATE) == null;
+        invalidateCaches(updateFrom, incrementalFirstChunkRewritten);
+        return Pair.of(updateFrom, lastValues);
     }
 
-    private ICloseableIterator<TableRow<String, FDate, ChunkValue>> getAllRangeKeys(final Lock readLock) {
-        readLock.lock();
-        try {
-            if (cachedAllRangeKeys == null) {
-                final BufferingIterator<TableRow<String, FDate, ChunkValue>> allRangeKeys = new BufferingIterator<TableRow<String, FDate, ChunkValue>>();
-                final DelegateTableIterator<String, FDate, ChunkValue> range = storage.getFileLookupTable()
-                        .range(hashKey, FDate.MIN_DATE, FDate.MAX_DATE);
-                while (range.hasNext()) {
-                    allRangeKeys.add(range.next());
-                }
-                range.close();
-                cachedAllRangeKeys = allRangeKeys;
+    /**
+     * Removes cached lookups for keys at or after valuesFrom. The first value is only removed when the first chunk gets
+     * rewritten.
+     */
+    private void invalidateCaches(final FDate valuesFrom, final boolean firstChunkRewritten) {
+        for (final FDate key : new ArrayList<>(latestValueLookupCache.keySet())) {
+            if (!key.isBefore(valuesFrom)) {
+                latestValueLookupCache.remove(key);
+            }
+        }
+        for (final Pair<FDate, Integer> key : new ArrayList<>(previousValueLookupCache.keySet())) {
+            if (!key.getFirst().isBefore(valuesFrom)) {
+                previousValueLookupCache.remove(key);
+            }
+        }
+        for (final Entry<Pair<FDate, Integer>, V> entry : new ArrayList<>(nextValueLookupCache.entrySet())) {
+            final V value = entry.getValue();
+            if (value == null || !extractEndTime.apply(value).isBefore(valuesFrom)) {
+                nextValueLookupCache.remove(entry.getKey());
             }
-            return cachedAllRangeKeys.iterator();
-        } finally {
-            readLock.unlock();
         }
+        if (firstChunkRewritten) {
+            cachedFirstValue = null;
+        }
+        cachedLastValue = null;
     }
 
-    private ICloseableIterator<TableRow<String, FDate, ChunkValue>> getAllRangeKeysReverse(final Lock readLock) {
-        readLock.lock();
-        try {
-            if (cachedAllRangeKeysReverse == null) {
-                final BufferingIterator<TableRow<String, FDate, ChunkValue>> allRangeKeysReverse = new BufferingIterator<TableRow<String, FDate, ChunkValue>>();
-                final DelegateTableIterator<String, FDate, ChunkValue> range = storage.getFileLookupTable()
-                        .rangeReverse(hashKey, FDate.MAX_DATE, FDate.MIN_DATE);
-                while (range.hasNext()) {
-                    allRangeKeysReverse.add(range.next());
-                }
-                range.close();
-                cachedAllRangeKeysReverse = allRangeKeysReverse;
+    public List<V> readChunks(final List<FDate> chunks) {
+        final List<V> values = new ArrayList<V>();
+        for (final FDate chunk : chunks) {
+            final File file = newFile(chunk);
+            try (SerializingCollection<V> coll = newSerializingCollection("readChunks", file, DisabledLock.INSTANCE)) {
+                values.addAll(coll);
             }
-            return cachedAllRangeKeysReverse.iterator();
-        } finally {
-            readLock.unlock();
         }
+        return values;
     }
 
-    private static final class GetRangeKeysReverseIterator
-            extends ASkippingIterator<TableRow<String, FDate, ChunkValue>> {
-        private final FDate from;
-        private final FDate to;
-
-        private GetRangeKeysReverseIterator(
-                final ICloseableIterator<? extends TableRow<String, FDate, ChunkValue>> delegate, final FDate from,
-                final FDate to) {
-            super(delegate);
-            this.from = from;
-            this.to = to;
+    /**
+     * Returns the first run of adjacent chunks that are smaller than the target count. The run is cut off as soon as
+     * the target count is reached. A run that ends at the tail is only returned when it reaches the target count,
+     * otherwise it would be rewritten again and again while it is still growing. The last chunk is never included
+     * since updates redo it anyway.
+     */
+    public synchronized List<TableRow<String, FDate, ChunkValue>> getFragmentedChunks(final int targetCount) {
+        if (redirectedFiles != null) {
+            //files are not owned by this storage
+            return Collections.emptyList();
         }
-
-        @Override
-        protected boolean skip(final TableRow<String, FDate, ChunkValue> element) {
-            if (element.getRangeKey().isAfter(from)) {
-                return true;
-            } else if (element.getRangeKey().isBefore(to)) {
-                throw new FastNoSuchElementException("getRangeKeysReverse reached end");
+        final List<TableRow<String, FDate, ChunkValue>> rows = new ArrayList<TableRow<String, FDate, ChunkValue>>();
+        final DelegateTableIterator<String, FDate, ChunkValue> range = storage.getFileLookupTable()
+                .range(hashKey, FDate.MIN_DATE, FDate.MAX_DATE);
+        try {
+            while (range.hasNext()) {
+                rows.add(range.next());
+            }
+        } finally {
+            range.close();
+        }
+        final List<TableRow<String, FDate, ChunkValue>> run = new ArrayList<TableRow<String, FDate, ChunkValue>>();
+        long sumCount = 0;
+        //skip the tail
+        for (int i = 0; i < rows.size() - 1; i++) {
+            final TableRow<String, FDate, ChunkValue> row = rows.get(i);
+            final int count = row.getValue().getCount();
+            if (count >= targetCount) {
+                if (run.size() >= 2) {
+                    return run;
+                }
+                run.clear();
+                sumCount = 0;
+            } else {
+                run.add(row);
+                sumCount += count;
+                if (sumCount >= targetCount && run.size() >= 2) {
+                    return run;
+                }
             }
-            return false;
         }
+        return Collections.emptyList();
     }
 
-    private static final class GetRangeKeysIterator extends ASkippingIterator<TableRow<String, FDate, ChunkValue>> {
-        private final FDate from;
-        private final FDate to;
-
-        private GetRangeKeysIterator(final ICloseableIterator<? extends TableRow<String, FDate, ChunkValue>> delegate,
-                final FDate from, final FDate to) {
-            super(delegate);
-            this.from = from;
-            this.to = to;
+    /**
+     * Replaces the given adjacent chunks with the compacted file which contains all of their values. The values stay
+     * the same, thus only a new snapshot needs to be published for range readers. Should only be called while holding
+     * the write lock of the key.
+     */
+    public synchronized void replaceChunks(final List<FDate> chunks, final File compactedFile, final V firstValue,
+            final V lastValue, final int count) {
+        if (redirectedFiles != null) {
+            throw new IllegalStateException("redirectedFiles should be null for compaction");
         }
-
-        @Override
-        protected boolean skip(final TableRow<String, FDate, ChunkValue> element) {
-            if (element.getRangeKey().isBefore(from)) {
-                return true;
-            } else if (element.getRangeKey().isAfter(to)) {
-                throw new FastNoSuchElementException("getRangeKeys reached end");
+        final FDate firstChunk = chunks.get(0);
+        try (RangeBatch<String, FDate, ChunkValue> batch = storage.getFileLookupTable().newRangeBatch()) {
+            for (int i = 1; i < chunks.size(); i++) {
+                batch.delete(hashKey, chunks.get(i));
             }
-            return false;
+            batch.put(hashKey, firstChunk, new ChunkValue(valueSerde, firstValue, lastValue, count));
+            batch.flush();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        final File firstFile = newFile(firstChunk);
+        ChunkFileReferences.getInstance().retire(firstFile, storage.getRetiredDirectory());
+        try {
+            java.nio.file.Files.move(compactedFile.toPath(), firstFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        DecompressedChunkCache.getInstance().invalidate(firstFile);
+        for (int i = 1; i < chunks.size(); i++) {
+            deleteFile(newFile(chunks.get(i)));
+        }
+        publishSnapshot();
+    }
+
+    private void assertShiftUnitsPositiveNonZero(final int shiftUnits) {
+        if (shiftUnits < 0) {
+            throw new IllegalArgumentException("shiftUnits needs to be a positive or zero value: " + shiftUnits);
         }
     }
 
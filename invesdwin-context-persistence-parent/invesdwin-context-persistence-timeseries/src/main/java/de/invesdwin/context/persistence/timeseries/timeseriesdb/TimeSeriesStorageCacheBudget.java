@@ -0,0 +1,164 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
+import de.invesdwin.util.collections.factory.ILockCollectionFactory;
+
+/**
+ * Process wide memory budget for the per key TimeSeriesStorageCache instances of all tables. Without it every key that
+ * was ever queried keeps its lookup caches and its published snapshot, which grows without bounds for large universes
+ * of instruments or segments.
+ *
+ * The estimated retained bytes are summed up after enough new instances got registered. When the budget is
+ * exceeded, the instances that were not accessed for the longest time are evicted until the budget is met again.
+ * Instances that were accessed recently or whose key is currently locked are skipped, they get another chance on the
+ * next check.
+ */
+@ThreadSafe
+public final class TimeSeriesStorageCacheBudget {
+
+    /**
+     * Summing up the estimates requires a pass over all registered instances, thus it is not done on every
+     * registration.
+     */
+    public static final int CHECK_INTERVAL = 64;
+
+    private static final TimeSeriesStorageCacheBudget INSTANCE = new TimeSeriesStorageCacheBudget(
+            TimeSeriesProperties.STORAGE_CACHE_MAXIMUM_BYTES, TimeSeriesProperties.STORAGE_CACHE_MINIMUM_IDLE_NANOS);
+
+    private final long maximumBytes;
+    private final long minimumIdleNanos;
+    private final Map<TimeSeriesStorageCache<?, ?>, Registration<?, ?>> registrations = ILockCollectionFactory
+            .getInstance(true)
+            .newConcurrentMap();
+    private final AtomicInteger registrationsSinceCheck = new AtomicInteger();
+    private final AtomicBoolean checkRunning = new AtomicBoolean();
+
+    public TimeSeriesStorageCacheBudget(final long maximumBytes, final long minimumIdleNanos) {
+        this.maximumBytes = maximumBytes;
+        this.minimumIdleNanos = minimumIdleNanos;
+    }
+
+    public static TimeSeriesStorageCacheBudget getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return maximumBytes > 0;
+    }
+
+    public <K, V> void register(final ATimeSeriesDB<K, V> table, final K key,
+            final TimeSeriesStorageCache<K, V> lookupTableCache) {
+        if (!isEnabled()) {
+            return;
+        }
+        registrations.put(lookupTableCache, new Registration<K, V>(table, key, lookupTableCache));
+        registrationsSinceCheck.incrementAndGet();
+    }
+
+    /**
+     * Should be called outside of the loading cache that registers the instances, since the eviction removes entries
+     * from it.
+     */
+    public void maybeEvictIfDue() {
+        if (registrationsSinceCheck.get() >= CHECK_INTERVAL) {
+            maybeEvict();
+        }
+    }
+
+    public void unregister(final TimeSeriesStorageCache<?, ?> lookupTableCache) {
+        registrations.remove(lookupTableCache);
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    public long estimateRetainedBytes() {
+        long bytes = 0;
+        for (final TimeSeriesStorageCache<?, ?> lookupTableCache : registrations.keySet()) {
+            bytes += lookupTableCache.estimateRetainedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Evicts idle instances until the estimated retained bytes are below the budget. Only one thread does this at a
+     * time, others just continue.
+     */
+    public void maybeEvict() {
+        if (!isEnabled() || !checkRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            registrationsSinceCheck.set(0);
+            final List<Registration<?, ?>> candidates = new ArrayList<Registration<?, ?>>(registrations.size());
+            long bytes = 0;
+            for (final Registration<?, ?> registration : registrations.values()) {
+                registration.retainedBytes = registration.lookupTableCache.estimateRetainedBytes();
+                registration.lastAccessNanos = registration.lookupTableCache.getLastAccessNanos();
+                bytes += registration.retainedBytes;
+                candidates.add(registration);
+            }
+            if (bytes <= maximumBytes) {
+                return;
+            }
+            candidates.sort(Registration.LAST_ACCESS_COMPARATOR);
+            final long now = System.nanoTime();
+            for (int i = 0; i < candidates.size() && bytes > maximumBytes; i++) {
+                final Registration<?, ?> candidate = candidates.get(i);
+                if (now - candidate.lastAccessNanos < minimumIdleNanos) {
+                    //sorted by last access, thus all following ones are in use as well
+                    break;
+                }
+                if (candidate.evict()) {
+                    registrations.remove(candidate.lookupTableCache);
+                    bytes -= candidate.retainedBytes;
+                }
+            }
+        } finally {
+            checkRunning.set(false);
+        }
+    }
+
+    @NotThreadSafe
+    private static final class Registration<K, V> {
+
+        private static final Comparator<Registration<?, ?>> LAST_ACCESS_COMPARATOR = new Comparator<
+                Registration<?, ?>>() {
+            @Override
+            public int compare(final Registration<?, ?> o1, final Registration<?, ?> o2) {
+                return Long.compare(o1.lastAccessNanos - o2.lastAccessNanos, 0);
+            }
+        };
+
+        private final ATimeSeriesDB<K, V> table;
+        private final K key;
+        private final TimeSeriesStorageCache<K, V> lookupTableCache;
+        //only accessed by the thread that does the check
+        private long retainedBytes;
+        private long lastAccessNanos;
+
+        private Registration(final ATimeSeriesDB<K, V> table, final K key,
+                final TimeSeriesStorageCache<K, V> lookupTableCache) {
+            this.table = table;
+            this.key = key;
+            this.lookupTableCache = lookupTableCache;
+        }
+
+        private boolean evict() {
+            return table.evictLookupTableCache(key, lookupTableCache);
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import de.invesdwin.context.persistence.timeseries.serde.ITimeValueSerde;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.serde.Serde;
+
+/**
+ * Growable primitive columns for the times (in milliseconds) and values of a range. Range reads append to it, thus one
+ * instance can be reused (or pooled) for many reads after calling clear() so that no arrays need to be allocated once
+ * the capacity is large enough.
+ */
+@NotThreadSafe
+public class TimeValueColumns {
+
+    public static final int FIXED_LENGTH = Long.BYTES + Double.BYTES;
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private long[] times;
+    private double[] values;
+    private int size;
+
+    public TimeValueColumns() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public TimeValueColumns(final int initialCapacity) {
+        this(new long[initialCapacity], new double[initialCapacity]);
+    }
+
+    /**
+     * Uses the given arrays until more capacity is needed.
+     */
+    public TimeValueColumns(final long[] times, final double[] values) {
+        if (times.length != values.length) {
+            throw new IllegalArgumentException(
+                    "times.length [" + times.length + "] should be equal to values.length [" + values.length + "]");
+        }
+        this.times = times;
+        this.values = values;
+    }
+
+    /**
+     * Only serdes that write the time in milliseconds followed by a double can be read into columns.
+     */
+    public static boolean isSupported(final Serde<?> valueSerde, final Integer fixedLength) {
+        return valueSerde instanceof ITimeValueSerde && fixedLength != null && fixedLength == FIXED_LENGTH;
+    }
+
+    public static void assertSupported(final String name, final Serde<?> valueSerde, final Integer fixedLength) {
+        if (!isSupported(valueSerde, fixedLength)) {
+            throw new IllegalStateException("Table [" + name + "] needs a fixed length ["
+                    + ITimeValueSerde.class.getSimpleName() + "] for reading into ["
+                    + TimeValueColumns.class.getSimpleName() + "], but has serde ["
+                    + valueSerde.getClass().getSimpleName() + "] with fixed length [" + fixedLength + "]");
+        }
+    }
+
+    /**
+     * The array might be larger than size().
+     */
+    public long[] getTimes() {
+        return times;
+    }
+
+    /**
+     * The array might be larger than size().
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTime(final int index) {
+        return times[index];
+    }
+
+    public FDate getTimeAsDate(final int index) {
+        return new FDate(times[index]);
+    }
+
+    public double getValue(final int index) {
+        return values[index];
+    }
+
+    /**
+     * Keeps the arrays for the next read.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(final int capacity) {
+        if (capacity > times.length) {
+            final int newCapacity = Math.max(capacity, times.length * 2);
+            times = Arrays.copyOf(times, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    public void add(final long time, final double value) {
+        ensureCapacity(size + 1);
+        times[size] = time;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Adds the encoded value at the given absolute offset.
+     */
+    public void add(final ByteBuffer bytes, final int offset) {
+        add(bytes.getLong(offset), bytes.getDouble(offset + Long.BYTES));
+    }
+
+}
@@ -0,0 +1,264 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb.compaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import de.invesdwin.context.log.error.Err;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkEncoding;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ColumnarEncodingOutputStream;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.SerializingCollection;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeSeriesStorageCache;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ChunkValue;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
+import de.invesdwin.util.collections.factory.ILockCollectionFactory;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.concurrent.lock.ILock;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.lang.description.TextDescription;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.TableRow;
+import ezdb.serde.Serde;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+
+/**
+ * Rewrites runs of small adjacent chunk files (as they are left behind by small updates, redone last files or live
+ * segments that got converted to historical ones) into chunks of the target size.
+ *
+ * The values are read and the compacted file is written while only holding the read lock of the key. The write lock
+ * is only acquired for swapping the ChunkValue entries and the files, without waiting for it when readers are active.
+ * Between compactions the service pauses according to the maximum rate, so that readers are not starved by the
+ * additional IO.
+ */
+@ThreadSafe
+public class TimeSeriesCompactionService<K, V> {
+
+    public static final int DEFAULT_TARGET_COUNT = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL;
+    public static final int DEFAULT_MAX_VALUES_PER_SECOND = 1_000_000;
+
+    private static final WrappedExecutorService COMPACTION_EXECUTOR = Executors
+            .newFixedThreadPool(TimeSeriesCompactionService.class.getSimpleName(), 1);
+    private static final String COMPACTING_FILE_SUFFIX = ".compacting";
+
+    private final ATimeSeriesDB<K, V> table;
+    private final Map<K, Boolean> pendingKeys = ILockCollectionFactory.getInstance(true).newConcurrentMap();
+
+    public TimeSeriesCompactionService(final ATimeSeriesDB<K, V> table) {
+        this.table = table;
+    }
+
+    /**
+     * Chunks smaller than this get merged with their neighbours until this count is reached.
+     */
+    protected int getTargetCount() {
+        return DEFAULT_TARGET_COUNT;
+    }
+
+    /**
+     * Limits the IO caused by the compaction. Each compaction is followed by a pause that is long enough for the
+     * rewritten values to not exceed this rate.
+     */
+    protected int getMaxValuesPerSecond() {
+        return DEFAULT_MAX_VALUES_PER_SECOND;
+    }
+
+    /**
+     * Queues the key for compaction in the background. Keys that are already queued are not added a second time.
+     */
+    public void compactAsync(final K key) {
+        if (pendingKeys.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        COMPACTION_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                pendingKeys.remove(key);
+                try {
+                    compact(key);
+                } catch (final Throwable t) {
+                    Err.process(new RuntimeException("Compaction failed for table [" + table.getName()
+                            + "] and key [" + key + "]", t));
+                }
+            }
+        });
+    }
+
+    /**
+     * Compacts all fragmented chunks of the key and returns the number of runs that were merged into one chunk each.
+     * Stops early when the write lock could not be acquired, so that the compaction can be retried later.
+     */
+    public int compact(final K key) throws InterruptedException {
+        int mergedRuns = 0;
+        while (true) {
+            final long startNanos = System.nanoTime();
+            final int compactedValues = compactNext(key);
+            if (compactedValues <= 0) {
+                return mergedRuns;
+            }
+            mergedRuns++;
+            throttle(startNanos, compactedValues);
+        }
+    }
+
+    private void throttle(final long startNanos, final int compactedValues) throws InterruptedException {
+        final long minNanos = compactedValues * 1_000_000_000L / getMaxValuesPerSecond();
+        final long remainingNanos = minNanos - (System.nanoTime() - startNanos);
+        if (remainingNanos > 0) {
+            Thread.sleep(remainingNanos / 1_000_000L, (int) (remainingNanos % 1_000_000L));
+        }
+    }
+
+    /**
+     * Returns the number of compacted values or 0 if nothing was compacted.
+     */
+    private int compactNext(final K key) {
+        final TimeSeriesStorageCache<K, V> lookupTable = table.getLookupTableCache(key);
+        final int targetCount = getTargetCount();
+        final Lock readLock = table.getTableLock(key).readLock();
+        final List<TableRow<String, FDate, ChunkValue>> run;
+        final List<V> values;
+        readLock.lock();
+        try {
+            if (lookupTable.getUpdateLockFile().exists()) {
+                //an update is running or did not finish properly
+                return 0;
+            }
+            run = lookupTable.getFragmentedChunks(targetCount);
+            if (run.isEmpty()) {
+                return 0;
+            }
+            values = lookupTable.readChunks(toRangeKeys(run));
+        } finally {
+            readLock.unlock();
+        }
+        final FDate firstChunk = run.get(0).getRangeKey();
+        final File compactedFile = new File(lookupTable.newFile(firstChunk).getAbsolutePath() + COMPACTING_FILE_SUFFIX);
+        try {
+            writeCompactedFile(key, compactedFile, values);
+            final ILock writeLock = table.getTableLock(key).writeLock();
+            if (!writeLock.tryLock()) {
+                //don't queue up behind readers, try again later
+                return 0;
+            }
+            try {
+                if (!isSameRun(run, lookupTable.getFragmentedChunks(targetCount))) {
+                    //an update modified the chunks in the meantime
+                    return 0;
+                }
+                final File updateLockFile = lookupTable.getUpdateLockFile();
+                if (updateLockFile.exists()) {
+                    return 0;
+                }
+                try {
+                    Files.touch(updateLockFile);
+                } catch (final IOException e) {
+                    throw new RuntimeException(e);
+                }
+                lookupTable.replaceChunks(toRangeKeys(run), compactedFile, values.get(0), values.get(values.size() - 1),
+                        values.size());
+                //when something went wrong, the next update will find the lock file and restore from scratch
+                updateLockFile.delete();
+            } finally {
+                writeLock.unlock();
+            }
+            return values.size();
+        } finally {
+            compactedFile.delete();
+        }
+    }
+
+    private static List<FDate> toRangeKeys(final List<TableRow<String, FDate, ChunkValue>> run) {
+        final List<FDate> rangeKeys = new ArrayList<FDate>(run.size());
+        for (final TableRow<String, FDate, ChunkValue> row : run) {
+            rangeKeys.add(row.getRangeKey());
+        }
+        return rangeKeys;
+    }
+
+    private static boolean isSameRun(final List<TableRow<String, FDate, ChunkValue>> expected,
+            final List<TableRow<String, FDate, ChunkValue>> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            final TableRow<String, FDate, ChunkValue> expectedRow = expected.get(i);
+            final TableRow<String, FDate, ChunkValue> actualRow = actual.get(i);
+            if (!expectedRow.getRangeKey().equals(actualRow.getRangeKey())
+                    || expectedRow.getValue().getCount() != actualRow.getValue().getCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeCompactedFile(final K key, final File file, final List<V> values) {
+        final Serde<V> valueSerde = table.getValueSerde();
+        final TextDescription name = new TextDescription("%s[%s]: writeCompactedFile(%s)",
+                TimeSeriesCompactionService.class.getSimpleName(), key, file.getName());
+        final SerializingCollection<V> collection = new SerializingCollection<V>(name, file, false) {
+            @Override
+            protected Serde<V> newSerde() {
+                return new Serde<V>() {
+
+                    @Override
+                    public V fromBytes(final byte[] bytes) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public byte[] toBytes(final V obj) {
+                        return valueSerde.toBytes(obj);
+                    }
+                };
+            }
+
+            @Override
+            protected OutputStream newCompressor(final OutputStream out) {
+                final OutputStream compressor = TimeSeriesCompactionService.this.newCompressor(out);
+                if (table.getChunkEncoding() == ChunkEncoding.COLUMNAR) {
+                    return new ColumnarEncodingOutputStream(compressor, table.getFixedLength());
+                } else {
+                    return compressor;
+                }
+            }
+
+            @Override
+            protected Integer getFixedLength() {
+                return table.getFixedLength();
+            }
+
+            @Override
+            protected Integer getBlockSize() {
+                return getChunkBlockSize();
+            }
+
+        };
+        try {
+            for (final V value : values) {
+                collection.add(value);
+            }
+        } finally {
+            collection.close();
+        }
+    }
+
+    protected LZ4BlockOutputStream newCompressor(final OutputStream out) {
+        return ATimeSeriesUpdater.newDefaultCompressor(out);
+    }
+
+    /**
+     * Should match the block size of the updater so that lookups behave the same for compacted chunks.
+     */
+    protected Integer getChunkBlockSize() {
+        return ATimeSeriesUpdater.CHUNK_BLOCK_SIZE;
+    }
+
+}
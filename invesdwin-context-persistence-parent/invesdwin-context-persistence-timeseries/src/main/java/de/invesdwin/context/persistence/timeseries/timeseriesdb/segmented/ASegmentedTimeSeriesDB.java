@@ -2,6 +2,7 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented;
 
 import java.io.File;
 import java.io.OutputStream;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
@@ -9,8 +10,12 @@ import java.util.function.Function;
 import javax.annotation.concurrent.ThreadSafe;
 
 import de.invesdwin.context.integration.retry.RetryLaterRuntimeException;
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkEncoding;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkReadMode;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.ITimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeValueColumns;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.TimeSeriesStorage;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ITimeSeriesUpdater;
@@ -88,6 +93,11 @@ public abstract class ASegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<K, V
                         return ASegmentedTimeSeriesDB.this.getElementsName();
                     }
 
+                    @Override
+                    protected int getSegmentPrefetchCount() {
+                        return ASegmentedTimeSeriesDB.this.getSegmentPrefetchCount();
+                    }
+
                     @Override
                     public void onSegmentCompleted(final SegmentedKey<K> segmentedKey,
                             final ICloseableIterable<V> segmentValues) {
@@ -151,6 +161,21 @@ public abstract class ASegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<K, V
 
     protected abstract Integer newFixedLength();
 
+    protected ChunkReadMode newChunkReadMode() {
+        return ChunkReadMode.DEFAULT;
+    }
+
+    protected ChunkEncoding newChunkEncoding() {
+        return ChunkEncoding.DEFAULT;
+    }
+
+    /**
+     * Number of segments that get initialized in the background ahead of a range query.
+     */
+    protected int getSegmentPrefetchCount() {
+        return TimeSeriesProperties.SEGMENT_PREFETCH_COUNT;
+    }
+
     protected abstract Serde<V> newValueSerde();
 
     protected abstract FDate extractEndTime(V value);
@@ -269,6 +294,74 @@ public abstract class ASegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<K, V
         }
     }
 
+    @Override
+    public long count(final K key, final FDate from, final FDate to) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).count(from, to);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value at the given position (0 is the first value) or null if the index is out of range.
+     */
+    public V getValueAt(final K key, final long index) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).getValueAt(index);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the position of the latest value at or before the given date or -1 if there is none, so that
+     * getValueAt(key, indexOf(key, date)) is the same as getLatestValue(key, date) for dates after the first value.
+     */
+    public long indexOf(final K key, final FDate date) {
+        return count(key, null, date) - 1;
+    }
+
+    public Serde<V> getValueSerde() {
+        return segmentedTable.getValueSerde();
+    }
+
+    public Integer getFixedLength() {
+        return segmentedTable.getFixedLength();
+    }
+
+    @Override
+    public boolean isTimeValueColumnsSupported() {
+        return segmentedTable.isTimeValueColumnsSupported();
+    }
+
+    @Override
+    public int rangeTimeValues(final K key, final FDate from, final FDate to, final TimeValueColumns columns) {
+        TimeValueColumns.assertSupported(getName(), getValueSerde(), getFixedLength());
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).readRangeTimeValues(from, to, columns);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<V> getLatestValues(final K key, final List<FDate> dates) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).getLatestValues(dates);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override
     public FDate getPreviousValueKey(final K key, final FDate date, final int shiftBackUnits) {
         final V value = getPreviousValue(key, date, shiftBackUnits);
@@ -470,6 +563,16 @@ public abstract class ASegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<K, V
             return super.getFixedLength();
         }
 
+        @Override
+        protected ChunkReadMode newChunkReadMode() {
+            return ASegmentedTimeSeriesDB.this.newChunkReadMode();
+        }
+
+        @Override
+        protected ChunkEncoding newChunkEncoding() {
+            return ASegmentedTimeSeriesDB.this.newChunkEncoding();
+        }
+
         @Override
         protected Serde<V> newValueSerde() {
             return ASegmentedTimeSeriesDB.this.newValueSerde();
@@ -2,10 +2,13 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented;
 
 import java.io.Closeable;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -22,9 +25,11 @@ import de.invesdwin.context.integration.retry.task.ARetryCallable;
 import de.invesdwin.context.integration.retry.task.BackOffPolicies;
 import de.invesdwin.context.integration.retry.task.RetryOriginator;
 import de.invesdwin.context.log.Log;
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
 import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.IncompleteUpdateFoundException;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeSeriesStorageCache;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeValueColumns;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ChunkValue;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ISkipFileFunction;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ShiftUnitsRangeKey;
@@ -34,6 +39,7 @@ import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ITimeSer
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.bean.tuple.Pair;
 import de.invesdwin.util.collections.eviction.EvictionMode;
+import de.invesdwin.util.collections.factory.ILockCollectionFactory;
 import de.invesdwin.util.collections.iterable.ASkippingIterable;
 import de.invesdwin.util.collections.iterable.ATransformingIterable;
 import de.invesdwin.util.collections.iterable.ATransformingIterator;
@@ -45,6 +51,9 @@ import de.invesdwin.util.collections.list.Lists;
 import de.invesdwin.util.collections.loadingcache.ALoadingCache;
 import de.invesdwin.util.collections.loadingcache.historical.AHistoricalCache;
 import de.invesdwin.util.collections.loadingcache.historical.query.IHistoricalCacheQuery;
+import de.invesdwin.util.concurrent.Executors;
+import de.invesdwin.util.concurrent.WrappedExecutorService;
+import de.invesdwin.util.concurrent.future.Futures;
 import de.invesdwin.util.concurrent.lock.ILock;
 import de.invesdwin.util.concurrent.lock.Locks;
 import de.invesdwin.util.concurrent.lock.disabled.DisabledLock;
@@ -66,6 +75,12 @@ import net.jpountz.lz4.LZ4BlockOutputStream;
 public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeable {
     public static final Integer MAXIMUM_SIZE = TimeSeriesStorageCache.MAXIMUM_SIZE;
     public static final EvictionMode EVICTION_MODE = TimeSeriesStorageCache.EVICTION_MODE;
+    /**
+     * Bounded so that look-ahead initializations of many keys do not flood the process with downloads.
+     */
+    private static final WrappedExecutorService SEGMENT_PREFETCH_EXECUTOR = Executors.newFixedThreadPool(
+            ASegmentedTimeSeriesStorageCache.class.getSimpleName() + "_segmentPrefetch",
+            Executors.getCpuThreadPoolCount());
 
     private final ALoadingCache<FDate, V> latestValueLookupCache = new ALoadingCache<FDate, V>() {
 
@@ -145,7 +160,7 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         protected V loadValue(final Pair<FDate, Integer> loadKey) {
             final FDate date = loadKey.getFirst();
             final int shiftBackUnits = loadKey.getSecond();
-            final SingleValue value = storage.getPreviousValueLookupTable()
+            final SingleValue value = storage.getPreviousValueWriteBehindTable()
                     .getOrLoad(hashKey, new ShiftUnitsRangeKey(date, shiftBackUnits),
                             new Function<Pair<String, ShiftUnitsRangeKey>, SingleValue>() {
 
@@ -196,7 +211,7 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         protected V loadValue(final Pair<FDate, Integer> loadKey) {
             final FDate date = loadKey.getFirst();
             final int shiftForwardUnits = loadKey.getSecond();
-            final SingleValue value = storage.getNextValueLookupTable()
+            final SingleValue value = storage.getNextValueWriteBehindTable()
                     .getOrLoad(hashKey, new ShiftUnitsRangeKey(date, shiftForwardUnits),
                             new Function<Pair<String, ShiftUnitsRangeKey>, SingleValue>() {
 
@@ -244,6 +259,9 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
     private final String hashKey;
     private final Serde<V> valueSerde;
     private final Function<SegmentedKey<K>, ICloseableIterable<? extends V>> source;
+    private final Map<TimeRange, SegmentPrefetchFuture> segmentPrefetchFutures = ILockCollectionFactory
+            .getInstance(true)
+            .newConcurrentMap();
 
     public ASegmentedTimeSeriesStorageCache(final ASegmentedTimeSeriesDB<K, V>.SegmentedTable segmentedTable,
             final SegmentedTimeSeriesStorage storage, final K key, final String hashKey) {
@@ -282,7 +300,9 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
                     @Override
                     public ICloseableIterator<V> iterator() {
                         final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, value);
+                        awaitSegmentPrefetch(value);
                         maybeInitSegment(segmentedKey);
+                        maybePrefetchNextSegments(value, adjTo);
                         final FDate segmentAdjFrom = FDates.max(adjFrom, value.getFrom());
                         final FDate segmentAdjTo = FDates.min(adjTo, value.getTo());
                         final Lock compositeReadLock = Locks.newCompositeLock(readLock,
@@ -297,6 +317,104 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         return rangeValues;
     }
 
+    /**
+     * Sums up the counts of the segments that overlap the range, each segment counts its own chunks.
+     */
+    public long count(final FDate from, final FDate to) {
+        final FDate firstAvailableSegmentFrom = getFirstAvailableSegmentFrom(key);
+        if (firstAvailableSegmentFrom == null) {
+            return 0;
+        }
+        final FDate lastAvailableSegmentTo = getLastAvailableSegmentTo(key, to);
+        if (lastAvailableSegmentTo == null) {
+            return 0;
+        }
+        //adjust dates directly to prevent unnecessary segment calculations
+        final FDate adjFrom = FDates.max(from, firstAvailableSegmentFrom);
+        final FDate adjTo = FDates.min(to, lastAvailableSegmentTo);
+        long count = 0;
+        try (ICloseableIterator<TimeRange> segments = getSegments(adjFrom, adjTo, lastAvailableSegmentTo)
+                .iterator()) {
+            while (segments.hasNext()) {
+                final TimeRange segment = segments.next();
+                final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, segment);
+                awaitSegmentPrefetch(segment);
+                maybeInitSegment(segmentedKey);
+                maybePrefetchNextSegments(segment, adjTo);
+                final FDate segmentAdjFrom = FDates.max(adjFrom, segment.getFrom());
+                final FDate segmentAdjTo = FDates.min(adjTo, segment.getTo());
+                count += segmentedTable.count(segmentedKey, segmentAdjFrom, segmentAdjTo);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Skips whole segments via their counts, so only the segment that contains the position needs to look it up.
+     */
+    public V getValueAt(final long index) {
+        if (index < 0) {
+            return null;
+        }
+        final FDate firstAvailableSegmentFrom = getFirstAvailableSegmentFrom(key);
+        if (firstAvailableSegmentFrom == null) {
+            return null;
+        }
+        final FDate lastAvailableSegmentTo = getLastAvailableSegmentTo(key, null);
+        if (lastAvailableSegmentTo == null) {
+            return null;
+        }
+        long segmentIndex = index;
+        try (ICloseableIterator<TimeRange> segments = getSegments(firstAvailableSegmentFrom, lastAvailableSegmentTo,
+                lastAvailableSegmentTo).iterator()) {
+            while (segments.hasNext()) {
+                final TimeRange segment = segments.next();
+                final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, segment);
+                awaitSegmentPrefetch(segment);
+                maybeInitSegment(segmentedKey);
+                maybePrefetchNextSegments(segment, lastAvailableSegmentTo);
+                final long segmentCount = segmentedTable.count(segmentedKey, segment.getFrom(), segment.getTo());
+                if (segmentIndex < segmentCount) {
+                    return segmentedTable.getValueAt(segmentedKey, segmentIndex);
+                }
+                segmentIndex -= segmentCount;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the times and values of the segments that overlap the range, each segment reads its own chunks.
+     */
+    public int readRangeTimeValues(final FDate from, final FDate to, final TimeValueColumns columns) {
+        final FDate firstAvailableSegmentFrom = getFirstAvailableSegmentFrom(key);
+        if (firstAvailableSegmentFrom == null) {
+            return 0;
+        }
+        final FDate lastAvailableSegmentTo = getLastAvailableSegmentTo(key, to);
+        if (lastAvailableSegmentTo == null) {
+            return 0;
+        }
+        //adjust dates directly to prevent unnecessary segment calculations
+        final FDate adjFrom = FDates.max(from, firstAvailableSegmentFrom);
+        final FDate adjTo = FDates.min(to, lastAvailableSegmentTo);
+        int count = 0;
+        try (ICloseableIterator<TimeRange> segments = getSegments(adjFrom, adjTo, lastAvailableSegmentTo)
+                .iterator()) {
+            while (segments.hasNext()) {
+                final TimeRange segment = segments.next();
+                final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, segment);
+                awaitSegmentPrefetch(segment);
+                maybeInitSegment(segmentedKey);
+                maybePrefetchNextSegments(segment, adjTo);
+                final FDate segmentAdjFrom = FDates.max(adjFrom, segment.getFrom());
+                final FDate segmentAdjTo = FDates.min(adjTo, segment.getTo());
+                count += segmentedTable.rangeTimeValues(segmentedKey, segmentAdjFrom, segmentAdjTo, columns);
+            }
+        }
+        return count;
+    }
+
     private ICloseableIterable<TimeRange> getSegments(final FDate from, final FDate to,
             final FDate lastAvailableSegmentTo) {
         if (from == null || to == null) {
@@ -372,6 +490,98 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
 
     protected abstract AHistoricalCache<TimeRange> getSegmentFinder(K key);
 
+    /**
+     * Number of segments that get initialized in the background while the current segment is being consumed.
+     */
+    protected int getSegmentPrefetchCount() {
+        return TimeSeriesProperties.SEGMENT_PREFETCH_COUNT;
+    }
+
+    private void maybePrefetchNextSegments(final TimeRange segment, final FDate to) {
+        final int prefetchCount = getSegmentPrefetchCount();
+        TimeRange nextSegment = segment;
+        for (int i = 0; i < prefetchCount; i++) {
+            nextSegment = getSegmentFinder(key).query().getValue(nextSegment.getTo().addMilliseconds(1));
+            if (nextSegment == null || nextSegment.getFrom().isAfter(to)) {
+                return;
+            }
+            maybePrefetchSegment(nextSegment);
+        }
+    }
+
+    private void maybePrefetchPreviousSegments(final TimeRange segment, final FDate to) {
+        final int prefetchCount = getSegmentPrefetchCount();
+        TimeRange previousSegment = segment;
+        for (int i = 0; i < prefetchCount; i++) {
+            previousSegment = getSegmentFinder(key).query()
+                    .withFutureNull()
+                    .getValue(previousSegment.getFrom().addMilliseconds(-1));
+            if (previousSegment == null || previousSegment.getTo().isBefore(to)) {
+                return;
+            }
+            maybePrefetchSegment(previousSegment);
+        }
+    }
+
+    private void maybePrefetchSegment(final TimeRange segment) {
+        if (closed || segmentPrefetchFutures.containsKey(segment)) {
+            return;
+        }
+        //only a hint, maybeInitSegment checks the status again under the segment lock
+        final SegmentStatus status = storage.getSegmentStatusTable().get(hashKey, segment);
+        if (status == SegmentStatus.COMPLETE || status == SegmentStatus.COMPLETE_EMPTY) {
+            return;
+        }
+        final SegmentPrefetchFuture future = new SegmentPrefetchFuture();
+        if (segmentPrefetchFutures.putIfAbsent(segment, future) != null) {
+            return;
+        }
+        try {
+            SEGMENT_PREFETCH_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    future.thread = Thread.currentThread();
+                    try {
+                        if (!closed) {
+                            maybeInitSegment(new SegmentedKey<K>(key, segment));
+                        }
+                    } catch (final Throwable t) {
+                        //the query thread will try again when it reaches this segment
+                        log.warn("Background initialization of segment [%s] for [%s] failed: %s", segment, hashKey,
+                                t.toString());
+                    } finally {
+                        future.complete(null);
+                        segmentPrefetchFutures.remove(segment, future);
+                    }
+                }
+            });
+        } catch (final Throwable t) {
+            future.complete(null);
+            segmentPrefetchFutures.remove(segment, future);
+            throw Throwables.propagate(t);
+        }
+    }
+
+    /**
+     * Waiting on the prefetch of this specific segment is cheaper than colliding on its table lock while it is still
+     * being initialized in the background.
+     */
+    private void awaitSegmentPrefetch(final TimeRange segment) {
+        final SegmentPrefetchFuture future = segmentPrefetchFutures.get(segment);
+        //onSegmentCompleted reads the segment from within the prefetch thread itself
+        if (future != null && future.thread != Thread.currentThread()) {
+            try {
+                Futures.wait(future);
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static final class SegmentPrefetchFuture extends CompletableFuture<Void> {
+        private volatile Thread thread;
+    }
+
     public void maybeInitSegment(final SegmentedKey<K> segmentedKey) {
         maybeInitSegment(segmentedKey, source);
     }
@@ -677,7 +887,9 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
                     @Override
                     public ICloseableIterator<V> iterator() {
                         final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, value);
+                        awaitSegmentPrefetch(value);
                         maybeInitSegment(segmentedKey);
+                        maybePrefetchPreviousSegments(value, adjTo);
                         final FDate segmentAdjFrom = FDates.min(adjFrom, value.getTo());
                         final FDate segmentAdjTo = FDates.max(adjTo, value.getFrom());
                         final Lock compositeReadLock = Locks.newCompositeLock(readLock,
@@ -778,8 +990,8 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         }
         segmentStatusTable.deleteRange(hashKey);
         storage.getLatestValueLookupTable().deleteRange(hashKey);
-        storage.getNextValueLookupTable().deleteRange(hashKey);
-        storage.getPreviousValueLookupTable().deleteRange(hashKey);
+        storage.getNextValueWriteBehindTable().deleteRange(hashKey);
+        storage.getPreviousValueWriteBehindTable().deleteRange(hashKey);
         clearCaches();
     }
 
@@ -787,6 +999,10 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         latestValueLookupCache.clear();
         nextValueLookupCache.clear();
         previousValueLookupCache.clear();
+        //pending write behind values might have been computed from the old data
+        storage.getLatestValueLookupTable().dropPending(hashKey);
+        storage.getNextValueWriteBehindTable().dropPending(hashKey);
+        storage.getPreviousValueWriteBehindTable().dropPending(hashKey);
         cachedFirstValue = null;
         cachedLastValue = null;
         cachedPrevLastAvailableSegmentTo = null;
@@ -798,6 +1014,55 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         return latestValueLookupCache.get(adjDate);
     }
 
+    /**
+     * Groups the ascending dates by segment and resolves each group in one pass over the segment. Dates before the
+     * first value of their segment and dates at or after the last available segment are resolved via
+     * getLatestValue(date) instead, since these need to search through neighbouring segments.
+     */
+    public List<V> getLatestValues(final List<FDate> dates) {
+        final List<V> values = new ArrayList<V>(dates.size());
+        final FDate firstAvailableSegmentFrom = getFirstAvailableSegmentFrom(key);
+        int start = 0;
+        while (start < dates.size()) {
+            final FDate date = dates.get(start);
+            final FDate lastAvailableSegmentTo = getLastAvailableSegmentTo(key, date);
+            if (firstAvailableSegmentFrom == null || lastAvailableSegmentTo == null
+                    || date.isBefore(firstAvailableSegmentFrom) || !date.isBefore(lastAvailableSegmentTo)) {
+                values.add(getLatestValue(date));
+                start++;
+                continue;
+            }
+            final TimeRange segment = getSegmentFinder(key).query().getValue(date);
+            int end = start + 1;
+            while (end < dates.size()) {
+                final FDate nextDate = dates.get(end);
+                if (nextDate.isBefore(dates.get(end - 1))) {
+                    throw new IllegalArgumentException("dates need to be sorted ascending: [" + nextDate
+                            + "] is before [" + dates.get(end - 1) + "] at index " + end);
+                }
+                if (nextDate.isAfter(segment.getTo()) || !nextDate.isBefore(lastAvailableSegmentTo)) {
+                    break;
+                }
+                end++;
+            }
+            final SegmentedKey<K> segmentedKey = new SegmentedKey<K>(key, segment);
+            maybeInitSegment(segmentedKey);
+            final List<V> segmentValues = segmentedTable.getLatestValues(segmentedKey, dates.subList(start, end));
+            for (int i = start; i < end; i++) {
+                final FDate segmentDate = dates.get(i);
+                final V segmentValue = segmentValues.get(i - start);
+                if (segmentValue == null || segmentedTable.extractEndTime(segmentValue).isAfter(segmentDate)) {
+                    //search for an earlier value in the previous segments
+                    values.add(getLatestValue(segmentDate));
+                } else {
+                    values.add(segmentValue);
+                }
+            }
+            start = end;
+        }
+        return values;
+    }
+
     public V getPreviousValue(final FDate date, final int shiftBackUnits) {
         assertShiftUnitsPositiveNonZero(shiftBackUnits);
         final V firstValue = getFirstValue();
@@ -825,8 +1090,8 @@ public abstract class ASegmentedTimeSeriesStorageCache<K, V> implements Closeabl
         if (isNewSegmentAtTheEnd(prevLastAvailableSegmentTo, segmentToBeInitialized)) {
             if (prevLastAvailableSegmentTo != null) {
                 storage.getLatestValueLookupTable().deleteRange(hashKey, prevLastAvailableSegmentTo);
-                storage.getNextValueLookupTable().deleteRange(hashKey); //we cannot be sure here about the date since shift keys can be arbitrarily large
-                storage.getPreviousValueLookupTable()
+                storage.getNextValueWriteBehindTable().deleteRange(hashKey); //we cannot be sure here about the date since shift keys can be arbitrarily large
+                storage.getPreviousValueWriteBehindTable()
                         .deleteRange(hashKey, new ShiftUnitsRangeKey(prevLastAvailableSegmentTo, 0));
             }
             clearCaches();
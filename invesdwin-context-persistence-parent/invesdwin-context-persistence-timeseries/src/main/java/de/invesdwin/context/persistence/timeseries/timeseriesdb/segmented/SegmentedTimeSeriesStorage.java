@@ -6,17 +6,26 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable;
 import de.invesdwin.context.persistence.timeseries.ezdb.RangeTablePersistenceMode;
+import de.invesdwin.context.persistence.timeseries.ezdb.WriteBehindRangeTable;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.CorruptedTimeSeriesStorageException;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ShiftUnitsRangeKey;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.SingleValue;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.TimeSeriesStorage;
 import de.invesdwin.util.time.range.TimeRange;
+import ezdb.serde.Serde;
 
 @ThreadSafe
 public class SegmentedTimeSeriesStorage extends TimeSeriesStorage {
 
     private final ADelegateRangeTable<String, TimeRange, SegmentStatus> segmentStatusTable;
+    private final WriteBehindRangeTable<String, ShiftUnitsRangeKey, SingleValue> previousValueWriteBehindTable;
+    private final WriteBehindRangeTable<String, ShiftUnitsRangeKey, SingleValue> nextValueWriteBehindTable;
 
     public SegmentedTimeSeriesStorage(final File directory, final Integer valueFixedLength) {
         super(directory, valueFixedLength);
+        //segments are still searched value by value for shifts, so those lookups are cached here
+        previousValueWriteBehindTable = new WriteBehindRangeTable<>(getPreviousValueLookupTable());
+        nextValueWriteBehindTable = new WriteBehindRangeTable<>(getNextValueLookupTable());
         segmentStatusTable = new ADelegateRangeTable<String, TimeRange, SegmentStatus>("segmentStatusTable") {
             @Override
             protected boolean allowHasNext() {
@@ -28,6 +37,11 @@ public class SegmentedTimeSeriesStorage extends TimeSeriesStorage {
                 return directory;
             }
 
+            @Override
+            protected Serde<TimeRange> newRangeKeySerde() {
+                return TimeRangeSerde.GET;
+            }
+
             @Override
             protected void onDeleteTableFinished() {
                 throw new CorruptedTimeSeriesStorageException(getName());
@@ -44,8 +58,19 @@ public class SegmentedTimeSeriesStorage extends TimeSeriesStorage {
         return segmentStatusTable;
     }
 
+    public WriteBehindRangeTable<String, ShiftUnitsRangeKey, SingleValue> getPreviousValueWriteBehindTable() {
+        return previousValueWriteBehindTable;
+    }
+
+    public WriteBehindRangeTable<String, ShiftUnitsRangeKey, SingleValue> getNextValueWriteBehindTable() {
+        return nextValueWriteBehindTable;
+    }
+
     @Override
     public void close() {
+        //writes the pending values before the tables get closed
+        previousValueWriteBehindTable.close();
+        nextValueWriteBehindTable.close();
         super.close();
         segmentStatusTable.close();
     }
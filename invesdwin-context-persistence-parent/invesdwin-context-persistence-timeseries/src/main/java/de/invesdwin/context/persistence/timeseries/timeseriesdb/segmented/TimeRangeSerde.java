@@ -0,0 +1,39 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.invesdwin.context.persistence.timeseries.serde.ILexicographicalSerde;
+import de.invesdwin.context.persistence.timeseries.serde.LexicographicalFDateSerde;
+import de.invesdwin.util.time.date.FDate;
+import de.invesdwin.util.time.range.TimeRange;
+
+/**
+ * Encodes from and to in that order so that the bytes sort like the segments.
+ */
+@Immutable
+public final class TimeRangeSerde implements ILexicographicalSerde<TimeRange> {
+
+    public static final TimeRangeSerde GET = new TimeRangeSerde();
+    public static final int FIXED_LENGTH = LexicographicalFDateSerde.FIXED_LENGTH * 2;
+
+    private TimeRangeSerde() {}
+
+    @Override
+    public TimeRange fromBytes(final byte[] bytes) {
+        final ByteBuffer buf = ByteBuffer.wrap(bytes);
+        final FDate from = LexicographicalFDateSerde.extractFDate(buf);
+        final FDate to = LexicographicalFDateSerde.extractFDate(buf);
+        return new TimeRange(from, to);
+    }
+
+    @Override
+    public byte[] toBytes(final TimeRange obj) {
+        final ByteBuffer buf = ByteBuffer.allocate(FIXED_LENGTH);
+        LexicographicalFDateSerde.putFDate(buf, obj.getFrom());
+        LexicographicalFDateSerde.putFDate(buf, obj.getTo());
+        return buf.array();
+    }
+
+}
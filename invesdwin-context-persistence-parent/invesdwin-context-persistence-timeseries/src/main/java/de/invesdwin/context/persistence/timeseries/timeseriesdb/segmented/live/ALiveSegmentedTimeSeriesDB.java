@@ -2,6 +2,7 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live;
 
 import java.io.File;
 import java.io.OutputStream;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
@@ -9,8 +10,12 @@ import java.util.function.Function;
 import javax.annotation.concurrent.ThreadSafe;
 
 import de.invesdwin.context.integration.retry.RetryLaterRuntimeException;
+import de.invesdwin.context.persistence.timeseries.TimeSeriesProperties;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkEncoding;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkReadMode;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.ITimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeValueColumns;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.ASegmentedTimeSeriesDB;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.ASegmentedTimeSeriesStorageCache;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.SegmentedKey;
@@ -123,6 +128,21 @@ public abstract class ALiveSegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<
             return ALiveSegmentedTimeSeriesDB.this.newValueFixedLength();
         }
 
+        @Override
+        protected ChunkReadMode newChunkReadMode() {
+            return ALiveSegmentedTimeSeriesDB.this.newChunkReadMode();
+        }
+
+        @Override
+        protected ChunkEncoding newChunkEncoding() {
+            return ALiveSegmentedTimeSeriesDB.this.newChunkEncoding();
+        }
+
+        @Override
+        protected int getSegmentPrefetchCount() {
+            return ALiveSegmentedTimeSeriesDB.this.getSegmentPrefetchCount();
+        }
+
         @Override
         public Serde<V> newValueSerde() {
             return ALiveSegmentedTimeSeriesDB.this.newValueSerde();
@@ -217,6 +237,18 @@ public abstract class ALiveSegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<
         return ATimeSeriesUpdater.newDefaultCompressor(out);
     }
 
+    protected ChunkReadMode newChunkReadMode() {
+        return ChunkReadMode.DEFAULT;
+    }
+
+    protected ChunkEncoding newChunkEncoding() {
+        return ChunkEncoding.DEFAULT;
+    }
+
+    protected int getSegmentPrefetchCount() {
+        return TimeSeriesProperties.SEGMENT_PREFETCH_COUNT;
+    }
+
     protected ITimeSeriesUpdater<SegmentedKey<K>, V> newSegmentUpdaterOverride(final SegmentedKey<K> segmentedKey,
             final ASegmentedTimeSeriesDB<K, V>.SegmentedTable segmentedTable,
             final Function<SegmentedKey<K>, ICloseableIterable<? extends V>> source) {
@@ -330,6 +362,67 @@ public abstract class ALiveSegmentedTimeSeriesDB<K, V> implements ITimeSeriesDB<
         }
     }
 
+    @Override
+    public long count(final K key, final FDate from, final FDate to) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).count(from, to);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the value at the given position (0 is the first value) or null if the index is out of range.
+     */
+    public V getValueAt(final K key, final long index) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).getValueAt(index);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the position of the latest value at or before the given date or -1 if there is none, so that
+     * getValueAt(key, indexOf(key, date)) is the same as getLatestValue(key, date) for dates after the first value.
+     */
+    public long indexOf(final K key, final FDate date) {
+        return count(key, null, date) - 1;
+    }
+
+    @Override
+    public boolean isTimeValueColumnsSupported() {
+        return historicalSegmentTable.isTimeValueColumnsSupported();
+    }
+
+    @Override
+    public int rangeTimeValues(final K key, final FDate from, final FDate to, final TimeValueColumns columns) {
+        TimeValueColumns.assertSupported(getName(), historicalSegmentTable.getValueSerde(),
+                historicalSegmentTable.getFixedLength());
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).readRangeTimeValues(from, to, columns);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<V> getLatestValues(final K key, final List<FDate> dates) {
+        final Lock readLock = getTableLock(key).readLock();
+        readLock.lock();
+        try {
+            return getLookupTableCache(key).getLatestValues(dates);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     @Override
     public FDate getPreviousValueKey(final K key, final FDate date, final int shiftBackUnits) {
         final V value = getPreviousValue(key, date, shiftBackUnits);
@@ -1,6 +1,8 @@
 package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -11,6 +13,7 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeValueColumns;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.SegmentedKey;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live.internal.ILiveSegment;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live.internal.SwitchingLiveSegment;
@@ -24,6 +27,7 @@ import de.invesdwin.util.concurrent.lock.disabled.DisabledLock;
 import de.invesdwin.util.concurrent.reference.MutableReference;
 import de.invesdwin.util.time.date.FDate;
 import de.invesdwin.util.time.range.TimeRange;
+import ezdb.serde.Serde;
 
 @ThreadSafe
 public class LiveSegmentedTimeSeriesStorageCache<K, V> implements Closeable {
@@ -128,6 +132,104 @@ public class LiveSegmentedTimeSeriesStorageCache<K, V> implements Closeable {
         }
     }
 
+    /**
+     * The historical part is counted via its chunk counts, the live segment is small enough to just iterate over it.
+     */
+    public long count(final FDate from, final FDate to) {
+        if (liveSegment == null) {
+            //no live segment, go with historical
+            return historicalSegmentTable.count(key, from, to);
+        }
+        final FDate liveSegmentFrom = liveSegment.getSegmentedKey().getSegment().getFrom();
+        if (to != null && liveSegmentFrom.isAfter(to)) {
+            //live segment is after requested range, go with historical
+            return historicalSegmentTable.count(key, from, to);
+        } else if (from != null && liveSegmentFrom.isBeforeOrEqualTo(from)) {
+            //historical segment is before requested range, go with live
+            return countLiveValues(from, to);
+        } else {
+            //use both segments
+            return historicalSegmentTable.count(key, from, liveSegmentFrom.addMilliseconds(-1))
+                    + countLiveValues(liveSegmentFrom, to);
+        }
+    }
+
+    private long countLiveValues(final FDate from, final FDate to) {
+        long count = 0;
+        try (ICloseableIterator<V> it = liveSegment.rangeValues(from, to, DisabledLock.INSTANCE, null).iterator()) {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The historical part is skipped via its count, the live segment is small enough to just iterate over it.
+     */
+    public V getValueAt(final long index) {
+        if (liveSegment == null) {
+            //no live segment, go with historical
+            return historicalSegmentTable.getValueAt(key, index);
+        }
+        if (index < 0) {
+            return null;
+        }
+        final FDate liveSegmentFrom = liveSegment.getSegmentedKey().getSegment().getFrom();
+        final long historicalCount = historicalSegmentTable.count(key, null, liveSegmentFrom.addMilliseconds(-1));
+        if (index < historicalCount) {
+            return historicalSegmentTable.getValueAt(key, index);
+        }
+        long liveIndex = index - historicalCount;
+        try (ICloseableIterator<V> it = liveSegment.rangeValues(liveSegmentFrom, null, DisabledLock.INSTANCE, null)
+                .iterator()) {
+            while (it.hasNext()) {
+                final V value = it.next();
+                if (liveIndex == 0) {
+                    return value;
+                }
+                liveIndex--;
+            }
+        }
+        return null;
+    }
+
+    public int readRangeTimeValues(final FDate from, final FDate to, final TimeValueColumns columns) {
+        if (liveSegment == null) {
+            //no live segment, go with historical
+            return historicalSegmentTable.rangeTimeValues(key, from, to, columns);
+        }
+        final FDate liveSegmentFrom = liveSegment.getSegmentedKey().getSegment().getFrom();
+        if (to != null && liveSegmentFrom.isAfter(to)) {
+            //live segment is after requested range, go with historical
+            return historicalSegmentTable.rangeTimeValues(key, from, to, columns);
+        } else if (from != null && liveSegmentFrom.isBeforeOrEqualTo(from)) {
+            //historical segment is before requested range, go with live
+            return readLiveTimeValues(from, to, columns);
+        } else {
+            //use both segments
+            return historicalSegmentTable.rangeTimeValues(key, from, liveSegmentFrom.addMilliseconds(-1), columns)
+                    + readLiveTimeValues(liveSegmentFrom, to, columns);
+        }
+    }
+
+    /**
+     * The live segment holds objects, thus they are encoded again to extract the time and value. It is small compared
+     * to the historical segments which are read from the chunk bytes directly.
+     */
+    private int readLiveTimeValues(final FDate from, final FDate to, final TimeValueColumns columns) {
+        final Serde<V> valueSerde = historicalSegmentTable.getValueSerde();
+        int count = 0;
+        try (ICloseableIterator<V> it = liveSegment.rangeValues(from, to, DisabledLock.INSTANCE, null).iterator()) {
+            while (it.hasNext()) {
+                columns.add(ByteBuffer.wrap(valueSerde.toBytes(it.next())), 0);
+                count++;
+            }
+        }
+        return count;
+    }
+
     public ICloseableIterable<V> readRangeValuesReverse(final FDate from, final FDate to, final Lock readLock,
             final ISkipFileFunction skipFileFunction) {
         readLock.lock();
@@ -192,6 +294,39 @@ public class LiveSegmentedTimeSeriesStorageCache<K, V> implements Closeable {
         return latestValue;
     }
 
+    /**
+     * Dates before the live segment are resolved in one pass over the historical segments, the remaining ones are
+     * looked up one by one since the live segment is small and kept in memory or in a single file.
+     */
+    public List<V> getLatestValues(final List<FDate> dates) {
+        if (liveSegment == null) {
+            return historicalSegmentTable.getLatestValues(key, dates);
+        }
+        final FDate liveSegmentFrom = liveSegment.getSegmentedKey().getSegment().getFrom();
+        int historicalEnd = 0;
+        while (historicalEnd < dates.size() && dates.get(historicalEnd).isBefore(liveSegmentFrom)) {
+            historicalEnd++;
+        }
+        final List<V> values = new ArrayList<V>(dates.size());
+        if (historicalEnd > 0) {
+            final List<V> historicalValues = historicalSegmentTable.getLatestValues(key,
+                    dates.subList(0, historicalEnd));
+            for (int i = 0; i < historicalValues.size(); i++) {
+                final V historicalValue = historicalValues.get(i);
+                if (historicalValue == null) {
+                    //no historical values yet
+                    values.add(getFirstValue());
+                } else {
+                    values.add(historicalValue);
+                }
+            }
+        }
+        for (int i = historicalEnd; i < dates.size(); i++) {
+            values.add(getLatestValue(dates.get(i)));
+        }
+        return values;
+    }
+
     public V getPreviousValue(final FDate date, final int shiftBackUnits) {
         if (liveSegment == null) {
             //no live segment, go with historical
@@ -1,8 +1,14 @@
 package de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live.internal;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
@@ -10,12 +16,14 @@ import java.util.function.Function;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.NotThreadSafe;
 
-import de.invesdwin.context.persistence.timeseries.timeseriesdb.HeapSerializingCollection;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.CompressedBlockIndex;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.DecompressedChunkCache;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.SerializingCollection;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.ASegmentedTimeSeriesStorageCache;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.SegmentedKey;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.live.ALiveSegmentedTimeSeriesDB;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.storage.ISkipFileFunction;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
 import de.invesdwin.util.collections.iterable.ATimeRangeSkippingIterable;
 import de.invesdwin.util.collections.iterable.EmptyCloseableIterable;
 import de.invesdwin.util.collections.iterable.ICloseableIterable;
@@ -31,6 +39,12 @@ import ezdb.serde.Serde;
 @NotThreadSafe
 public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
 
+    /**
+     * Values are compressed in blocks so that readers only need to decompress the blocks that overlap the requested
+     * range instead of everything that was flushed so far.
+     */
+    private static final int BLOCK_SIZE = ATimeSeriesUpdater.CHUNK_BLOCK_SIZE;
+
     private final SegmentedKey<K> segmentedKey;
     private final ALiveSegmentedTimeSeriesDB<K, V>.HistoricalSegmentTable historicalSegmentTable;
     private SerializingCollection<V> values;
@@ -41,6 +55,13 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
     private FDate lastValueKey;
     private final IBufferingIterator<V> lastValue = new BufferingIterator<>();
     private File file;
+    /**
+     * Append only index of the first key of each block.
+     */
+    @GuardedBy("this")
+    private final List<FDate> blockFirstKeys = new ArrayList<>();
+    @GuardedBy("this")
+    private CompressedBlockIndex flushedBlockIndex;
 
     public FileLiveSegment(final SegmentedKey<K> segmentedKey,
             final ALiveSegmentedTimeSeriesDB<K, V>.HistoricalSegmentTable historicalSegmentTable) {
@@ -51,6 +72,7 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
     private SerializingCollection<V> newSerializingCollection() {
         final File file = getFile();
         Files.deleteQuietly(file);
+        DecompressedChunkCache.getInstance().invalidate(file);
         try {
             Files.forceMkdirParent(file);
         } catch (final IOException e) {
@@ -69,6 +91,11 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
                 return historicalSegmentTable.newFixedLength();
             }
 
+            @Override
+            protected Integer getBlockSize() {
+                return BLOCK_SIZE;
+            }
+
             @Override
             protected InputStream newFileInputStream(final File file) throws IOException {
                 throw new UnsupportedOperationException("use getFlushedValues() instead");
@@ -122,7 +149,15 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
                 return firstValue.snapshot();
             }
         }
-        return new ATimeRangeSkippingIterable<V>(from, to, getFlushedValues()) {
+        final SerializingCollection<V> flushedValues = getFlushedValues();
+        final int fromBlock = findBlock(from, false);
+        final ICloseableIterable<V> blockValues = new ICloseableIterable<V>() {
+            @Override
+            public ICloseableIterator<V> iterator() {
+                return flushedValues.iterator(fromBlock);
+            }
+        };
+        return new ATimeRangeSkippingIterable<V>(from, to, blockValues) {
 
             @Override
             protected FDate extractEndTime(final V element) {
@@ -162,7 +197,20 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
                 return lastValue.snapshot();
             }
         }
-        return new ATimeRangeSkippingIterable<V>(from, to, getFlushedValues().reverseIterable()) {
+        final SerializingCollection<V> flushedValues = getFlushedValues();
+        final int fromBlock;
+        if (from == null) {
+            fromBlock = Integer.MAX_VALUE;
+        } else {
+            fromBlock = findBlock(from, true);
+        }
+        final ICloseableIterable<V> blockValues = new ICloseableIterable<V>() {
+            @Override
+            public ICloseableIterator<V> iterator() {
+                return flushedValues.reverseIterator(fromBlock);
+            }
+        };
+        return new ATimeRangeSkippingIterable<V>(from, to, blockValues) {
 
             @Override
             protected FDate extractEndTime(final V element) {
@@ -192,6 +240,9 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
                 values = newSerializingCollection();
             }
             values.add(nextLiveValue);
+            if ((values.size() - 1) % BLOCK_SIZE == 0) {
+                blockFirstKeys.add(nextLiveKey);
+            }
             needsFlush = true;
         }
         if (firstValue.isEmpty() || firstValueKey.equalsNotNullSafe(nextLiveKey)) {
@@ -264,9 +315,12 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
             if (values != null) {
                 values.close();
                 values.clear();
+                DecompressedChunkCache.getInstance().invalidate(values.getFile());
                 values = null;
             }
             needsFlush = false;
+            blockFirstKeys.clear();
+            flushedBlockIndex = null;
         }
         firstValue.clear();
         firstValueKey = null;
@@ -277,8 +331,9 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
     @Override
     public void convertLiveSegmentToHistorical() {
         synchronized (this) {
+            //closing only finishes the last block, the blocks stay where they are
+            updateFlushedBlockIndex();
             values.close();
-            needsFlush = false;
         }
         final ASegmentedTimeSeriesStorageCache<K, V> lookupTableCache = historicalSegmentTable
                 .getLookupTableCache(getSegmentedKey().getKey());
@@ -295,31 +350,100 @@ public class FileLiveSegment<K, V> implements ILiveSegment<K, V> {
         }
     }
 
-    private HeapSerializingCollection<V> getFlushedValues() {
-        synchronized (this) {
-            if (needsFlush) {
-                values.flush();
-                needsFlush = false;
+    @GuardedBy("this")
+    private void updateFlushedBlockIndex() {
+        if (needsFlush || flushedBlockIndex == null) {
+            flushedBlockIndex = values.getFlushedBlockIndex();
+            needsFlush = false;
+        }
+    }
+
+    /**
+     * Binary search for the last block that starts before (or at when inclusive) the given key.
+     */
+    private synchronized int findBlock(final FDate key, final boolean inclusive) {
+        if (key == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = blockFirstKeys.size() - 1;
+        int block = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final FDate firstKey = blockFirstKeys.get(mid);
+            if (firstKey.isAfterNotNullSafe(key) || !inclusive && firstKey.equalsNotNullSafe(key)) {
+                high = mid - 1;
+            } else {
+                block = mid;
+                low = mid + 1;
             }
         }
-        try {
-            final TextDescription name = new TextDescription("%s[%s]: getFlushedValues()",
-                    FileLiveSegment.class.getSimpleName(), segmentedKey);
-            final byte[] bytes = Files.readFileToByteArray(values.getFile());
-            return new HeapSerializingCollection<V>(name, bytes) {
-                @Override
-                protected Serde<V> newSerde() {
-                    return historicalSegmentTable.newValueSerde();
+        return block;
+    }
+
+    private SerializingCollection<V> getFlushedValues() {
+        final CompressedBlockIndex blockIndex;
+        synchronized (this) {
+            updateFlushedBlockIndex();
+            blockIndex = flushedBlockIndex;
+        }
+        final File file = getFile();
+        final TextDescription name = new TextDescription("%s[%s]: getFlushedValues()",
+                FileLiveSegment.class.getSimpleName(), segmentedKey);
+        return new SerializingCollection<V>(name, file, true) {
+            @Override
+            protected Serde<V> newSerde() {
+                return historicalSegmentTable.newValueSerde();
+            }
+
+            @Override
+            protected Integer getFixedLength() {
+                return historicalSegmentTable.newFixedLength();
+            }
+
+            @Override
+            protected Integer getBlockSize() {
+                return BLOCK_SIZE;
+            }
+
+            @Override
+            protected CompressedBlockIndex newBlockIndex() throws IOException {
+                return blockIndex;
+            }
+
+            @Override
+            protected ByteBuffer newDecompressedBlock(final int block) throws IOException {
+                if (block < blockIndex.getBlockCount() - 1) {
+                    //finished blocks do not change anymore
+                    return DecompressedChunkCache.getInstance()
+                            .getBlock(file, block, () -> decompress(readCompressedBlock(blockIndex, block)));
+                } else {
+                    //the last block is still being appended to
+                    return decompress(readCompressedBlock(blockIndex, block));
                 }
+            }
+
+            @Override
+            protected InputStream newFileInputStream(final File file) throws IOException {
+                throw new UnsupportedOperationException("blocks are read individually");
+            }
+        };
+    }
 
-                @Override
-                protected Integer getFixedLength() {
-                    return historicalSegmentTable.newFixedLength();
+    private ByteBuffer readCompressedBlock(final CompressedBlockIndex blockIndex, final int block) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(blockIndex.getLength(block));
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            long position = blockIndex.getOffset(block);
+            while (buffer.hasRemaining()) {
+                final int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Block [" + block + "] of [" + getFile() + "] is incomplete");
                 }
-            };
-        } catch (final IOException e) {
-            throw new RuntimeException(e);
+                position += read;
+            }
         }
+        buffer.flip();
+        return buffer;
     }
 
     @Override
@@ -8,7 +8,7 @@ import java.util.function.Function;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable;
-import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.LexicographicalFDateSerde;
 import de.invesdwin.context.persistence.timeseries.serde.VoidSerde;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.ASegmentedTimeSeriesStorageCache;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.SegmentedKey;
@@ -58,7 +58,7 @@ public class RangeTableLiveSegment<K, V> implements ILiveSegment<K, V> {
 
             @Override
             protected Serde<FDate> newRangeKeySerde() {
-                return FDateSerde.GET;
+                return LexicographicalFDateSerde.GET;
             }
 
             @Override
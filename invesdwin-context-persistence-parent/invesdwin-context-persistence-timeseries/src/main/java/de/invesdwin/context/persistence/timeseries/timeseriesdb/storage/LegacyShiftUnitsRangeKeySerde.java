@@ -0,0 +1,39 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb.storage;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.invesdwin.util.time.date.FDate;
+import de.invesdwin.util.time.date.FDates;
+import ezdb.serde.Serde;
+
+/**
+ * The encoding that ShiftUnitsRangeKeySerde used before it became lexicographical. Tables that were created with it
+ * keep using it.
+ */
+@Immutable
+public final class LegacyShiftUnitsRangeKeySerde implements Serde<ShiftUnitsRangeKey> {
+
+    public static final LegacyShiftUnitsRangeKeySerde GET = new LegacyShiftUnitsRangeKeySerde();
+    public static final int FIXED_LENGTH = 8 + 4;
+
+    private LegacyShiftUnitsRangeKeySerde() {}
+
+    @Override
+    public ShiftUnitsRangeKey fromBytes(final byte[] bytes) {
+        final ByteBuffer buf = ByteBuffer.wrap(bytes);
+        final FDate rangeKey = FDates.extractFDate(buf);
+        final int shiftUnits = buf.getInt();
+        return new ShiftUnitsRangeKey(rangeKey, shiftUnits);
+    }
+
+    @Override
+    public byte[] toBytes(final ShiftUnitsRangeKey obj) {
+        final ByteBuffer buf = ByteBuffer.allocate(FIXED_LENGTH);
+        FDates.putFDate(buf, obj.getRangeKey());
+        buf.putInt(obj.getShiftUnits());
+        return buf.array();
+    }
+
+}
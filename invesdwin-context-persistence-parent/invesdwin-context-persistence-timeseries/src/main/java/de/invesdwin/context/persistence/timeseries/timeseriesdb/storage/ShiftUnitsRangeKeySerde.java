@@ -4,31 +4,35 @@ import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.Immutable;
 
+import de.invesdwin.context.persistence.timeseries.serde.ILexicographicalSerde;
+import de.invesdwin.context.persistence.timeseries.serde.LexicographicalFDateSerde;
 import de.invesdwin.util.time.date.FDate;
-import de.invesdwin.util.time.date.FDates;
-import ezdb.serde.Serde;
 
+/**
+ * The encoding preserves the order of ShiftUnitsRangeKey.compareTo (range key first, then shift units) so that the
+ * bytes can be compared directly.
+ */
 @Immutable
-public final class ShiftUnitsRangeKeySerde implements Serde<ShiftUnitsRangeKey> {
+public final class ShiftUnitsRangeKeySerde implements ILexicographicalSerde<ShiftUnitsRangeKey> {
 
     public static final ShiftUnitsRangeKeySerde GET = new ShiftUnitsRangeKeySerde();
-    public static final int FIXED_LENGTH = 8 + 4;
+    public static final int FIXED_LENGTH = LexicographicalFDateSerde.FIXED_LENGTH + Integer.BYTES;
 
     private ShiftUnitsRangeKeySerde() {}
 
     @Override
     public ShiftUnitsRangeKey fromBytes(final byte[] bytes) {
         final ByteBuffer buf = ByteBuffer.wrap(bytes);
-        final FDate rangeKey = FDates.extractFDate(buf);
-        final int shiftUnits = buf.getInt();
+        final FDate rangeKey = LexicographicalFDateSerde.extractFDate(buf);
+        final int shiftUnits = LexicographicalFDateSerde.extractInt(buf);
         return new ShiftUnitsRangeKey(rangeKey, shiftUnits);
     }
 
     @Override
     public byte[] toBytes(final ShiftUnitsRangeKey obj) {
         final ByteBuffer buf = ByteBuffer.allocate(FIXED_LENGTH);
-        FDates.putFDate(buf, obj.getRangeKey());
-        buf.putInt(obj.getShiftUnits());
+        LexicographicalFDateSerde.putFDate(buf, obj.getRangeKey());
+        LexicographicalFDateSerde.putInt(buf, obj.getShiftUnits());
         return buf.array();
     }
 
@@ -6,6 +6,9 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable;
 import de.invesdwin.context.persistence.timeseries.ezdb.RangeTablePersistenceMode;
+import de.invesdwin.context.persistence.timeseries.ezdb.WriteBehindRangeTable;
+import de.invesdwin.context.persistence.timeseries.serde.LexicographicalFDateSerde;
+import de.invesdwin.util.lang.Files;
 import de.invesdwin.util.time.date.FDate;
 import ezdb.serde.Serde;
 
@@ -14,12 +17,18 @@ public class TimeSeriesStorage {
 
     private final File directory;
     private final ADelegateRangeTable<String, FDate, ChunkValue> fileLookupTable;
-    private final ADelegateRangeTable<String, FDate, SingleValue> latestValueLookupTable;
+    private final WriteBehindRangeTable<String, FDate, SingleValue> latestValueLookupTable;
+    /**
+     * Only the segmented storage still caches shift lookups here, the chunked storage resolves them via the value
+     * positions of the chunks. Thus these tables are not write behind by default.
+     */
     private final ADelegateRangeTable<String, ShiftUnitsRangeKey, SingleValue> previousValueLookupTable;
     private final ADelegateRangeTable<String, ShiftUnitsRangeKey, SingleValue> nextValueLookupTable;
 
     public TimeSeriesStorage(final File directory, final Integer valueFixedLength) {
         this.directory = directory;
+        //files from a previous process can not be referenced by any reader anymore
+        Files.deleteQuietly(getRetiredDirectory());
         this.fileLookupTable = new ADelegateRangeTable<String, FDate, ChunkValue>("fileLookupTable") {
 
             @Override
@@ -37,6 +46,11 @@ public class TimeSeriesStorage {
                 throw new CorruptedTimeSeriesStorageException(getName());
             }
 
+            @Override
+            protected Serde<FDate> newRangeKeySerde() {
+                return LexicographicalFDateSerde.GET;
+            }
+
             @Override
             protected Serde<ChunkValue> newValueSerde() {
                 return new ChunkValueSerde(valueFixedLength);
@@ -48,24 +62,30 @@ public class TimeSeriesStorage {
             }
 
         };
-        this.latestValueLookupTable = new ADelegateRangeTable<String, FDate, SingleValue>("latestValueLookupTable") {
-
-            @Override
-            protected File getDirectory() {
-                return directory;
-            }
-
-            @Override
-            protected Serde<SingleValue> newValueSerde() {
-                return SingleValueSerde.GET;
-            }
-
-            @Override
-            protected void onDeleteTableFinished() {
-                throw new CorruptedTimeSeriesStorageException(getName());
-            }
-
-        };
+        this.latestValueLookupTable = new WriteBehindRangeTable<>(
+                new ADelegateRangeTable<String, FDate, SingleValue>("latestValueLookupTable") {
+
+                    @Override
+                    protected File getDirectory() {
+                        return directory;
+                    }
+
+                    @Override
+                    protected Serde<FDate> newRangeKeySerde() {
+                        return LexicographicalFDateSerde.GET;
+                    }
+
+                    @Override
+                    protected Serde<SingleValue> newValueSerde() {
+                        return SingleValueSerde.GET;
+                    }
+
+                    @Override
+                    protected void onDeleteTableFinished() {
+                        throw new CorruptedTimeSeriesStorageException(getName());
+                    }
+
+                });
         this.nextValueLookupTable = new ADelegateRangeTable<String, ShiftUnitsRangeKey, SingleValue>(
                 "nextValueLookupTable") {
 
@@ -79,6 +99,11 @@ public class TimeSeriesStorage {
                 return ShiftUnitsRangeKeySerde.GET;
             }
 
+            @Override
+            protected Serde<ShiftUnitsRangeKey> newLegacyRangeKeySerde() {
+                return LegacyShiftUnitsRangeKeySerde.GET;
+            }
+
             @Override
             protected Serde<SingleValue> newValueSerde() {
                 return SingleValueSerde.GET;
@@ -102,6 +127,11 @@ public class TimeSeriesStorage {
                 return ShiftUnitsRangeKeySerde.GET;
             }
 
+            @Override
+            protected Serde<ShiftUnitsRangeKey> newLegacyRangeKeySerde() {
+                return LegacyShiftUnitsRangeKeySerde.GET;
+            }
+
             @Override
             protected Serde<SingleValue> newValueSerde() {
                 return SingleValueSerde.GET;
@@ -123,7 +153,7 @@ public class TimeSeriesStorage {
         return fileLookupTable;
     }
 
-    public ADelegateRangeTable<String, FDate, SingleValue> getLatestValueLookupTable() {
+    public WriteBehindRangeTable<String, FDate, SingleValue> getLatestValueLookupTable() {
         return latestValueLookupTable;
     }
 
@@ -146,4 +176,12 @@ public class TimeSeriesStorage {
         return new File(getDirectory(), "storage/" + hashKey);
     }
 
+    /**
+     * Chunk files that got replaced while readers still had them in their snapshot are moved here until the last
+     * reader is finished.
+     */
+    public File getRetiredDirectory() {
+        return new File(getDirectory(), "retired");
+    }
+
 }
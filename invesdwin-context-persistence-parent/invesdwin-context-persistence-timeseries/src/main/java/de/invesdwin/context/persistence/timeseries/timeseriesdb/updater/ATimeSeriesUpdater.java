@@ -14,6 +14,8 @@ import javax.annotation.concurrent.NotThreadSafe;
 import de.invesdwin.context.integration.retry.RetryLaterRuntimeException;
 import de.invesdwin.context.integration.streams.LZ4Streams;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.ATimeSeriesDB;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkEncoding;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ColumnarEncodingOutputStream;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.IncompleteUpdateFoundException;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.SerializingCollection;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeSeriesStorageCache;
@@ -42,6 +44,18 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
 
     public static final boolean DEFAULT_SHOULD_WRITE_IN_PARALLEL = false;
     public static final int BATCH_FLUSH_INTERVAL = 10_000;
+    /**
+     * Each chunk file is split into independently compressed blocks of this many elements, so that lookups only need
+     * to decompress a single block.
+     */
+    public static final int CHUNK_BLOCK_SIZE = BATCH_FLUSH_INTERVAL / 10;
+    /**
+     * In the incremental mode the last chunk gets redone by the next update. When the last batch of an update has more
+     * elements than this, its last value is written into a separate chunk so that the next update only redoes that one.
+     * Smaller last batches are kept as they are, thus the redone chunk grows with small appends up to about this
+     * size.
+     */
+    public static final int INCREMENTAL_TAIL_SIZE = CHUNK_BLOCK_SIZE;
     public static final int BATCH_QUEUE_SIZE = 500_000 / BATCH_FLUSH_INTERVAL;
     public static final int BATCH_WRITER_THREADS = Executors.getCpuThreadPoolCount();
 
@@ -54,6 +68,7 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
     private volatile FDate minTime = null;
     private volatile FDate maxTime = null;
     private int count = 0;
+    private boolean incremental;
 
     public ATimeSeriesUpdater(final K key, final ATimeSeriesDB<K, V> table) {
         if (key == null) {
@@ -114,9 +129,19 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
                 }
                 final Instant updateStart = new Instant();
                 onUpdateStart();
-                doUpdate();
+                try {
+                    doUpdate();
+                } finally {
+                    //range readers keep using the previous version until now
+                    lookupTable.publishSnapshot();
+                }
                 onUpdateFinished(updateStart);
                 Assertions.assertThat(updateLockFile.delete()).isTrue();
+                if (incremental) {
+                    //incremental updates leave small chunks behind, those get merged in the background as soon as the
+                    //write lock is released
+                    table.getCompactionService().compactAsync(key);
+                }
                 return true;
             } catch (final Throwable t) {
                 throw new IncompleteUpdateFoundException("Something unexpected went wrong", t);
@@ -127,7 +152,13 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
     }
 
     private void doUpdate() {
-        final Pair<FDate, List<V>> pair = lookupTable.prepareForUpdate(shouldRedoLastFile());
+        incremental = shouldUpdateIncrementally();
+        final Pair<FDate, List<V>> pair;
+        if (incremental) {
+            pair = lookupTable.prepareForIncrementalUpdate();
+        } else {
+            pair = lookupTable.prepareForUpdate(shouldRedoLastFile());
+        }
         final FDate updateFrom = pair.getFirst();
         final List<V> lastValues = pair.getSecond();
         Assertions.checkNotNull(lastValues);
@@ -145,20 +176,26 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
         try (ICloseableIterator<UpdateProgress> batchWriterProducer = new ICloseableIterator<UpdateProgress>() {
 
             private final ICloseableIterator<? extends V> elements = flatteningSources.iterator();
+            private UpdateProgress pendingTail;
 
             @Override
             public boolean hasNext() {
-                return elements.hasNext();
+                return pendingTail != null || elements.hasNext();
             }
 
             @Override
             public UpdateProgress next() {
+                if (pendingTail != null) {
+                    final UpdateProgress tail = pendingTail;
+                    pendingTail = null;
+                    return tail;
+                }
                 final UpdateProgress progress = new UpdateProgress();
                 try {
                     while (true) {
                         final V element = elements.next();
                         if (progress.onElement(element)) {
-                            return progress;
+                            break;
                         }
                     }
                 } catch (NoSuchElementException e) {
@@ -167,6 +204,10 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
                         throw e;
                     }
                 }
+                if (incremental && progress.getCount() > getIncrementalTailSize() && !elements.hasNext()) {
+                    //keep the last value separate so that the next update does not need to redo this large chunk
+                    pendingTail = progress.splitTail();
+                }
                 return progress;
             }
 
@@ -245,6 +286,19 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
         return true;
     }
 
+    /**
+     * When enabled, only the last chunk of the previous update gets redone, which stays at about
+     * getIncrementalTailSize() elements, and cached lookups are only invalidated for dates after the previous last
+     * value. This makes frequent small updates cheaper. shouldRedoLastFile() is ignored in this mode.
+     */
+    protected boolean shouldUpdateIncrementally() {
+        return false;
+    }
+
+    protected int getIncrementalTailSize() {
+        return INCREMENTAL_TAIL_SIZE;
+    }
+
     protected abstract ICloseableIterable<? extends V> getSource(FDate updateFrom);
 
     protected abstract void onUpdateFinished(Instant updateStart);
@@ -259,6 +313,13 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
         return newDefaultCompressor(out);
     }
 
+    /**
+     * Return null here to write each chunk file as one single compressed stream without a block index.
+     */
+    protected Integer getChunkBlockSize() {
+        return CHUNK_BLOCK_SIZE;
+    }
+
     public static LZ4BlockOutputStream newDefaultCompressor(final OutputStream out) {
         return LZ4Streams.newLargeHighLZ4OutputStream(out);
     }
@@ -298,6 +359,15 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
             return getCount() % BATCH_FLUSH_INTERVAL == 0;
         }
 
+        private UpdateProgress splitTail() {
+            final V tailElement = batch.remove(batch.size() - 1);
+            count--;
+            maxTime = extractEndTime(batch.get(batch.size() - 1));
+            final UpdateProgress tail = new UpdateProgress();
+            tail.onElement(tailElement);
+            return tail;
+        }
+
         private void write(final int flushIndex) {
             final Instant flushStart = new Instant();
 
@@ -323,7 +393,12 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
 
                 @Override
                 protected OutputStream newCompressor(final OutputStream out) {
-                    return ATimeSeriesUpdater.this.newCompressor(out);
+                    final OutputStream compressor = ATimeSeriesUpdater.this.newCompressor(out);
+                    if (table.getChunkEncoding() == ChunkEncoding.COLUMNAR) {
+                        return new ColumnarEncodingOutputStream(compressor, table.getFixedLength());
+                    } else {
+                        return compressor;
+                    }
                 }
 
                 @Override
@@ -331,6 +406,11 @@ public abstract class ATimeSeriesUpdater<K, V> implements ITimeSeriesUpdater<K,
                     return table.getFixedLength();
                 }
 
+                @Override
+                protected Integer getBlockSize() {
+                    return getChunkBlockSize();
+                }
+
             };
             V firstElement = null;
             V lastElement = null;
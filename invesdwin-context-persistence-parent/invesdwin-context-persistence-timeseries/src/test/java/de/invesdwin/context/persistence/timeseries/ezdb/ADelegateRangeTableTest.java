@@ -0,0 +1,210 @@
+package de.invesdwin.context.persistence.timeseries.ezdb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.persistence.timeseries.ezdb.ADelegateRangeTable.DelegateTableIterator;
+import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.LexicographicalFDateSerde;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.serde.Serde;
+
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class ADelegateRangeTableTest extends ATest {
+    //CHECKSTYLE:ON
+
+    private static final String LOAD_FAILED = "load failed";
+
+    @Test
+    public void testGetOrLoadSingleFlight() throws Exception {
+        final ADelegateRangeTable<String, Integer, Integer> table = newTable("testGetOrLoadSingleFlight");
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Integer> firstValue = new AtomicReference<Integer>();
+        final AtomicReference<Integer> secondValue = new AtomicReference<Integer>();
+        final Thread first = new Thread(() -> firstValue.set(table.getOrLoad("key", 1, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return 10;
+        })));
+        first.start();
+        loading.await();
+        final Thread second = new Thread(() -> secondValue.set(table.getOrLoad("key", 1, () -> {
+            loads.incrementAndGet();
+            return 20;
+        })));
+        second.start();
+        awaitWaiting(second);
+        release.countDown();
+        first.join();
+        second.join();
+        Assertions.checkEquals(1, loads.get());
+        Assertions.checkEquals(firstValue.get(), Integer.valueOf(10));
+        Assertions.checkEquals(secondValue.get(), Integer.valueOf(10));
+        Assertions.checkEquals(table.get("key", 1), Integer.valueOf(10));
+        Assertions.checkEquals(0, table.getInFlightLoadsCount());
+        table.deleteTable();
+    }
+
+    @Test
+    public void testGetOrLoadErrorPropagatesToWaiters() throws Exception {
+        final ADelegateRangeTable<String, Integer, Integer> table = newTable("testGetOrLoadErrorPropagatesToWaiters");
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Throwable> firstError = new AtomicReference<Throwable>();
+        final AtomicReference<Throwable> secondError = new AtomicReference<Throwable>();
+        final Thread first = new Thread(() -> {
+            try {
+                table.getOrLoad("key", 1, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    release.await();
+                    throw new IllegalStateException(LOAD_FAILED);
+                });
+            } catch (final Throwable t) {
+                firstError.set(t);
+            }
+        });
+        first.start();
+        loading.await();
+        final Thread second = new Thread(() -> {
+            try {
+                table.getOrLoad("key", 1, () -> {
+                    loads.incrementAndGet();
+                    return 20;
+                });
+            } catch (final Throwable t) {
+                secondError.set(t);
+            }
+        });
+        second.start();
+        awaitWaiting(second);
+        release.countDown();
+        first.join();
+        second.join();
+        Assertions.checkEquals(1, loads.get());
+        Assertions.checkTrue(isCausedBy(firstError.get(), LOAD_FAILED));
+        Assertions.checkTrue(isCausedBy(secondError.get(), LOAD_FAILED));
+        //the failed load must not stay registered, otherwise the key could never be loaded again
+        Assertions.checkEquals(0, table.getInFlightLoadsCount());
+        Assertions.checkNull(table.get("key", 1));
+        Assertions.checkEquals(table.getOrLoad("key", 1, () -> 30), Integer.valueOf(30));
+        Assertions.checkEquals(0, table.getInFlightLoadsCount());
+        table.deleteTable();
+    }
+
+    @Test
+    public void testGetOrLoadReentryFailsFast() {
+        final ADelegateRangeTable<String, Integer, Integer> table = newTable("testGetOrLoadReentryFailsFast");
+        try {
+            table.getOrLoad("key", 1, () -> table.getOrLoad("key", 1, () -> 10));
+            Assertions.failExceptionExpected();
+        } catch (final Throwable t) {
+            Assertions.checkTrue(isCausedBy(t, "for the same key"));
+        }
+        Assertions.checkEquals(0, table.getInFlightLoadsCount());
+        //loading a different key from within a loader is fine
+        final Integer value = table.getOrLoad("key", 1, () -> table.getOrLoad("key", 2, () -> 20) - 10);
+        Assertions.checkEquals(value, Integer.valueOf(10));
+        Assertions.checkEquals(table.get("key", 2), Integer.valueOf(20));
+        table.deleteTable();
+    }
+
+    @Test
+    public void testLegacyRangeKeyEncodingIsKept() {
+        final String name = "testLegacyRangeKeyEncodingIsKept";
+        final ADelegateRangeTable<String, FDate, Integer> legacyTable = newDateTable(name, FDateSerde.GET);
+        legacyTable.deleteTable();
+        legacyTable.put("key", new FDate(-5), -5);
+        legacyTable.put("key", new FDate(1), 1);
+        legacyTable.put("key", new FDate(3), 3);
+        Assertions.checkFalse(legacyTable.isLexicographicalRangeKeys());
+        legacyTable.close();
+
+        //data of tables that were created before the serde became lexicographical must not be lost on upgrade
+        final ADelegateRangeTable<String, FDate, Integer> table = newDateTable(name, LexicographicalFDateSerde.GET);
+        Assertions.checkFalse(table.isLexicographicalRangeKeys());
+        Assertions.checkEquals(table.get("key", new FDate(1)), Integer.valueOf(1));
+        Assertions.checkEquals(table.getLatestValue("key", new FDate(0)), Integer.valueOf(-5));
+        Assertions.checkEquals(table.getLatestValue("key", FDate.MAX_DATE), Integer.valueOf(3));
+        final List<Integer> values = new ArrayList<>();
+        try (DelegateTableIterator<String, FDate, Integer> range = table.range("key")) {
+            while (range.hasNext()) {
+                values.add(range.next().getValue());
+            }
+        }
+        Assertions.checkEquals(values, Arrays.asList(-5, 1, 3));
+
+        //a recreated table switches to the lexicographical encoding
+        table.deleteTable();
+        table.put("key", new FDate(1), 1);
+        Assertions.checkTrue(table.isLexicographicalRangeKeys());
+        table.close();
+        final ADelegateRangeTable<String, FDate, Integer> reopenedTable = newDateTable(name,
+                LexicographicalFDateSerde.GET);
+        Assertions.checkTrue(reopenedTable.isLexicographicalRangeKeys());
+        Assertions.checkEquals(reopenedTable.get("key", new FDate(1)), Integer.valueOf(1));
+        reopenedTable.deleteTable();
+    }
+
+    private ADelegateRangeTable<String, FDate, Integer> newDateTable(final String name,
+            final Serde<FDate> rangeKeySerde) {
+        return new ADelegateRangeTable<String, FDate, Integer>(name) {
+            @Override
+            protected Serde<FDate> newRangeKeySerde() {
+                return rangeKeySerde;
+            }
+
+            @Override
+            protected File getBaseDirectory() {
+                return ContextProperties.TEMP_DIRECTORY;
+            }
+        };
+    }
+
+    private ADelegateRangeTable<String, Integer, Integer> newTable(final String name) {
+        return new ADelegateRangeTable<String, Integer, Integer>(name) {
+            @Override
+            protected File getBaseDirectory() {
+                return ContextProperties.TEMP_DIRECTORY;
+            }
+        };
+    }
+
+    /**
+     * The waiting caller parks on the future of the first caller.
+     */
+    private void awaitWaiting(final Thread thread) throws InterruptedException {
+        while (thread.isAlive() && thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+
+    private boolean isCausedBy(final Throwable t, final String message) {
+        Throwable cause = t;
+        while (cause != null) {
+            if (cause instanceof IllegalStateException && cause.getMessage().contains(message)) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+}
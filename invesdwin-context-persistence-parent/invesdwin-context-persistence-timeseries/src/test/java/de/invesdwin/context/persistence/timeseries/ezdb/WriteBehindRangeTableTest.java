@@ -0,0 +1,72 @@
+package de.invesdwin.context.persistence.timeseries.ezdb;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class WriteBehindRangeTableTest extends ATest {
+    //CHECKSTYLE:ON
+
+    @Test
+    public void testDeleteRangeOnlyDropsHashKey() {
+        final WriteBehindRangeTable<String, Integer, Integer> table = new WriteBehindRangeTable<>(
+                new ADelegateRangeTable<String, Integer, Integer>("testDeleteRangeOnlyDropsHashKey") {
+                    @Override
+                    protected File getBaseDirectory() {
+                        return ContextProperties.TEMP_DIRECTORY;
+                    }
+                });
+        table.getTable().deleteTable();
+        final AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            //values get persisted when they are loaded the second time
+            for (int rangeKey = 0; rangeKey < 10; rangeKey++) {
+                Assertions.checkEquals(load(table, "a", rangeKey, loads), Integer.valueOf(rangeKey));
+                Assertions.checkEquals(load(table, "b", rangeKey, loads), Integer.valueOf(-rangeKey));
+            }
+        }
+        final int persistedLoads = loads.get();
+        for (int rangeKey = 0; rangeKey < 10; rangeKey++) {
+            Assertions.checkEquals(load(table, "a", rangeKey, loads), Integer.valueOf(rangeKey));
+            Assertions.checkEquals(load(table, "b", rangeKey, loads), Integer.valueOf(-rangeKey));
+        }
+        Assertions.checkEquals(persistedLoads, loads.get());
+
+        table.deleteRange("a");
+        for (int rangeKey = 0; rangeKey < 10; rangeKey++) {
+            Assertions.checkEquals(load(table, "a", rangeKey, loads), Integer.valueOf(rangeKey));
+            Assertions.checkEquals(load(table, "b", rangeKey, loads), Integer.valueOf(-rangeKey));
+        }
+        //only the values of the deleted hash key are loaded again
+        Assertions.checkEquals(persistedLoads + 10, loads.get());
+
+        table.flush();
+        for (int rangeKey = 0; rangeKey < 10; rangeKey++) {
+            Assertions.checkEquals(table.getTable().get("b", rangeKey), Integer.valueOf(-rangeKey));
+        }
+        table.close();
+        table.getTable().deleteTable();
+    }
+
+    private Integer load(final WriteBehindRangeTable<String, Integer, Integer> table, final String hashKey,
+            final int rangeKey, final AtomicInteger loads) {
+        return table.getOrLoad(hashKey, rangeKey, (key) -> {
+            loads.incrementAndGet();
+            if ("a".equals(key.getFirst())) {
+                return key.getSecond();
+            } else {
+                return -key.getSecond();
+            }
+        });
+    }
+
+}
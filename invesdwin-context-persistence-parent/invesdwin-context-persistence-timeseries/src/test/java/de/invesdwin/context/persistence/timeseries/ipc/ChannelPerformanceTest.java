@@ -13,12 +13,15 @@ import java.util.concurrent.SynchronousQueue;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.persistence.timeseries.ipc.mapped.MappedSynchronousReader;
 import de.invesdwin.context.persistence.timeseries.ipc.mapped.MappedSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.RingBufferMappedSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.mapped.RingBufferMappedSynchronousWriter;
 import de.invesdwin.context.persistence.timeseries.ipc.pipe.PipeSynchronousReader;
 import de.invesdwin.context.persistence.timeseries.ipc.pipe.PipeSynchronousWriter;
 import de.invesdwin.context.persistence.timeseries.ipc.queue.QueueSynchronousReader;
@@ -27,6 +30,9 @@ import de.invesdwin.context.persistence.timeseries.ipc.queue.blocking.BlockingQu
 import de.invesdwin.context.persistence.timeseries.ipc.queue.blocking.BlockingQueueSynchronousWriter;
 import de.invesdwin.context.persistence.timeseries.ipc.socket.SocketSynchronousReader;
 import de.invesdwin.context.persistence.timeseries.ipc.socket.SocketSynchronousWriter;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.nio.ANioSocketSynchronousChannel;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.nio.NioSocketSynchronousReader;
+import de.invesdwin.context.persistence.timeseries.ipc.socket.nio.NioSocketSynchronousWriter;
 import de.invesdwin.context.persistence.timeseries.ipc.socket.udp.DatagramSocketSynchronousReader;
 import de.invesdwin.context.persistence.timeseries.ipc.socket.udp.DatagramSocketSynchronousWriter;
 import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
@@ -64,7 +70,8 @@ public class ChannelPerformanceTest extends ATest {
 
     private enum FileChannelType {
         PIPE,
-        MAPPED;
+        MAPPED,
+        RING_BUFFER_MAPPED;
     }
 
     private File newFile(final String name, final boolean tmpfs, final FileChannelType pipes) {
@@ -79,7 +86,7 @@ public class ChannelPerformanceTest extends ATest {
         Assertions.checkFalse(file.exists(), "%s", file);
         if (pipes == FileChannelType.PIPE) {
             Assertions.checkTrue(SynchronousChannels.createNamedPipe(file));
-        } else if (pipes == FileChannelType.MAPPED) {
+        } else if (pipes == FileChannelType.MAPPED || pipes == FileChannelType.RING_BUFFER_MAPPED) {
             try {
                 Files.touch(file);
             } catch (final IOException e) {
@@ -128,6 +135,65 @@ public class ChannelPerformanceTest extends ATest {
         runPerformanceTest(pipes, requestFile, responseFile, null, null);
     }
 
+    @Test
+    public void testRingBufferMappedMemoryPerformance() throws InterruptedException {
+        final boolean tmpfs = false;
+        final FileChannelType pipes = FileChannelType.RING_BUFFER_MAPPED;
+        final File requestFile = newFile("testRingBufferMappedMemoryPerformance_request.pipe", tmpfs, pipes);
+        final File responseFile = newFile("testRingBufferMappedMemoryPerformance_response.pipe", tmpfs, pipes);
+        runPerformanceTest(pipes, requestFile, responseFile, null, null);
+    }
+
+    @Test
+    public void testRingBufferMappedMemoryPerformanceWithTmpfs() throws InterruptedException {
+        final boolean tmpfs = true;
+        final FileChannelType pipes = FileChannelType.RING_BUFFER_MAPPED;
+        final File requestFile = newFile("testRingBufferMappedMemoryPerformanceWithTmpfs_request.pipe", tmpfs,
+                pipes);
+        final File responseFile = newFile("testRingBufferMappedMemoryPerformanceWithTmpfs_response.pipe", tmpfs,
+                pipes);
+        runPerformanceTest(pipes, requestFile, responseFile, null, null);
+    }
+
+    @Test
+    public void testRingBufferMappedMemoryBurstPerformance() throws InterruptedException {
+        final boolean tmpfs = true;
+        final FileChannelType pipes = FileChannelType.RING_BUFFER_MAPPED;
+        final File file = newFile("testRingBufferMappedMemoryBurstPerformance.pipe", tmpfs, pipes);
+        runBurstPerformanceTest(file, newWriter(file, pipes), newReader(file, pipes));
+    }
+
+    @Test
+    public void testNamedPipeBurstPerformance() throws InterruptedException {
+        final boolean tmpfs = true;
+        final FileChannelType pipes = FileChannelType.PIPE;
+        final File file = newFile("testNamedPipeBurstPerformance.pipe", tmpfs, pipes);
+        runBurstPerformanceTest(file, newWriter(file, pipes), newReader(file, pipes));
+    }
+
+    @Test
+    public void testNamedPipeBatchBurstPerformance() throws InterruptedException {
+        final boolean tmpfs = true;
+        final FileChannelType pipes = FileChannelType.PIPE;
+        final File file = newFile("testNamedPipeBatchBurstPerformance.pipe", tmpfs, pipes);
+        final ISynchronousWriter writer = new PipeSynchronousWriter(file, MESSAGE_SIZE,
+                PipeSynchronousReader.DEFAULT_READ_BUFFER_SIZE, new Duration(1, FTimeUnit.MILLISECONDS));
+        runBurstPerformanceTest(file, writer, newReader(file, pipes));
+    }
+
+    private void runBurstPerformanceTest(final File file, final ISynchronousWriter writer,
+            final ISynchronousReader reader) throws InterruptedException {
+        try {
+            final WrappedExecutorService executor = Executors.newFixedThreadPool(file.getName(), 1);
+            executor.execute(new BurstWriterTask(writer));
+            readBurst(reader);
+            executor.shutdown();
+            executor.awaitTermination();
+        } finally {
+            Files.deleteQuietly(file);
+        }
+    }
+
     @Test
     public void testArrayDequePerformance() throws InterruptedException {
         //ArrayDeque is not threadsafe, thus requires manual synchronization
@@ -220,6 +286,38 @@ public class ChannelPerformanceTest extends ATest {
         executor.awaitTermination();
     }
 
+    @Test
+    public void testNioSocketPerformance() throws InterruptedException {
+        final SocketAddress responseAddress = new InetSocketAddress("localhost", 7878);
+        final SocketAddress requestAddress = new InetSocketAddress("localhost", 7879);
+        runNioSocketPerformanceTest(responseAddress, requestAddress);
+    }
+
+    @Test
+    public void testUnixDomainSocketPerformance() throws InterruptedException {
+        Assume.assumeTrue(ANioSocketSynchronousChannel.isUnixDomainSocketSupported());
+        final File baseFolder = SynchronousChannels.getTmpfsFolderOrFallback();
+        final SocketAddress responseAddress = ANioSocketSynchronousChannel
+                .newUnixDomainSocketAddress(new File(baseFolder, "testUnixDomainSocketPerformance_response.sock"));
+        final SocketAddress requestAddress = ANioSocketSynchronousChannel
+                .newUnixDomainSocketAddress(new File(baseFolder, "testUnixDomainSocketPerformance_request.sock"));
+        runNioSocketPerformanceTest(responseAddress, requestAddress);
+    }
+
+    private void runNioSocketPerformanceTest(final SocketAddress responseAddress, final SocketAddress requestAddress)
+            throws InterruptedException {
+        final ISynchronousWriter responseWriter = new NioSocketSynchronousWriter(responseAddress, true, MESSAGE_SIZE);
+        final ISynchronousReader requestReader = new NioSocketSynchronousReader(requestAddress, true, MESSAGE_SIZE);
+        final WrappedExecutorService executor = Executors.newFixedThreadPool("testNioSocketPerformance", 1);
+        executor.execute(new WriterTask(requestReader, responseWriter));
+        final ISynchronousWriter requestWriter = new NioSocketSynchronousWriter(requestAddress, false, MESSAGE_SIZE);
+        final ISynchronousReader responseReader = new NioSocketSynchronousReader(responseAddress, false,
+                MESSAGE_SIZE);
+        read(requestWriter, responseReader);
+        executor.shutdown();
+        executor.awaitTermination();
+    }
+
     @Test
     public void testDatagramSocketPerformance() throws InterruptedException {
         final SocketAddress responseAddress = new InetSocketAddress("localhost", 7878);
@@ -283,6 +381,8 @@ public class ChannelPerformanceTest extends ATest {
             return new PipeSynchronousReader(file, MESSAGE_SIZE);
         } else if (pipes == FileChannelType.MAPPED) {
             return new MappedSynchronousReader(file, MESSAGE_SIZE);
+        } else if (pipes == FileChannelType.RING_BUFFER_MAPPED) {
+            return new RingBufferMappedSynchronousReader(file, MESSAGE_SIZE);
         } else {
             throw UnknownArgumentException.newInstance(FileChannelType.class, pipes);
         }
@@ -293,6 +393,8 @@ public class ChannelPerformanceTest extends ATest {
             return new PipeSynchronousWriter(file, MESSAGE_SIZE);
         } else if (pipes == FileChannelType.MAPPED) {
             return new MappedSynchronousWriter(file, MESSAGE_SIZE);
+        } else if (pipes == FileChannelType.RING_BUFFER_MAPPED) {
+            return new RingBufferMappedSynchronousWriter(file, MESSAGE_SIZE);
         } else {
             throw UnknownArgumentException.newInstance(FileChannelType.class, pipes);
         }
@@ -364,6 +466,46 @@ public class ChannelPerformanceTest extends ATest {
         printProgress("ReadsFinished", readsStart, VALUES, VALUES);
     }
 
+    private void readBurst(final ISynchronousReader reader) {
+        final Instant readsStart = new Instant();
+        FDate prevValue = null;
+        int count = 0;
+        try {
+            reader.open();
+            final ASpinWait spinWait = new ASpinWait() {
+                @Override
+                protected boolean isConditionFulfilled() throws Exception {
+                    return reader.hasNext();
+                }
+            };
+            long waitingSinceNanos = System.nanoTime();
+            while (true) {
+                Assertions.checkTrue(spinWait.awaitFulfill(waitingSinceNanos, MAX_WAIT_DURATION));
+                final SynchronousResponse readMessage = reader.readMessage();
+                Assertions.checkEquals(readMessage.getType(), MESSAGE_TYPE);
+                Assertions.checkEquals(readMessage.getSequence(), MESSAGE_SEQUENCE);
+                final FDate value = FDateSerde.GET.fromBytes(readMessage.getMessage());
+                if (prevValue != null) {
+                    Assertions.checkTrue(prevValue.isBefore(value));
+                }
+                prevValue = value;
+                count++;
+                waitingSinceNanos = System.nanoTime();
+            }
+        } catch (final EOFException e) {
+            //writer closed
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+        Assertions.checkEquals(count, VALUES);
+        try {
+            reader.close();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+        printProgress("ReadsFinished", readsStart, VALUES, VALUES);
+    }
+
     private void printProgress(final String action, final Instant start, final int count, final int maxCount) {
         final Duration duration = start.toDuration();
         log.info("%s: %s/%s (%s) %s during %s", action, count, maxCount,
@@ -442,4 +584,34 @@ public class ChannelPerformanceTest extends ATest {
 
     }
 
+    private class BurstWriterTask implements Runnable {
+
+        private final ISynchronousWriter writer;
+
+        BurstWriterTask(final ISynchronousWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                final Instant writesStart = new Instant();
+                writer.open();
+                int i = 0;
+                for (final FDate date : newValues()) {
+                    writer.write(MESSAGE_TYPE, MESSAGE_SEQUENCE, FDateSerde.GET.toBytes(date));
+                    i++;
+                    if (i % FLUSH_INTERVAL == 0) {
+                        printProgress("Writes", writesStart, i, VALUES);
+                    }
+                }
+                printProgress("WritesFinished", writesStart, VALUES, VALUES);
+                writer.close();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
 }
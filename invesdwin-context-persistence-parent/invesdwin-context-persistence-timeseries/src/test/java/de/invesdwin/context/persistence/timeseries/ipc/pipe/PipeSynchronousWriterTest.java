@@ -0,0 +1,73 @@
+package de.invesdwin.context.persistence.timeseries.ipc.pipe;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.persistence.timeseries.ipc.SynchronousResponse;
+import de.invesdwin.context.persistence.timeseries.serde.FDateSerde;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.Files;
+import de.invesdwin.util.time.date.FDate;
+import de.invesdwin.util.time.date.FTimeUnit;
+import de.invesdwin.util.time.duration.Duration;
+
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class PipeSynchronousWriterTest extends ATest {
+    //CHECKSTYLE:ON
+
+    private static final int MESSAGE_SIZE = FDateSerde.FIXED_LENGTH;
+    private static final int MESSAGE_TYPE = 1;
+    private static final int MESSAGES = 10;
+
+    @Test
+    public void testBatchedMessagesAreDecodedFromOneRead() throws IOException {
+        //a regular file behaves like a pipe that is never drained by the reader
+        final File file = new File(ContextProperties.TEMP_DIRECTORY,
+                PipeSynchronousWriterTest.class.getSimpleName() + "_testBatchedMessagesAreDecodedFromOneRead");
+        Files.deleteQuietly(file);
+        Files.touch(file);
+        final int recordSize = APipeSynchronousChannel.MESSAGE_POS + MESSAGE_SIZE;
+        final PipeSynchronousWriter writer = new PipeSynchronousWriter(file, MESSAGE_SIZE, recordSize * MESSAGES * 2,
+                new Duration(1, FTimeUnit.HOURS));
+        writer.open();
+        for (int i = 0; i < MESSAGES; i++) {
+            writer.write(MESSAGE_TYPE, i, FDateSerde.GET.toBytes(new FDate(i)));
+        }
+        //neither the batch size nor the flush interval was reached, the burst needs to be flushed explicitly
+        Assertions.checkEquals(0L, file.length());
+        writer.flush();
+        Assertions.checkEquals((long) recordSize * MESSAGES, file.length());
+
+        final PipeSynchronousReader reader = new PipeSynchronousReader(file, MESSAGE_SIZE);
+        reader.open();
+        for (int i = 0; i < MESSAGES; i++) {
+            Assertions.checkTrue(reader.hasNext());
+            final SynchronousResponse response = reader.readMessage();
+            Assertions.checkEquals(MESSAGE_TYPE, response.getType());
+            Assertions.checkEquals(i, response.getSequence());
+            Assertions.checkEquals(new FDate(i), FDateSerde.GET.fromBytes(response.getMessage()));
+        }
+        Assertions.checkFalse(reader.hasNext());
+
+        //close sends the pending close notification
+        writer.close();
+        Assertions.checkTrue(reader.hasNext());
+        try {
+            reader.readMessage();
+            Assertions.failExceptionExpected();
+        } catch (final EOFException e) {
+            //expected
+        }
+        reader.close();
+        Files.deleteQuietly(file);
+    }
+
+}
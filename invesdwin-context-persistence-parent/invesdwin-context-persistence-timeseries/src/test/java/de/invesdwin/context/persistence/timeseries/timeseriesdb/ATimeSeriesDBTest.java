@@ -3,6 +3,9 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -11,11 +14,15 @@ import org.junit.Test;
 
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.persistence.timeseries.serde.ExtendedTypeDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.compaction.TimeSeriesCompactionService;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.updater.ATimeSeriesUpdater;
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.collections.iterable.ICloseableIterable;
+import de.invesdwin.util.collections.iterable.ICloseableIterator;
 import de.invesdwin.util.collections.iterable.WrapperCloseableIterable;
+import de.invesdwin.util.math.TimedDouble;
 import de.invesdwin.util.math.decimal.scaled.Percent;
 import de.invesdwin.util.time.Instant;
 import de.invesdwin.util.time.date.FDate;
@@ -245,4 +252,593 @@ public class ATimeSeriesDBTest extends ATest {
 
     }
 
+    @Test
+    public void testIncrementalUpdates() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testIncrementalUpdates");
+        final List<FDate> dates = new ArrayList<>();
+        final int updates = 30;
+        final int valuesPerUpdate = ATimeSeriesUpdater.INCREMENTAL_TAIL_SIZE / 2 + 1;
+        for (int update = 0; update < updates; update++) {
+            for (int i = 0; i < valuesPerUpdate; i++) {
+                dates.add(new FDate(dates.size()));
+            }
+            updateIncrementally(table, key, new ArrayList<>(dates));
+
+            final FDate lastDate = dates.get(dates.size() - 1);
+            //these lookups get cached and need to be invalidated properly by the next update
+            Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE), lastDate);
+            Assertions.checkEquals(table.getPreviousValue(key, lastDate, 1), dates.get(dates.size() - 2));
+            Assertions.checkEquals(table.getNextValue(key, dates.get(0), dates.size() - 1), lastDate);
+            Assertions.checkEquals(rangeValues(table, key), dates);
+        }
+    }
+
+    @Test
+    public void testIncrementalSmallAppends() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testIncrementalSmallAppends");
+        final List<FDate> dates = new ArrayList<>();
+        for (int i = 0; i < ATimeSeriesUpdater.INCREMENTAL_TAIL_SIZE * 3 / 2; i++) {
+            dates.add(new FDate(dates.size()));
+        }
+        updateIncrementally(table, key, new ArrayList<>(dates));
+        //the last value got split off from the large final batch
+        Assertions.checkEquals(countChunkFiles(table.getDataDirectory(key)), 2);
+        Assertions.checkEquals(rangeValues(table, key), dates);
+
+        for (int update = 0; update < 10; update++) {
+            for (int i = 0; i < 3; i++) {
+                dates.add(new FDate(dates.size()));
+            }
+            updateIncrementally(table, key, new ArrayList<>(dates));
+            //small appends are not split, they grow the tail chunk that the next update redoes
+            Assertions.checkEquals(countChunkFiles(table.getDataDirectory(key)), 2);
+            Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE), dates.get(dates.size() - 1));
+            Assertions.checkEquals(rangeValues(table, key), dates);
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdateOfFirstValue() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, TimedDouble> table = new TimedDoubleTable("testIncrementalUpdateOfFirstValue");
+        final List<TimedDouble> source = new ArrayList<>();
+        source.add(new TimedDouble(new FDate(1), 1D));
+        updateIncrementally(table, key, source);
+        //gets cached
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MIN_DATE).getValue(), 1D);
+
+        //the incomplete first value is the only one in the redone chunk
+        source.clear();
+        source.add(new TimedDouble(new FDate(1), 2D));
+        source.add(new TimedDouble(new FDate(2), 3D));
+        updateIncrementally(table, key, source);
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MIN_DATE).getValue(), 2D);
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE).getValue(), 3D);
+    }
+
+    @Test
+    public void testCompaction() throws IncompleteUpdateFoundException, InterruptedException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testCompaction");
+        final List<FDate> dates = new ArrayList<>();
+        final int updates = 20;
+        final int valuesPerUpdate = TimeSeriesCompactionService.DEFAULT_TARGET_COUNT / 10;
+        for (int update = 0; update < updates; update++) {
+            final List<FDate> source = new ArrayList<>();
+            for (int i = 0; i < valuesPerUpdate; i++) {
+                final FDate date = new FDate(dates.size());
+                dates.add(date);
+                source.add(date);
+            }
+            new TestUpdater<FDate>(key, table, source) {
+                @Override
+                protected boolean shouldRedoLastFile() {
+                    return false;
+                }
+            }.update();
+        }
+        Assertions.checkEquals(countChunkFiles(table.getDataDirectory(key)), updates);
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE), dates.get(dates.size() - 1));
+
+        final TimeSeriesCompactionService<String, FDate> compactionService = new TimeSeriesCompactionService<>(table);
+        //the first 10 chunks reach the target count, the remaining ones are still growing towards the tail
+        Assertions.checkEquals(compactionService.compact(key), 1);
+        Assertions.checkEquals(compactionService.compact(key), 0);
+        Assertions.checkEquals(countChunkFiles(table.getDataDirectory(key)), updates - 9);
+
+        Assertions.checkEquals(rangeValues(table, key), dates);
+        Assertions.checkEquals(table.getLatestValue(key, new FDate(valuesPerUpdate * 5 + 1)),
+                new FDate(valuesPerUpdate * 5 + 1));
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE), dates.get(dates.size() - 1));
+    }
+
+    @Test
+    public void testMemoryMappedUpdatesAndCompaction() throws IncompleteUpdateFoundException, InterruptedException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = new FDateTable("testMemoryMappedUpdatesAndCompaction") {
+            @Override
+            protected ChunkReadMode newChunkReadMode() {
+                return ChunkReadMode.MEMORY_MAPPED;
+            }
+        };
+        Assertions.checkEquals(table.getChunkReadMode(), ChunkReadMode.MEMORY_MAPPED);
+        final List<FDate> dates = new ArrayList<>();
+        final int updates = 20;
+        final int valuesPerUpdate = TimeSeriesCompactionService.DEFAULT_TARGET_COUNT / 10;
+        for (int update = 0; update < updates; update++) {
+            final List<FDate> source = new ArrayList<>();
+            for (int i = 0; i < valuesPerUpdate; i++) {
+                final FDate date = new FDate(dates.size());
+                dates.add(date);
+                source.add(date);
+            }
+            new TestUpdater<FDate>(key, table, source) {
+                @Override
+                protected boolean shouldRedoLastFile() {
+                    return false;
+                }
+            }.update();
+            //reads map the chunk files that get replaced afterwards
+            Assertions.checkEquals(rangeValues(table, key), dates);
+        }
+
+        //compaction retires the chunk files that were mapped before
+        final TimeSeriesCompactionService<String, FDate> compactionService = new TimeSeriesCompactionService<>(table);
+        Assertions.checkEquals(compactionService.compact(key), 1);
+        Assertions.checkEquals(countChunkFiles(table.getDataDirectory(key)), updates - 9);
+        Assertions.checkEquals(rangeValues(table, key), dates);
+        Assertions.checkEquals(table.getLatestValue(key, new FDate(valuesPerUpdate * 5 + 1)),
+                new FDate(valuesPerUpdate * 5 + 1));
+
+        //the incremental update deletes the mapped last chunk file
+        for (int i = 0; i < valuesPerUpdate; i++) {
+            dates.add(new FDate(dates.size()));
+        }
+        updateIncrementally(table, key, new ArrayList<>(dates));
+        Assertions.checkEquals(rangeValues(table, key), dates);
+        Assertions.checkEquals(table.getLatestValue(key, FDate.MAX_DATE), dates.get(dates.size() - 1));
+    }
+
+    @Test
+    public void testRangeValuesSnapshotDuringUpdate() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testRangeValuesSnapshotDuringUpdate");
+        final List<FDate> dates = new ArrayList<>();
+        final int valuesPerUpdate = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 3 / 2;
+        ICloseableIterator<FDate> openIterator = null;
+        List<FDate> expectedOpenIteratorValues = null;
+        for (int update = 0; update < 2; update++) {
+            final List<FDate> source = new ArrayList<>();
+            for (int i = 0; i < valuesPerUpdate; i++) {
+                final FDate date = new FDate(dates.size());
+                dates.add(date);
+                source.add(date);
+            }
+            update(table, key, source);
+            if (openIterator == null) {
+                //keep reading the first version while the last file gets redone by the second update
+                expectedOpenIteratorValues = new ArrayList<>(dates);
+                openIterator = table.rangeValues(key, null, null).iterator();
+                Assertions.checkEquals(openIterator.next(), dates.get(0));
+            }
+        }
+        final File retiredDirectory = table.getStorage().getRetiredDirectory();
+        Assertions.checkEquals(retiredDirectory.list().length, 1);
+
+        final List<FDate> openIteratorValues = new ArrayList<>();
+        openIteratorValues.add(dates.get(0));
+        while (openIterator.hasNext()) {
+            openIteratorValues.add(openIterator.next());
+        }
+        openIterator.close();
+        Assertions.checkEquals(openIteratorValues, expectedOpenIteratorValues);
+        Assertions.checkEquals(retiredDirectory.list().length, 0);
+        Assertions.checkEquals(rangeValues(table, key), dates);
+    }
+
+    @Test
+    public void testRangeValuesDuringConcurrentUpdates() throws IncompleteUpdateFoundException, InterruptedException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testRangeValuesDuringConcurrentUpdates");
+        final int valuesPerUpdate = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 3 / 2;
+        final int updates = 5;
+        final List<FDate> dates = new ArrayList<>();
+        final AtomicBoolean updatesFinished = new AtomicBoolean();
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicReference<Throwable> readerError = new AtomicReference<Throwable>();
+        final Thread reader = new Thread(() -> {
+            try {
+                while (!updatesFinished.get() || reads.get() == 0) {
+                    //every read has to see one complete version, no matter which files get retired meanwhile
+                    final List<FDate> values = rangeValues(table, key);
+                    if (values.isEmpty() || values.size() % valuesPerUpdate != 0) {
+                        throw new IllegalStateException("incomplete version with [" + values.size() + "] values");
+                    }
+                    for (int i = 0; i < values.size(); i++) {
+                        if (values.get(i).millisValue() != i) {
+                            throw new IllegalStateException(i + ": unexpected value [" + values.get(i) + "]");
+                        }
+                    }
+                    reads.incrementAndGet();
+                }
+            } catch (final Throwable t) {
+                readerError.set(t);
+            }
+        });
+        for (int update = 0; update < updates; update++) {
+            final List<FDate> source = new ArrayList<>();
+            for (int i = 0; i < valuesPerUpdate; i++) {
+                final FDate date = new FDate(dates.size());
+                dates.add(date);
+                source.add(date);
+            }
+            //every update redoes the last file and thus retires it while the reader might be decompressing it
+            update(table, key, source);
+            if (update == 0) {
+                reader.start();
+            }
+        }
+        updatesFinished.set(true);
+        reader.join();
+        Assertions.checkNull(readerError.get());
+        Assertions.checkTrue(reads.get() > 0);
+        //the directory only exists when the reader held a file that got retired
+        final String[] retiredFiles = table.getStorage().getRetiredDirectory().list();
+        Assertions.checkTrue(retiredFiles == null || retiredFiles.length == 0);
+        Assertions.checkEquals(rangeValues(table, key), dates);
+    }
+
+    @Test
+    public void testGetLatestValues() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testGetLatestValues");
+        final List<FDate> source = new ArrayList<>();
+        final int count = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 5 / 2;
+        for (int i = 1; i <= count; i++) {
+            source.add(new FDate(i * 2L));
+        }
+        update(table, key, source);
+
+        final List<FDate> dates = new ArrayList<>();
+        dates.add(FDate.MIN_DATE);
+        //hits exact values, gaps between values, chunk boundaries and dates after the last value
+        for (long millis = 0; millis <= count * 2L + 10; millis += 7) {
+            dates.add(new FDate(millis));
+        }
+        dates.add(FDate.MAX_DATE);
+        final List<FDate> latestValues = table.getLatestValues(key, dates);
+        Assertions.checkEquals(latestValues.size(), dates.size());
+        for (int i = 0; i < dates.size(); i++) {
+            Assertions.checkEquals(latestValues.get(i), table.getLatestValue(key, dates.get(i)));
+        }
+        Assertions.checkTrue(table.getLatestValues(key, new ArrayList<FDate>()).isEmpty());
+    }
+
+    @Test
+    public void testCount() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testCount");
+        final List<FDate> source = new ArrayList<>();
+        final int count = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 5 / 2;
+        for (int i = 1; i <= count; i++) {
+            source.add(new FDate(i * 2L));
+        }
+        update(table, key, source);
+
+        final FDate[] boundaries = { null, FDate.MIN_DATE, new FDate(0), new FDate(1), new FDate(2), new FDate(1999),
+                new FDate(2000), new FDate(19_999), new FDate(20_000), new FDate(20_001), new FDate(33_333),
+                new FDate(count * 2L), new FDate(count * 2L + 1), FDate.MAX_DATE };
+        for (final FDate from : boundaries) {
+            for (final FDate to : boundaries) {
+                int expected = 0;
+                for (final FDate value : source) {
+                    if ((from == null || !value.isBefore(from)) && (to == null || !value.isAfter(to))) {
+                        expected++;
+                    }
+                }
+                Assertions.checkEquals(table.count(key, from, to), (long) expected);
+            }
+        }
+    }
+
+    @Test
+    public void testCountDuplicatesAcrossChunks() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testCountDuplicatesAcrossChunks");
+        final int chunkSize = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL;
+        final List<FDate> source = new ArrayList<>();
+        final int count = chunkSize * 5 / 2;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && i % chunkSize == 0) {
+                //the first value of the chunk has the same time as the last value of the previous chunk
+                source.add(source.get(i - 1));
+            } else {
+                source.add(new FDate(i * 2L));
+            }
+        }
+        update(table, key, source);
+
+        final FDate boundary = source.get(chunkSize);
+        Assertions.checkEquals(source.get(chunkSize - 1), boundary);
+        final FDate[] boundaries = { null, boundary.addMilliseconds(-1), boundary, boundary.addMilliseconds(1),
+                source.get(chunkSize * 2), FDate.MAX_DATE };
+        for (final FDate from : boundaries) {
+            for (final FDate to : boundaries) {
+                int expected = 0;
+                for (final FDate value : source) {
+                    if ((from == null || !value.isBefore(from)) && (to == null || !value.isAfter(to))) {
+                        expected++;
+                    }
+                }
+                Assertions.checkEquals(table.count(key, from, to), (long) expected);
+            }
+        }
+        Assertions.checkEquals(table.count(key, boundary, boundary), 2L);
+    }
+
+    @Test
+    public void testValueAtAndIndexOf()throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, FDate> table = newTable("testValueAtAndIndexOf");
+        final List<FDate> source = new ArrayList<>();
+        final int count = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 5 / 2;
+        for (int i = 1; i <= count; i++) {
+            source.add(new FDate(i * 2L));
+        }
+        update(table, key, source);
+
+        Assertions.checkNull(table.getValueAt(key, -1));
+        Assertions.checkNull(table.getValueAt(key, count));
+        Assertions.checkEquals(table.indexOf(key, new FDate(1)), -1L);
+        Assertions.checkEquals(table.indexOf(key, FDate.MAX_DATE), count - 1L);
+        for (int i = 0; i < count; i += 333) {
+            final FDate value = source.get(i);
+            Assertions.checkEquals(table.getValueAt(key, i), value);
+            Assertions.checkEquals(table.indexOf(key, value), (long) i);
+            Assertions.checkEquals(table.indexOf(key, value.addMilliseconds(1)), (long) i);
+        }
+        //chunk boundaries
+        final int chunkSize = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL;
+        for (int i = chunkSize - 1; i < count - 1; i += chunkSize) {
+            Assertions.checkEquals(table.getValueAt(key, i), source.get(i));
+            Assertions.checkEquals(table.getValueAt(key, i + 1), source.get(i + 1));
+        }
+        //large shifts are resolved via the positions as well
+        final FDate lastDate = source.get(count - 1);
+        Assertions.checkEquals(table.getPreviousValue(key, lastDate, count - 1), source.get(0));
+        Assertions.checkEquals(table.getPreviousValue(key, lastDate, count * 2), source.get(0));
+        Assertions.checkEquals(table.getPreviousValue(key, lastDate.addMilliseconds(1), 12_345),
+                source.get(count - 1 - 12_345));
+        Assertions.checkEquals(table.getNextValue(key, source.get(0), count - 1), lastDate);
+        Assertions.checkEquals(table.getNextValue(key, new FDate(1), 12_345), source.get(12_345));
+    }
+
+    @Test
+    public void testStorageCacheEviction() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        //everything is over budget and idle
+        final TimeSeriesStorageCacheBudget budget = new TimeSeriesStorageCacheBudget(1, 0);
+        final ATimeSeriesDB<String, FDate> table = new FDateTable("testStorageCacheEviction") {
+            @Override
+            protected TimeSeriesStorageCacheBudget getStorageCacheBudget() {
+                return budget;
+            }
+        };
+        final List<FDate> source = new ArrayList<>();
+        final int count = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 2;
+        for (int i = 1; i <= count; i++) {
+            source.add(new FDate(i * 2L));
+        }
+        update(table, key, source);
+
+        final TimeSeriesStorageCache<String, FDate> lookupTableCache = table.getLookupTableCache(key);
+        Assertions.checkEquals(table.getLatestValue(key, source.get(100)), source.get(100));
+        final ICloseableIterator<FDate> openIterator = table.rangeValues(key, null, null).iterator();
+        Assertions.checkEquals(openIterator.next(), source.get(0));
+        Assertions.checkTrue(budget.estimateRetainedBytes() > 0);
+        //the last registration triggers the check
+        for (int i = 0; i < TimeSeriesStorageCacheBudget.CHECK_INTERVAL - 1; i++) {
+            Assertions.checkNull(table.getLatestValue("other" + i, FDate.MAX_DATE));
+        }
+        Assertions.checkTrue(lookupTableCache.isEvicted());
+        //only the key that was locked by the query itself is kept
+        Assertions.checkEquals(budget.size(), 1);
+        //the iterator keeps its own snapshot
+        int iterated = 1;
+        while (openIterator.hasNext()) {
+            Assertions.checkEquals(openIterator.next(), source.get(iterated));
+            iterated++;
+        }
+        Assertions.checkEquals(iterated, count);
+        //the next access creates a new cache
+        Assertions.checkTrue(table.getLookupTableCache(key) != lookupTableCache);
+        Assertions.checkEquals(table.getLatestValue(key, source.get(100)), source.get(100));
+        Assertions.checkEquals(table.count(key, null, null), (long) count);
+        Assertions.checkEquals(budget.size(), 2);
+    }
+
+    @Test
+    public void testRangeTimeValues() throws IncompleteUpdateFoundException {
+        final String key = "asdf";
+        final ATimeSeriesDB<String, TimedDouble> table = new TimedDoubleTable("testRangeTimeValues");
+        Assertions.checkTrue(table.isTimeValueColumnsSupported());
+        final List<TimedDouble> source = new ArrayList<>();
+        final int count = ATimeSeriesUpdater.BATCH_FLUSH_INTERVAL * 5 / 2;
+        for (int i = 1; i <= count; i++) {
+            source.add(new TimedDouble(new FDate(i * 2L), i / 3D));
+        }
+        update(table, key, source);
+
+        //reused for all reads and starting too small so that it needs to grow
+        final TimeValueColumns columns = new TimeValueColumns(10);
+        final FDate[] boundaries = { null, new FDate(1), new FDate(2), new FDate(19_999), new FDate(20_000),
+                new FDate(33_333), new FDate(count * 2L), FDate.MAX_DATE };
+        for (final FDate from : boundaries) {
+            for (final FDate to : boundaries) {
+                columns.clear();
+                final int added = table.rangeTimeValues(key, from, to, columns);
+                Assertions.checkEquals(added, columns.size());
+                int i = 0;
+                for (final TimedDouble value : source) {
+                    final FDate time = value.getTime();
+                    if ((from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                        Assertions.checkEquals(columns.getTime(i), time.millisValue());
+                        Assertions.checkEquals(columns.getValue(i), value.getValue());
+                        i++;
+                    }
+                }
+                Assertions.checkEquals(i, added);
+            }
+        }
+        //appends to what is already there
+        columns.clear();
+        table.rangeTimeValues(key, null, new FDate(9), columns);
+        table.rangeTimeValues(key, new FDate(10), null, columns);
+        Assertions.checkEquals(columns.size(), count);
+        Assertions.checkEquals(columns.getTimeAsDate(count - 1), source.get(count - 1).getTime());
+    }
+
+    private static ATimeSeriesDB<String, FDate> newTable(final String name) {
+        return new FDateTable(name);
+    }
+
+    private static <V> void update(final ATimeSeriesDB<String, V> table, final String key, final List<V> values)
+            throws IncompleteUpdateFoundException {
+        new TestUpdater<V>(key, table, values).update();
+    }
+
+    private static <V> void updateIncrementally(final ATimeSeriesDB<String, V> table, final String key,
+            final List<V> values) throws IncompleteUpdateFoundException {
+        new TestUpdater<V>(key, table, values) {
+            @Override
+            protected boolean shouldUpdateIncrementally() {
+                return true;
+            }
+        }.update();
+    }
+
+    private static <V> List<V> rangeValues(final ATimeSeriesDB<String, V> table, final String key) {
+        final List<V> values = new ArrayList<>();
+        for (final V value : table.rangeValues(key, null, null)) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static int countChunkFiles(final File dataDirectory) {
+        int count = 0;
+        for (final File file : dataDirectory.listFiles()) {
+            if (file.getName().endsWith(".data")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class FDateTable extends ATimeSeriesDB<String, FDate> {
+
+        FDateTable(final String name) {
+            super(name);
+        }
+
+        @Override
+        protected Serde<FDate> newValueSerde() {
+            return new ExtendedTypeDelegateSerde<FDate>(FDate.class);
+        }
+
+        @Override
+        protected Integer newValueFixedLength() {
+            return null;
+        }
+
+        @Override
+        protected String innerHashKeyToString(final String key) {
+            return key;
+        }
+
+        @Override
+        protected FDate extractEndTime(final FDate value) {
+            return value;
+        }
+
+        @Override
+        protected File getBaseDirectory() {
+            return ContextProperties.TEMP_DIRECTORY;
+        }
+    }
+
+    private static class TimedDoubleTable extends ATimeSeriesDB<String, TimedDouble> {
+
+        TimedDoubleTable(final String name) {
+            super(name);
+        }
+
+        @Override
+        protected Serde<TimedDouble> newValueSerde() {
+            return TimedDoubleSerde.GET;
+        }
+
+        @Override
+        protected Integer newValueFixedLength() {
+            return TimedDoubleSerde.FIXED_LENGTH;
+        }
+
+        @Override
+        protected String innerHashKeyToString(final String key) {
+            return key;
+        }
+
+        @Override
+        protected FDate extractEndTime(final TimedDouble value) {
+            return value.getTime();
+        }
+
+        @Override
+        protected File getBaseDirectory() {
+            return ContextProperties.TEMP_DIRECTORY;
+        }
+    }
+
+    private static class TestUpdater<V> extends ATimeSeriesUpdater<String, V> {
+
+        private final ATimeSeriesDB<String, V> table;
+        private final List<V> source;
+
+        TestUpdater(final String key, final ATimeSeriesDB<String, V> table, final List<V> source) {
+            super(key, table);
+            this.table = table;
+            this.source = source;
+        }
+
+        @Override
+        protected ICloseableIterable<? extends V> getSource(final FDate updateFrom) {
+            return WrapperCloseableIterable.maybeWrap(source);
+        }
+
+        @Override
+        protected void onUpdateFinished(final Instant updateStart) {
+        }
+
+        @Override
+        protected void onUpdateStart() {
+        }
+
+        @Override
+        protected FDate extractEndTime(final V element) {
+            return table.extractEndTime(element);
+        }
+
+        @Override
+        protected void onFlush(final int flushIndex, final Instant flushStart,
+                final ATimeSeriesUpdater<String, V>.UpdateProgress updateProgress) {
+        }
+
+        @Override
+        public Percent getProgress() {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,86 @@
+package de.invesdwin.context.persistence.timeseries.timeseriesdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.junit.Test;
+
+import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.ChunkFileReferences.ChunkFileReference;
+import de.invesdwin.context.test.ATest;
+import de.invesdwin.util.assertions.Assertions;
+import de.invesdwin.util.lang.Files;
+
+// CHECKSTYLE:OFF
+@NotThreadSafe
+public class ChunkFileReferencesTest extends ATest {
+    //CHECKSTYLE:ON
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Test
+    public void testRetireWhileReading() throws IOException, InterruptedException {
+        final File directory = new File(ContextProperties.TEMP_DIRECTORY,
+                ChunkFileReferencesTest.class.getSimpleName());
+        Files.deleteQuietly(directory);
+        final File dataDirectory = new File(directory, "data");
+        final File retiredDirectory = new File(directory, "retired");
+        final File readFile = new File(dataDirectory, "read");
+        final File otherFile = new File(dataDirectory, "other");
+        Files.writeStringToFile(readFile, "read", Charset.defaultCharset());
+        Files.writeStringToFile(otherFile, "other", Charset.defaultCharset());
+
+        final ChunkFileReferences references = ChunkFileReferences.getInstance();
+        final ChunkFileReference readReference = references.retain(readFile);
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch finishReading = new CountDownLatch(1);
+        final Thread reader = new Thread(() -> {
+            readReference.getReadLock().lock();
+            try {
+                reading.countDown();
+                finishReading.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                readReference.getReadLock().unlock();
+            }
+        });
+        reader.start();
+        reading.await();
+
+        final Thread retirer = new Thread(() -> references.retire(readFile, retiredDirectory));
+        retirer.start();
+        //the retirer waits for the reader to finish before moving the file
+        while (retirer.isAlive() && retirer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        Assertions.checkTrue(retirer.isAlive());
+        Assertions.checkTrue(readFile.exists());
+
+        //other files can still be retained and released in the mean time
+        final Thread other = new Thread(() -> references.release(references.retain(otherFile)));
+        other.start();
+        other.join(TIMEOUT_MILLIS);
+        Assertions.checkFalse(other.isAlive());
+
+        finishReading.countDown();
+        reader.join(TIMEOUT_MILLIS);
+        retirer.join(TIMEOUT_MILLIS);
+        Assertions.checkFalse(retirer.isAlive());
+        Assertions.checkFalse(readFile.exists());
+        Assertions.checkTrue(readReference.isRetired());
+        final File retiredFile = readReference.getFile();
+        Assertions.checkEquals(retiredFile.getParentFile(), retiredDirectory);
+        Assertions.checkEquals(Files.readFileToString(retiredFile, Charset.defaultCharset()), "read");
+
+        //the retired file is deleted together with the last reference
+        references.release(readReference);
+        Assertions.checkFalse(retiredFile.exists());
+        Files.deleteQuietly(directory);
+    }
+
+}
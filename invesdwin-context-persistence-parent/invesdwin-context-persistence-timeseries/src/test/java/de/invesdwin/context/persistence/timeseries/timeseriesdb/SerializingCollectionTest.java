@@ -2,17 +2,26 @@ package de.invesdwin.context.persistence.timeseries.timeseriesdb;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Test;
 
 import de.invesdwin.context.ContextProperties;
+import de.invesdwin.context.persistence.timeseries.serde.IntegerSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.collections.iterable.ICloseableIterator;
 import de.invesdwin.util.lang.Files;
 import de.invesdwin.util.lang.description.TextDescription;
+import de.invesdwin.util.math.TimedDouble;
+import de.invesdwin.util.time.date.FDate;
+import ezdb.serde.Serde;
 
 @NotThreadSafe
 public class SerializingCollectionTest extends ATest {
@@ -38,4 +47,168 @@ public class SerializingCollectionTest extends ATest {
         reader.close();
     }
 
+    @Test
+    public void testBlocks() throws IOException {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, "testBlocks.bin.lz4");
+        file.delete();
+        final SerializingCollection<String> writer = new SerializingCollection<String>(
+                new TextDescription("%s", SerializingCollectionTest.class.getSimpleName()), file, false) {
+            @Override
+            protected Integer getBlockSize() {
+                return 10;
+            }
+        };
+        for (int i = 0; i < 95; i++) {
+            writer.add("asdf" + i);
+        }
+        writer.close();
+        final SerializingCollection<String> reader = new SerializingCollection<String>(
+                new TextDescription("%s", SerializingCollectionTest.class.getSimpleName()), file, true) {
+            @Override
+            protected Integer getBlockSize() {
+                return 10;
+            }
+        };
+        final CompressedBlockIndex blockIndex = reader.getBlockIndex();
+        Assertions.checkEquals(10, blockIndex.getBlockCount());
+        Assertions.checkEquals(5, blockIndex.getCount(9));
+        try (ICloseableIterator<String> iterator = reader.iterator()) {
+            for (int i = 0; i < 95; i++) {
+                Assertions.checkEquals("asdf" + i, iterator.next());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        try (ICloseableIterator<String> iterator = reader.iterator(3)) {
+            for (int i = 30; i < 95; i++) {
+                Assertions.checkEquals("asdf" + i, iterator.next());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        try (ICloseableIterator<String> iterator = reader.reverseIterator()) {
+            for (int i = 94; i >= 0; i--) {
+                Assertions.checkEquals("asdf" + i, iterator.next());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        try (ICloseableIterator<String> iterator = reader.reverseIterator(5)) {
+            for (int i = 59; i >= 0; i--) {
+                Assertions.checkEquals("asdf" + i, iterator.next());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testReverseFixedLength() throws IOException {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, "testReverseFixedLength.bin.lz4");
+        file.delete();
+        final SerializingCollection<Integer> writer = new SerializingCollection<Integer>(
+                new TextDescription("%s", SerializingCollectionTest.class.getSimpleName()), file, false) {
+            @Override
+            protected Serde<? extends Integer> newSerde() {
+                return IntegerSerde.GET;
+            }
+
+            @Override
+            protected Integer getFixedLength() {
+                return IntegerSerde.FIXED_LENGTH;
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            writer.add(i);
+        }
+        try (ICloseableIterator<Integer> iterator = writer.reverseIterator()) {
+            for (int i = 99; i >= 0; i--) {
+                Assertions.checkEquals(i, iterator.next());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testColumnarEncoding() throws IOException {
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, "testColumnarEncoding.bin.lz4");
+        file.delete();
+        final SerializingCollection<TimedDouble> writer = new SerializingCollection<TimedDouble>(
+                new TextDescription("%s", SerializingCollectionTest.class.getSimpleName()), file, false) {
+            @Override
+            protected Serde<? extends TimedDouble> newSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            protected Integer getFixedLength() {
+                return TimedDoubleSerde.FIXED_LENGTH;
+            }
+
+            @Override
+            protected OutputStream newCompressor(final OutputStream out) {
+                return new ColumnarEncodingOutputStream(super.newCompressor(out), TimedDoubleSerde.FIXED_LENGTH);
+            }
+
+            @Override
+            protected Integer getBlockSize() {
+                return 100;
+            }
+        };
+        final FDate start = FDate.valueOf(1_000_000_000L);
+        for (int i = 0; i < 250; i++) {
+            writer.add(new TimedDouble(start.addMinutes(i), 100D + i % 7 * 0.25D));
+        }
+        writer.close();
+        final SerializingCollection<TimedDouble> reader = new SerializingCollection<TimedDouble>(
+                new TextDescription("%s", SerializingCollectionTest.class.getSimpleName()), file, true) {
+            @Override
+            protected Serde<? extends TimedDouble> newSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            protected Integer getFixedLength() {
+                return TimedDoubleSerde.FIXED_LENGTH;
+            }
+
+            @Override
+            protected InputStream newDecompressor(final InputStream inputStream) {
+                return new ColumnarDecodingInputStream(super.newDecompressor(inputStream),
+                        TimedDoubleSerde.FIXED_LENGTH);
+            }
+
+            @Override
+            protected Integer getBlockSize() {
+                return 100;
+            }
+        };
+        try (ICloseableIterator<TimedDouble> iterator = reader.iterator()) {
+            for (int i = 0; i < 250; i++) {
+                final TimedDouble next = iterator.next();
+                Assertions.checkEquals(start.addMinutes(i), next.getTime());
+                Assertions.checkEquals(100D + i % 7 * 0.25D, next.getValue());
+            }
+            Assertions.checkFalse(iterator.hasNext());
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testDecompressedChunkCache() throws IOException {
+        final DecompressedChunkCache cache = new DecompressedChunkCache(1024, true);
+        final File file = new File(ContextProperties.TEMP_DIRECTORY, "testDecompressedChunkCache.bin.lz4");
+        final MutableInt loads = new MutableInt();
+        final DecompressedChunkCache.IChunkLoader<ByteBuffer> loader = () -> {
+            loads.increment();
+            return ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+        };
+        Assertions.checkEquals(3, cache.getBlock(file, 0, loader).remaining());
+        Assertions.checkTrue(cache.getBlock(file, 0, loader).isDirect());
+        Assertions.checkEquals(1, loads.intValue());
+        cache.getBlock(file, 1, loader);
+        Assertions.checkEquals(2, loads.intValue());
+        cache.invalidate(file);
+        Assertions.checkEquals(2, (int) cache.getBlock(file, 0, loader).get(1));
+        Assertions.checkEquals(3, loads.intValue());
+    }
+
 }
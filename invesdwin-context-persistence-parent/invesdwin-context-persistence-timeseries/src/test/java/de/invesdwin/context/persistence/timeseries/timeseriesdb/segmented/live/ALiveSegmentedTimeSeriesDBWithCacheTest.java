@@ -15,7 +15,9 @@ import org.junit.Test;
 
 import de.invesdwin.context.ContextProperties;
 import de.invesdwin.context.persistence.timeseries.serde.ExtendedTypeDelegateSerde;
+import de.invesdwin.context.persistence.timeseries.serde.TimedDoubleSerde;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.IncompleteUpdateFoundException;
+import de.invesdwin.context.persistence.timeseries.timeseriesdb.TimeValueColumns;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.PeriodicalSegmentFinder;
 import de.invesdwin.context.persistence.timeseries.timeseriesdb.segmented.SegmentedKey;
 import de.invesdwin.context.test.ATest;
@@ -33,6 +35,7 @@ import de.invesdwin.util.collections.loadingcache.historical.key.APullingHistori
 import de.invesdwin.util.collections.loadingcache.historical.key.APushingHistoricalCacheAdjustKeyProvider;
 import de.invesdwin.util.collections.loadingcache.historical.key.IHistoricalCacheAdjustKeyProvider;
 import de.invesdwin.util.collections.loadingcache.historical.refresh.HistoricalCacheRefreshManager;
+import de.invesdwin.util.math.TimedDouble;
 import de.invesdwin.util.time.date.FDate;
 import de.invesdwin.util.time.date.FDateBuilder;
 import de.invesdwin.util.time.date.FDates;
@@ -209,6 +212,112 @@ public class ALiveSegmentedTimeSeriesDBWithCacheTest extends ATest {
         }
     }
 
+    @Test
+    public void testGetLatestValues() {
+        final List<FDate> dates = new ArrayList<FDate>();
+        dates.add(FDate.MIN_DATE);
+        for (final FDate entity : entities) {
+            //one millisecond before the third entity is the end of the first segment
+            dates.add(entity.addMilliseconds(-1));
+            dates.add(entity);
+            dates.add(entity.addMilliseconds(1));
+        }
+        dates.add(FDate.MAX_DATE);
+        final List<FDate> values = table.getLatestValues(KEY, dates);
+        Assertions.checkEquals(values.size(), dates.size());
+        for (int i = 0; i < dates.size(); i++) {
+            final FDate date = dates.get(i);
+            FDate expectedValue = entities.get(0);
+            for (final FDate entity : entities) {
+                if (!entity.isAfter(date)) {
+                    expectedValue = entity;
+                }
+            }
+            final FDate value = values.get(i);
+            Assertions.checkEquals(value, expectedValue, i + ": expected [" + expectedValue + "] got [" + value + "]");
+            Assertions.checkEquals(table.getLatestValue(KEY, date), expectedValue);
+        }
+    }
+
+    @Test
+    public void testCount() {
+        final List<FDate> dates = newRangeBoundaries();
+        for (final FDate from : dates) {
+            for (final FDate to : dates) {
+                if (from != null && to != null && from.isAfter(to)) {
+                    continue;
+                }
+                long expectedCount = 0;
+                for (final FDate entity : entities) {
+                    if ((from == null || !entity.isBefore(from)) && (to == null || !entity.isAfter(to))) {
+                        expectedCount++;
+                    }
+                }
+                final Long count = table.count(KEY, from, to);
+                Assertions.checkEquals(count, Long.valueOf(expectedCount),
+                        from + " -> " + to + ": expected [" + expectedCount + "] got [" + count + "]");
+            }
+        }
+    }
+
+    @Test
+    public void testGetValueAtAndIndexOf() {
+        for (int i = 0; i < entities.size(); i++) {
+            final FDate entity = entities.get(i);
+            final FDate value = table.getValueAt(KEY, i);
+            Assertions.checkEquals(value, entity, i + ": expected [" + entity + "] got [" + value + "]");
+            //one millisecond before the third entity is the end of the first segment
+            Assertions.checkEquals(table.indexOf(KEY, entity.addMilliseconds(-1)), (long) i - 1);
+            Assertions.checkEquals(table.indexOf(KEY, entity), (long) i);
+            Assertions.checkEquals(table.indexOf(KEY, entity.addMilliseconds(1)), (long) i);
+        }
+        Assertions.checkNull(table.getValueAt(KEY, -1));
+        Assertions.checkNull(table.getValueAt(KEY, entities.size()));
+        Assertions.checkEquals(table.indexOf(KEY, FDate.MIN_DATE), -1L);
+        Assertions.checkEquals(table.indexOf(KEY, FDate.MAX_DATE), (long) entities.size() - 1);
+    }
+
+    @Test
+    public void testRangeTimeValues() {
+        final List<TimedDouble> values = new ArrayList<TimedDouble>();
+        for (int i = 0; i < entities.size(); i++) {
+            values.add(new TimedDouble(entities.get(i), i / 3D));
+        }
+        final ALiveSegmentedTimeSeriesDB<String, TimedDouble> timedDoubleTable = newTimedDoubleTable(values);
+        try {
+            for (final TimedDouble value : values) {
+                timedDoubleTable.putNextLiveValue(KEY, value);
+            }
+            Assertions.checkTrue(timedDoubleTable.isTimeValueColumnsSupported());
+            //reused for all reads and starting too small so that it needs to grow
+            final TimeValueColumns columns = new TimeValueColumns(2);
+            final List<FDate> dates = newRangeBoundaries();
+            for (final FDate from : dates) {
+                for (final FDate to : dates) {
+                    if (from != null && to != null && from.isAfter(to)) {
+                        continue;
+                    }
+                    columns.clear();
+                    final int added = timedDoubleTable.rangeTimeValues(KEY, from, to, columns);
+                    Assertions.checkEquals(added, columns.size());
+                    int i = 0;
+                    for (final TimedDouble value : values) {
+                        final FDate time = value.getTime();
+                        if ((from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to))) {
+                            Assertions.checkEquals(columns.getTime(i), time.millisValue());
+                            Assertions.checkEquals(columns.getValue(i), value.getValue());
+                            i++;
+                        }
+                    }
+                    Assertions.checkEquals(i, added);
+                }
+            }
+        } finally {
+            timedDoubleTable.deleteRange(KEY);
+            timedDoubleTable.close();
+        }
+    }
+
     @Test
     public void testGetPreviousAndNextValue() {
         for (int i = 0; i < entities.size(); i++) {
@@ -797,6 +906,111 @@ public class ALiveSegmentedTimeSeriesDBWithCacheTest extends ATest {
         Assertions.assertThat(countReadNewestValueTo).isEqualTo(2);
     }
 
+    private List<FDate> newRangeBoundaries() {
+        final List<FDate> dates = new ArrayList<FDate>();
+        dates.add(null);
+        dates.add(FDate.MIN_DATE);
+        for (final FDate entity : entities) {
+            //one millisecond before the third entity is the end of the first segment
+            dates.add(entity.addMilliseconds(-1));
+            dates.add(entity);
+            dates.add(entity.addMilliseconds(1));
+        }
+        dates.add(FDate.MAX_DATE);
+        return dates;
+    }
+
+    private ALiveSegmentedTimeSeriesDB<String, TimedDouble> newTimedDoubleTable(final List<TimedDouble> values) {
+        final AHistoricalCache<TimeRange> segmentFinder = PeriodicalSegmentFinder
+                .newCache(new Duration(2, FTimeUnit.YEARS), false);
+        return new ALiveSegmentedTimeSeriesDB<String, TimedDouble>(getClass().getSimpleName() + "TimedDouble") {
+
+            private FDate curTime = null;
+
+            @Override
+            public AHistoricalCache<TimeRange> getSegmentFinder(final String key) {
+                return segmentFinder;
+            }
+
+            @Override
+            protected Serde<TimedDouble> newValueSerde() {
+                return TimedDoubleSerde.GET;
+            }
+
+            @Override
+            protected Integer newValueFixedLength() {
+                return TimedDoubleSerde.FIXED_LENGTH;
+            }
+
+            @Override
+            protected String innerHashKeyToString(final String key) {
+                return key;
+            }
+
+            @Override
+            protected FDate extractEndTime(final TimedDouble value) {
+                return value.getTime();
+            }
+
+            @Override
+            protected File getBaseDirectory() {
+                return ContextProperties.TEMP_DIRECTORY;
+            }
+
+            @Override
+            protected ICloseableIterable<? extends TimedDouble> downloadSegmentElements(
+                    final SegmentedKey<String> segmentedKey) {
+                return new ASkippingIterable<TimedDouble>(WrapperCloseableIterable.maybeWrap(values)) {
+                    private final FDate from = segmentedKey.getSegment().getFrom();
+                    private final FDate to = segmentedKey.getSegment().getTo();
+
+                    @Override
+                    protected boolean skip(final TimedDouble element) {
+                        return element.getTime().isBefore(from) || element.getTime().isAfter(to);
+                    }
+                };
+            }
+
+            @Override
+            public FDate getFirstAvailableHistoricalSegmentFrom(final String key) {
+                if (curTime == null) {
+                    return null;
+                }
+                final FDate firstTime = FDates.min(curTime, values.get(0).getTime());
+                final TimeRange firstSegment = segmentFinder.query().getValue(firstTime);
+                if (firstSegment.getTo().isBeforeOrEqualTo(curTime)) {
+                    return firstSegment.getFrom();
+                } else {
+                    return segmentFinder.query().getValue(firstSegment.getFrom().addMilliseconds(-1)).getFrom();
+                }
+            }
+
+            @Override
+            public FDate getLastAvailableHistoricalSegmentTo(final String key, final FDate updateTo) {
+                if (curTime == null) {
+                    return null;
+                }
+                final TimeRange lastSegment = segmentFinder.query().getValue(curTime);
+                if (lastSegment.getTo().isBeforeOrEqualTo(curTime)) {
+                    return lastSegment.getTo();
+                } else {
+                    return segmentFinder.query().getValue(lastSegment.getFrom().addMilliseconds(-1)).getTo();
+                }
+            }
+
+            @Override
+            public void putNextLiveValue(final String key, final TimedDouble nextLiveValue) {
+                curTime = nextLiveValue.getTime();
+                super.putNextLiveValue(key, nextLiveValue);
+            }
+
+            @Override
+            protected String getElementsName() {
+                return "values";
+            }
+        };
+    }
+
     private <T> List<T> asList(final Iterable<T> iterable) {
         return Lists.toListWithoutHasNext(iterable);
     }
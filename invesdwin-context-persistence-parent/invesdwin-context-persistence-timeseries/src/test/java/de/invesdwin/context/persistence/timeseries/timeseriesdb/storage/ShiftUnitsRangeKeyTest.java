@@ -11,6 +11,7 @@ import org.junit.Test;
 import de.invesdwin.context.test.ATest;
 import de.invesdwin.util.assertions.Assertions;
 import de.invesdwin.util.time.date.FDateBuilder;
+import ezdb.comparator.LexicographicalComparator;
 
 @NotThreadSafe
 public class ShiftUnitsRangeKeyTest extends ATest {
@@ -37,4 +38,27 @@ public class ShiftUnitsRangeKeyTest extends ATest {
 
     }
 
+    @Test
+    public void testSerdeIsLexicographical() {
+        final List<ShiftUnitsRangeKey> sortedKeys = new ArrayList<>();
+        sortedKeys.add(new ShiftUnitsRangeKey(FDateBuilder.newDate(1900), Integer.MAX_VALUE));
+        sortedKeys.add(new ShiftUnitsRangeKey(FDateBuilder.newDate(1969), 0));
+        sortedKeys.add(new ShiftUnitsRangeKey(FDateBuilder.newDate(2000), 1));
+        sortedKeys.add(new ShiftUnitsRangeKey(FDateBuilder.newDate(2000), 2));
+        sortedKeys.add(new ShiftUnitsRangeKey(FDateBuilder.newDate(2001), 2));
+
+        final List<byte[]> randomBytes = new ArrayList<>();
+        for (final ShiftUnitsRangeKey key : sortedKeys) {
+            randomBytes.add(ShiftUnitsRangeKeySerde.GET.toBytes(key));
+        }
+        Collections.reverse(randomBytes);
+        Collections.sort(randomBytes, new LexicographicalComparator());
+
+        final List<ShiftUnitsRangeKey> decodedKeys = new ArrayList<>();
+        for (final byte[] bytes : randomBytes) {
+            decodedKeys.add(ShiftUnitsRangeKeySerde.GET.fromBytes(bytes));
+        }
+        Assertions.assertThat(decodedKeys).isEqualTo(sortedKeys);
+    }
+
 }